@@ -8,7 +8,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 
 @FeignClient(
     name = "salaryCertificate", 
-    url = "https://mock-staging-internal.tamaratech.co",
+    url = "${salary-certificate.upstream.url:https://mock-staging-internal.tamaratech.co}",
     configuration = SalaryCertificateClientConfig.class
 )
 public interface SalaryCertificateClient {
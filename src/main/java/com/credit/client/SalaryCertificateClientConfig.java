@@ -1,5 +1,6 @@
 package com.credit.client;
 
+import com.credit.config.SalaryCertificateUpstreamProperties;
 import feign.Client;
 import feign.Request;
 import feign.httpclient.ApacheHttpClient;
@@ -13,11 +14,15 @@ import java.util.concurrent.TimeUnit;
 @Configuration
 public class SalaryCertificateClientConfig {
 
+    /**
+     * Connections per route match the bulkhead, so every permitted upstream call gets a
+     * connection without waiting on the pool
+     */
     @Bean
-    public Client feignClient() {
+    public Client feignClient(SalaryCertificateUpstreamProperties properties) {
         PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
         connectionManager.setMaxTotal(200);
-        connectionManager.setDefaultMaxPerRoute(20);
+        connectionManager.setDefaultMaxPerRoute(properties.getMaxConcurrentCalls());
 
         return new ApacheHttpClient(HttpClientBuilder.create()
             .setConnectionManager(connectionManager)
@@ -25,12 +30,16 @@ public class SalaryCertificateClientConfig {
             .build());
     }
 
+    /**
+     * Short timeouts so a slow upstream fails fast and counts towards the circuit breaker
+     * instead of holding threads for tens of seconds
+     */
     @Bean
-    public Request.Options requestOptions() {
+    public Request.Options requestOptions(SalaryCertificateUpstreamProperties properties) {
         return new Request.Options(
-            30, TimeUnit.SECONDS,  // connectTimeout - increased from 10 to 30 seconds
-            30, TimeUnit.SECONDS,  // readTimeout - increased from 10 to 30 seconds
+            properties.getConnectTimeout().toMillis(), TimeUnit.MILLISECONDS,
+            properties.getReadTimeout().toMillis(), TimeUnit.MILLISECONDS,
             true // followRedirects
         );
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,37 @@
+package com.credit.config;
+
+import com.credit.scoring.CreditRiskModel;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Versioned credit risk models
+ * Several versions can be configured side by side; active-version selects the one
+ * new scores are computed with. Without any entry the built-in v1 model is used.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "credit.risk")
+public class CreditRiskProperties {
+
+    private String activeVersion = CreditRiskModel.DEFAULT_VERSION;
+
+    // Version -> model parameters
+    private Map<String, CreditRiskModel> models = new HashMap<>();
+
+    public CreditRiskModel activeModel() {
+        CreditRiskModel model = models.get(activeVersion);
+        if (model == null) {
+            if (!CreditRiskModel.DEFAULT_VERSION.equals(activeVersion)) {
+                throw new IllegalStateException("No credit risk model configured for version " + activeVersion);
+            }
+            model = new CreditRiskModel();
+        }
+        model.setVersion(activeVersion);
+        return model;
+    }
+}
@@ -0,0 +1,21 @@
+package com.credit.config;
+
+import com.credit.scoring.CreditRiskScoringEngine;
+import com.credit.scoring.LinearCreditRiskScoringEngine;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration for credit risk scoring
+ * The linear engine is the default; declaring another CreditRiskScoringEngine bean replaces it
+ */
+@Configuration
+public class CreditRiskScoringConfig {
+
+    @Bean
+    @ConditionalOnMissingBean(CreditRiskScoringEngine.class)
+    public CreditRiskScoringEngine creditRiskScoringEngine(CreditRiskProperties properties) {
+        return new LinearCreditRiskScoringEngine(properties.activeModel());
+    }
+}
@@ -3,6 +3,7 @@ package com.credit.config;
 import com.credit.entity.CustomerEntity;
 import com.credit.builder.CustomerEntityBuilder;
 import com.credit.repository.CustomerRepository;
+import com.credit.scoring.CreditRiskScoringEngine;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
@@ -15,10 +16,12 @@ import org.springframework.stereotype.Component;
 public class DataInitializer implements CommandLineRunner {
 
     private final CustomerRepository customerRepository;
+    private final CreditRiskScoringEngine scoringEngine;
 
     @Autowired
-    public DataInitializer(CustomerRepository customerRepository) {
+    public DataInitializer(CustomerRepository customerRepository, CreditRiskScoringEngine scoringEngine) {
         this.customerRepository = customerRepository;
+        this.scoringEngine = scoringEngine;
     }
 
     @Override
@@ -38,7 +41,7 @@ public class DataInitializer implements CommandLineRunner {
                 .withAnnualSalary(85000.0)
                 .withPhoneNumber("+1-555-0101")
                 .build();
-        calculateCreditRiskScore(customer1);
+        scoringEngine.score(customer1);
         customerRepository.save(customer1);
 
         CustomerEntity customer2 = CustomerEntityBuilder.builder()
@@ -49,7 +52,7 @@ public class DataInitializer implements CommandLineRunner {
                 .withAnnualSalary(65000.0)
                 .withPhoneNumber("+1-555-0102")
                 .build();
-        calculateCreditRiskScore(customer2);
+        scoringEngine.score(customer2);
         customerRepository.save(customer2);
 
         CustomerEntity customer3 = CustomerEntityBuilder.builder()
@@ -60,7 +63,7 @@ public class DataInitializer implements CommandLineRunner {
                 .withAnnualSalary(55000.0)
                 .withPhoneNumber("+1-555-0103")
                 .build();
-        calculateCreditRiskScore(customer3);
+        scoringEngine.score(customer3);
         customerRepository.save(customer3);
 
         // Using convenience method for high-value customer
@@ -71,7 +74,7 @@ public class DataInitializer implements CommandLineRunner {
                 .asHighValueCustomer()  // Sets good credit score and high salary
                 .withPhoneNumber("+1-555-0104")
                 .build();
-        calculateCreditRiskScore(customer4);
+        scoringEngine.score(customer4);
         customerRepository.save(customer4);
 
         CustomerEntity customer5 = CustomerEntityBuilder.builder()
@@ -82,22 +85,9 @@ public class DataInitializer implements CommandLineRunner {
                 .withAnnualSalary(45000.0)
                 .withPhoneNumber("+1-555-0105")
                 .build();
-        calculateCreditRiskScore(customer5);
+        scoringEngine.score(customer5);
         customerRepository.save(customer5);
 
         System.out.println("Sample data initialized with 5 customers using Builder pattern");
     }
-    
-    private void calculateCreditRiskScore(CustomerEntity customer) {
-        double creditScoreWeight = 0.7;
-        double salaryWeight = 0.3;
-        
-        double normalizedCreditScore = (customer.getCreditScore() - 300.0) / (850.0 - 300.0);
-        
-        double normalizedSalary = Math.min(customer.getAnnualSalary() / 200000.0, 1.0);
-        
-        double riskScore = 1.0 - ((normalizedCreditScore * creditScoreWeight) + (normalizedSalary * salaryWeight));
-        
-        customer.setCreditRiskScore(riskScore);
-    }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,31 @@
+package com.credit.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Wire format used per exchange
+ * Publishers encode with the content type configured for the target exchange;
+ * consumers pick the decoder from each message's content type, so formats can be
+ * switched one exchange at a time.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "messaging.content-type")
+public class MessagingProperties {
+
+    // Content type for exchanges without an explicit entry
+    private String defaultType = MimeTypeUtils.APPLICATION_JSON_VALUE;
+
+    // Exchange name -> content type
+    private Map<String, String> exchanges = new HashMap<>();
+
+    public String contentTypeFor(String exchange) {
+        return exchanges.getOrDefault(exchange, defaultType);
+    }
+}
@@ -1,17 +1,34 @@
 package com.credit.config;
 
+import com.credit.messaging.CustomerEventPartitioner;
+import com.credit.messaging.SmileMessageConverter;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.AnonymousQueue;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.HeadersExchange;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
 import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.ContentTypeDelegatingMessageConverter;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 @Configuration
 public class RabbitMQConfig {
@@ -31,8 +48,23 @@ public class RabbitMQConfig {
     // Routing key
     public static final String ROUTING_KEY = "credit.customer.#";
     
+    // Routing key customer events are published with
+    public static final String CUSTOMER_EVENT_ROUTING_KEY = "credit.customer.event";
+    
     // Simple routing key
     public static final String SIMPLE_ROUTING_KEY = "credit.simple.#";
+    
+    // Headers exchange that routes expired retry messages back to their queue (x-target-queue)
+    public static final String REDELIVER_EXCHANGE_NAME = "credit-service-redeliver";
+    
+    // Prefix of the delay queues, one per backoff tier (customer-events.retry.<delay>ms)
+    public static final String RETRY_QUEUE_PREFIX = QUEUE_NAME + ".retry.";
+    
+    // Customer events that failed every attempt or could not be decoded
+    public static final String DEAD_LETTER_QUEUE_NAME = QUEUE_NAME + ".dlq";
+    
+    // Header naming the queue a retried or dead-lettered message belongs to
+    public static final String TARGET_QUEUE_HEADER = "x-target-queue";
 
     // Create a queue
     @Bean
@@ -46,6 +78,14 @@ public class RabbitMQConfig {
         return new Queue(SIMPLE_QUEUE_NAME, true);
     }
 
+    // Per-replica queue for cache invalidation
+    // customer-events has competing consumers, so only one replica would see each event there.
+    // An anonymous (exclusive, auto-delete) queue gives every replica its own copy.
+    @Bean
+    public Queue customerCacheQueue() {
+        return new AnonymousQueue();
+    }
+
     // Create a topic exchange
     @Bean
     public TopicExchange exchange() {
@@ -53,30 +93,123 @@ public class RabbitMQConfig {
     }
 
     // Bind the queue to the exchange with routing key
+    // Customer events are now published to partition queues; the original queue only
+    // receives the un-partitioned key so anything still queued there is drained
     @Bean
     public Binding binding(Queue queue, TopicExchange exchange) {
-        return BindingBuilder.bind(queue).to(exchange).with(ROUTING_KEY);
+        return BindingBuilder.bind(queue).to(exchange).with(CUSTOMER_EVENT_ROUTING_KEY);
+    }
+
+    // One queue per customer event partition (customer-events.<n>)
+    // Single active consumer: across all replicas only one consumer receives from a
+    // partition at a time, which keeps every customer's events in publish order
+    @Bean
+    public Declarables customerEventPartitions(CustomerEventPartitioner partitioner, TopicExchange exchange) {
+        List<Declarable> declarables = new ArrayList<>();
+        for (int partition = 0; partition < partitioner.getPartitions(); partition++) {
+            Queue partitionQueue = QueueBuilder.durable(CustomerEventPartitioner.queueName(partition))
+                    .singleActiveConsumer()
+                    .build();
+            declarables.add(partitionQueue);
+            declarables.add(BindingBuilder.bind(partitionQueue).to(exchange)
+                    .with(CustomerEventPartitioner.routingKey(partition)));
+        }
+        return new Declarables(declarables);
     }
     
+    // Retry and dead-letter topology for customer events
+    // A failed message is published to the delay queue of its backoff tier. Each tier
+    // queue has a fixed TTL, so messages expire in FIFO order, and dead-letters into
+    // the redeliver exchange, which routes on x-target-queue back to the original
+    // queue. After the last attempt the message goes to the DLQ instead.
+    @Bean
+    public Declarables customerEventRetryTopology(
+            CustomerEventPartitioner partitioner,
+            @Value("${messaging.retry.delays-ms:1000,10000,60000,300000}") long[] delaysMs) {
+        List<Declarable> declarables = new ArrayList<>();
+        HeadersExchange redeliver = new HeadersExchange(REDELIVER_EXCHANGE_NAME);
+        declarables.add(redeliver);
+        for (long delayMs : delaysMs) {
+            declarables.add(QueueBuilder.durable(retryQueueName(delayMs))
+                    .ttl((int) delayMs)
+                    .deadLetterExchange(REDELIVER_EXCHANGE_NAME)
+                    .build());
+        }
+        List<String> targets = new ArrayList<>(Arrays.asList(partitioner.queueNames()));
+        targets.add(QUEUE_NAME);
+        for (String target : targets) {
+            declarables.add(BindingBuilder.bind(new Queue(target)).to(redeliver)
+                    .where(TARGET_QUEUE_HEADER).matches(target));
+        }
+        declarables.add(QueueBuilder.durable(DEAD_LETTER_QUEUE_NAME).lazy().build());
+        return new Declarables(declarables);
+    }
+
+    public static String retryQueueName(long delayMs) {
+        return RETRY_QUEUE_PREFIX + delayMs + "ms";
+    }
+
     // Bind the simple queue to the exchange with simple routing key
     @Bean
     public Binding simpleBinding(Queue simpleQueue, TopicExchange exchange) {
         return BindingBuilder.bind(simpleQueue).to(exchange).with(SIMPLE_ROUTING_KEY);
     }
 
-    // Message converter to convert Java objects to JSON
+    // Bind the per-replica cache queue to every customer event
     @Bean
-    public MessageConverter jsonMessageConverter() {
+    public Binding customerCacheBinding(Queue customerCacheQueue, TopicExchange exchange) {
+        return BindingBuilder.bind(customerCacheQueue).to(exchange).with(ROUTING_KEY);
+    }
+
+    // Message converter chosen by content type
+    // Outgoing messages are encoded with the content type set on their properties
+    // (see MessagingProperties); incoming ones are decoded by their content type, so
+    // JSON and Smile producers can coexist during a rollout
+    @Bean
+    public MessageConverter messageConverter() {
         // Use our pre-configured ObjectMapper that has datetime handling
-        Jackson2JsonMessageConverter converter = new Jackson2JsonMessageConverter(objectMapper);
+        Jackson2JsonMessageConverter jsonConverter = new Jackson2JsonMessageConverter(objectMapper);
+        ContentTypeDelegatingMessageConverter converter = new ContentTypeDelegatingMessageConverter(jsonConverter);
+        converter.addDelegate(MimeTypeUtils.APPLICATION_JSON_VALUE, jsonConverter);
+        converter.addDelegate(SmileMessageConverter.CONTENT_TYPE, new SmileMessageConverter("com.credit.model"));
         return converter;
     }
 
+    // Listener container for high-volume customer events
+    // Consumers receive List<CustomerEvent> batches and the whole batch is acked with one
+    // multiple-ack once the listener returns. A batch is handed over when it is full or
+    // when no message arrived for receive-timeout-ms.
+    @Bean
+    public SimpleRabbitListenerContainerFactory customerEventBatchContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${messaging.consumer.concurrency:4}") int concurrency,
+            @Value("${messaging.consumer.max-concurrency:8}") int maxConcurrency,
+            @Value("${messaging.consumer.prefetch:250}") int prefetch,
+            @Value("${messaging.consumer.batch-size:100}") int batchSize,
+            @Value("${messaging.consumer.receive-timeout-ms:100}") long receiveTimeoutMs) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setMessageConverter(messageConverter());
+        factory.setAcknowledgeMode(AcknowledgeMode.AUTO);
+        factory.setConcurrentConsumers(concurrency);
+        factory.setMaxConcurrentConsumers(maxConcurrency);
+        // Prefetch must cover a full batch or consumers stall waiting for it
+        factory.setPrefetchCount(Math.max(prefetch, batchSize));
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(receiveTimeoutMs);
+        return factory;
+    }
+
     // RabbitTemplate with message converter
     @Bean
     public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
         RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
-        rabbitTemplate.setMessageConverter(jsonMessageConverter());
+        rabbitTemplate.setMessageConverter(messageConverter());
+        // Unroutable messages come back to the publisher instead of being dropped silently
+        rabbitTemplate.setMandatory(true);
         return rabbitTemplate;
     }
 } 
\ No newline at end of file
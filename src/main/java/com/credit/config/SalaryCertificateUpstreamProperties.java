@@ -0,0 +1,45 @@
+package com.credit.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Client and fault-tolerance settings for the salary certificate upstream
+ * The timeouts bound one HTTP call; the request timeout bounds what an API caller waits
+ * in total, including time queued for the executor and for a coalesced call.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "salary-certificate.upstream")
+public class SalaryCertificateUpstreamProperties {
+
+    private String url = "https://mock-staging-internal.tamaratech.co";
+
+    private Duration connectTimeout = Duration.ofSeconds(2);
+
+    private Duration readTimeout = Duration.ofSeconds(5);
+
+    // Bulkhead - concurrent upstream calls, and how long a call may wait for a free slot
+    private int maxConcurrentCalls = 20;
+
+    private Duration maxWait = Duration.ofMillis(50);
+
+    // Circuit breaker - opens when failureRateThreshold of the last slidingWindowSize calls failed
+    private int slidingWindowSize = 20;
+
+    private int minimumCalls = 10;
+
+    private double failureRateThreshold = 0.5;
+
+    private Duration openDuration = Duration.ofSeconds(30);
+
+    // Executor serving the asynchronous endpoint, so servlet threads never wait on upstream
+    private int executorThreads = 20;
+
+    private int executorQueueCapacity = 100;
+
+    private Duration requestTimeout = Duration.ofSeconds(10);
+}
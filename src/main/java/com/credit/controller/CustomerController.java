@@ -1,42 +1,101 @@
 package com.credit.controller;
 
+import com.credit.dto.BulkCreateCustomersResponse;
 import com.credit.dto.CreateCustomerRequest;
 import com.credit.dto.UpdateCustomerRequest;
 import com.credit.dto.CustomerDTO;
+import com.credit.dto.CursorPage;
+import com.credit.dto.NameSearchMode;
+import com.credit.service.CustomerBulkService;
+import com.credit.service.CustomerExportService;
 import com.credit.service.CustomerService;
 import javax.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
+import javax.servlet.http.HttpServletResponse;
+import java.time.Duration;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/customers")
 public class CustomerController {
 
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final CustomerService customerService;
+    private final CustomerExportService customerExportService;
+    private final CustomerBulkService customerBulkService;
+    private final Duration exportTimeout;
 
     @Autowired
-    public CustomerController(CustomerService customerService) {
+    public CustomerController(CustomerService customerService,
+                              CustomerExportService customerExportService,
+                              CustomerBulkService customerBulkService,
+                              @Value("${customer.export.timeout:1h}") Duration exportTimeout) {
         this.customerService = customerService;
+        this.customerExportService = customerExportService;
+        this.customerBulkService = customerBulkService;
+        this.exportTimeout = exportTimeout;
     }
 
     @GetMapping
-    public ResponseEntity<List<CustomerDTO>> getAllCustomers(
+    public ResponseEntity<CursorPage<CustomerDTO>> getAllCustomers(
             @RequestParam(required = false) String firstName,
             @RequestParam(required = false) String lastName,
             @RequestParam(required = false) Integer minCreditScore,
             @RequestParam(required = false) Integer maxCreditScore,
             @RequestParam(required = false) Double minSalary,
-            @RequestParam(required = false) Double maxSalary) {
+            @RequestParam(required = false) Double maxSalary,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit) {
         
-        List<CustomerDTO> customers = customerService.getAllCustomers(
-                firstName, lastName, minCreditScore, maxCreditScore, minSalary, maxSalary);
+        CursorPage<CustomerDTO> customers = customerService.getAllCustomers(
+                firstName, lastName, minCreditScore, maxCreditScore, minSalary, maxSalary, after, limit);
         return ResponseEntity.ok(customers);
     }
 
+    /**
+     * Search customers by name using the name indexes (PREFIX, TOKEN or FUZZY)
+     */
+    @GetMapping("/search")
+    public ResponseEntity<CursorPage<CustomerDTO>> searchCustomers(
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "PREFIX") NameSearchMode mode,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit) {
+        
+        return ResponseEntity.ok(customerService.searchCustomersByName(query, mode, after, limit));
+    }
+
+    /**
+     * Stream every customer as NDJSON, optionally gzipped
+     * The body is written from a database cursor on an async thread, so the first
+     * rows reach the client immediately and heap use stays constant. A full export can
+     * take far longer than the default async timeout, so it gets its own.
+     */
+    @GetMapping("/export")
+    public WebAsyncTask<Void> exportCustomers(
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletResponse response) {
+        
+        response.setContentType(NDJSON.toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"customers.ndjson\"");
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return new WebAsyncTask<>(exportTimeout.toMillis(), () -> {
+            customerExportService.exportCustomers(response.getOutputStream(), gzip);
+            return null;
+        });
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<CustomerDTO> getCustomerById(@PathVariable Long id) {
         return ResponseEntity.ok(customerService.getCustomerById(id));
@@ -47,6 +106,15 @@ public class CustomerController {
         return new ResponseEntity<>(customerService.createCustomer(request), HttpStatus.CREATED);
     }
 
+    /**
+     * Create many customers at once; rows are validated individually and the
+     * response carries one result per row (CREATED, DUPLICATE, INVALID or FAILED)
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<BulkCreateCustomersResponse> createCustomers(@RequestBody List<CreateCustomerRequest> requests) {
+        return ResponseEntity.ok(customerBulkService.createCustomers(requests));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<CustomerDTO> updateCustomer(@PathVariable Long id, @Valid @RequestBody UpdateCustomerRequest request) {
         return ResponseEntity.ok(customerService.updateCustomer(id, request));
@@ -1,6 +1,10 @@
 package com.credit.controller;
 
+import com.credit.dto.EventReplayRequest;
+import com.credit.dto.EventReplayStatus;
 import com.credit.model.CustomerEvent;
+import com.credit.service.DeadLetterService;
+import com.credit.service.EventReplayService;
 import com.credit.service.MessagePublisherService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -8,10 +12,12 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.validation.Valid;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 /**
  * Controller for testing message publishing to RabbitMQ
@@ -23,6 +29,8 @@ import java.util.Map;
 public class MessageController {
 
     private final MessagePublisherService messagePublisherService;
+    private final DeadLetterService deadLetterService;
+    private final EventReplayService eventReplayService;
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ISO_DATE_TIME;
 
     /**
@@ -37,6 +45,7 @@ public class MessageController {
         
         // Create a test customer event
         CustomerEvent event = CustomerEvent.builder()
+                .eventId(UUID.randomUUID().toString())
                 .eventType(CustomerEvent.EventType.CREATED)
                 .customerId(999L)
                 .timestamp(LocalDateTime.now().format(FORMATTER))
@@ -63,6 +72,7 @@ public class MessageController {
         
         // Create a test customer event
         CustomerEvent event = CustomerEvent.builder()
+                .eventId(UUID.randomUUID().toString())
                 .eventType(CustomerEvent.EventType.CREATED)
                 .customerId(999L)
                 .timestamp(LocalDateTime.now().format(FORMATTER))
@@ -105,4 +115,53 @@ public class MessageController {
         
         return ResponseEntity.ok(response);
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Number of customer events waiting in the dead-letter queue
+     */
+    @GetMapping("/dead-letters")
+    public ResponseEntity<Map<String, Long>> getDeadLetterCount() {
+        Map<String, Long> response = new HashMap<>();
+        response.put("count", deadLetterService.deadLetterCount());
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * Send dead-lettered customer events back to their original queue
+     * 
+     * @param max The maximum number of messages to re-drive
+     */
+    @PostMapping("/dead-letters/redrive")
+    public ResponseEntity<Map<String, Integer>> redriveDeadLetters(@RequestParam(defaultValue = "1000") int max) {
+        log.info("Re-driving up to {} dead-lettered messages", max);
+        Map<String, Integer> response = new HashMap<>();
+        response.put("redriven", deadLetterService.redrive(max));
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * Replay a range of the customer event log onto the service exchange
+     * Runs in the background; poll GET /replay for progress
+     */
+    @PostMapping("/replay")
+    public ResponseEntity<EventReplayStatus> startReplay(@Valid @RequestBody EventReplayRequest request) {
+        return ResponseEntity.accepted().body(eventReplayService.start(request));
+    }
+    
+    /**
+     * Progress of the current or last replay
+     */
+    @GetMapping("/replay")
+    public ResponseEntity<EventReplayStatus> getReplayStatus() {
+        return ResponseEntity.ok(eventReplayService.status());
+    }
+    
+    /**
+     * Stop the running replay
+     */
+    @DeleteMapping("/replay")
+    public ResponseEntity<EventReplayStatus> cancelReplay() {
+        log.info("Cancelling customer event replay");
+        return ResponseEntity.ok(eventReplayService.cancel());
+    }
+}
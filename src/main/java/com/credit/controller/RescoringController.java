@@ -0,0 +1,48 @@
+package com.credit.controller;
+
+import com.credit.dto.RescoringStatus;
+import com.credit.service.CustomerRescoringService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Admin endpoints for rescoring all customers with the active credit risk model
+ */
+@RestController
+@RequestMapping("/api/rescoring")
+@RequiredArgsConstructor
+@Slf4j
+public class RescoringController {
+
+    private final CustomerRescoringService rescoringService;
+
+    /**
+     * Start a rescoring job in the background, or resume the last unfinished one
+     *
+     * @param rowsPerSecond Optional throttle; 0 runs unthrottled
+     */
+    @PostMapping
+    public ResponseEntity<RescoringStatus> startRescoring(@RequestParam(required = false) Double rowsPerSecond) {
+        log.info("Starting customer rescoring (rowsPerSecond={})", rowsPerSecond);
+        return ResponseEntity.accepted().body(rescoringService.start(rowsPerSecond));
+    }
+
+    /**
+     * Progress and ETA of the current or last job
+     */
+    @GetMapping
+    public ResponseEntity<RescoringStatus> getRescoringStatus() {
+        return ResponseEntity.ok(rescoringService.status());
+    }
+
+    /**
+     * Stop the running job; POST resumes it from its last checkpoint
+     */
+    @DeleteMapping
+    public ResponseEntity<RescoringStatus> cancelRescoring() {
+        log.info("Cancelling customer rescoring");
+        return ResponseEntity.ok(rescoringService.cancel());
+    }
+}
@@ -1,22 +1,69 @@
 package com.credit.controller;
 
+import com.credit.dto.BulkSalaryCertificateEnquiry;
+import com.credit.model.SalaryCertificateRequest;
 import com.credit.model.SalaryCertificateResponse;
+import com.credit.service.SalaryCertificateBulkService;
 import com.credit.service.SalaryCertificateService;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import javax.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/salary-certificate")
-@RequiredArgsConstructor
 public class SalaryCertificateController {
     
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    
     private final SalaryCertificateService salaryCertificateService;
+    private final SalaryCertificateBulkService salaryCertificateBulkService;
+    private final Duration bulkTimeout;
+    
+    public SalaryCertificateController(SalaryCertificateService salaryCertificateService,
+                                       SalaryCertificateBulkService salaryCertificateBulkService,
+                                       @Value("${salary-certificate.bulk.timeout:30m}") Duration bulkTimeout) {
+        this.salaryCertificateService = salaryCertificateService;
+        this.salaryCertificateBulkService = salaryCertificateBulkService;
+        this.bulkTimeout = bulkTimeout;
+    }
     
+    /**
+     * Enquire for the applicant in the body, or for the sample applicant when there is no body
+     * Handled asynchronously; the servlet thread is released while upstream is called.
+     */
     @PostMapping
-    public ResponseEntity<SalaryCertificateResponse> getSalaryCertificate() {
-        return ResponseEntity.ok(salaryCertificateService.getAndSaveSalaryCertificate());
+    public CompletableFuture<ResponseEntity<SalaryCertificateResponse>> getSalaryCertificate(
+            @RequestBody(required = false) SalaryCertificateRequest request) {
+        CompletableFuture<SalaryCertificateResponse> enquiry = request == null || request.getNationalId() == null
+                ? salaryCertificateService.getAndSaveSalaryCertificateAsync()
+                : salaryCertificateService.getAndSaveSalaryCertificateAsync(request);
+        return enquiry.thenApply(ResponseEntity::ok);
+    }
+    
+    /**
+     * Enquire for many applicants at once, streaming one NDJSON result per applicant as it completes
+     * Thousands of upstream calls take far longer than the default async timeout, so the
+     * stream gets its own.
+     */
+    @PostMapping("/bulk")
+    public WebAsyncTask<Void> getSalaryCertificates(
+            @RequestBody List<BulkSalaryCertificateEnquiry> enquiries,
+            HttpServletResponse response) {
+        salaryCertificateBulkService.validate(enquiries);
+        response.setContentType(NDJSON.toString());
+        return new WebAsyncTask<>(bulkTimeout.toMillis(), () -> {
+            salaryCertificateBulkService.enquireAll(enquiries, response.getOutputStream());
+            return null;
+        });
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,124 @@
+package com.credit.controller;
+
+import com.credit.model.SalaryCertificateRequest;
+import com.credit.model.SalaryCertificateResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local stand-in for the salary certificate upstream, active with the "stub" profile
+ * Serves the same path as the real enquiry API with injectable latency, server errors
+ * and not-found answers, so timeouts, the bulkhead and the circuit breaker can be
+ * exercised without the real upstream. Latency is applied with a delayed executor and
+ * does not hold a servlet thread.
+ */
+@RestController
+@Profile("stub")
+@Slf4j
+public class SalaryCertificateStubController {
+
+    private volatile Duration latency;
+    private volatile double errorRate;
+    private volatile double notFoundRate;
+
+    public SalaryCertificateStubController(@Value("${salary-certificate.stub.latency:200ms}") Duration latency,
+                                           @Value("${salary-certificate.stub.error-rate:0}") double errorRate,
+                                           @Value("${salary-certificate.stub.not-found-rate:0}") double notFoundRate) {
+        this.latency = latency;
+        this.errorRate = errorRate;
+        this.notFoundRate = notFoundRate;
+    }
+
+    @PostMapping("/umock/simah-report/api/v2/enquiry/consumer/salarycertificate")
+    public CompletableFuture<ResponseEntity<SalaryCertificateResponse>> enquire(
+            @RequestBody SalaryCertificateRequest request) {
+        double roll = ThreadLocalRandom.current().nextDouble();
+        double errors = errorRate;
+        double notFound = notFoundRate;
+        return CompletableFuture.supplyAsync(() -> {
+            if (roll < errors) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).<SalaryCertificateResponse>build();
+            }
+            return ResponseEntity.ok(roll < errors + notFound ? notFound() : found(request));
+        }, CompletableFuture.delayedExecutor(latency.toMillis(), TimeUnit.MILLISECONDS));
+    }
+
+    @GetMapping("/stub/salary-certificate/faults")
+    public Map<String, Object> getFaults() {
+        Map<String, Object> faults = new LinkedHashMap<>();
+        faults.put("latency", latency.toString());
+        faults.put("errorRate", errorRate);
+        faults.put("notFoundRate", notFoundRate);
+        return faults;
+    }
+
+    /**
+     * Change the injected faults at runtime, e.g. ?latencyMs=8000&errorRate=0.5
+     */
+    @PutMapping("/stub/salary-certificate/faults")
+    public Map<String, Object> setFaults(@RequestParam(required = false) Long latencyMs,
+                                         @RequestParam(required = false) Double errorRate,
+                                         @RequestParam(required = false) Double notFoundRate) {
+        if (latencyMs != null) {
+            this.latency = Duration.ofMillis(latencyMs);
+        }
+        if (errorRate != null) {
+            this.errorRate = errorRate;
+        }
+        if (notFoundRate != null) {
+            this.notFoundRate = notFoundRate;
+        }
+        log.info("Salary certificate stub faults set to {}", getFaults());
+        return getFaults();
+    }
+
+    private static SalaryCertificateResponse found(SalaryCertificateRequest request) {
+        SalaryCertificateResponse.EmploymentStatusInfo info = new SalaryCertificateResponse.EmploymentStatusInfo();
+        info.setFullName("Stub Applicant " + request.getNationalId());
+        info.setBasicWage("10000");
+        info.setHousingAllowance("2500");
+        info.setOtherAllowance("500");
+        info.setFullWage("13000");
+        info.setEmployerName("Stub Employer");
+        info.setDateOfJoining("2015-01-01");
+        info.setWorkingMonths("120");
+        info.setEmploymentStatus("Active");
+        info.setSalaryStartingDate("2015-01-01");
+        info.setDateOfBirth(request.getDateOfBirth());
+        info.setNationality("Saudi");
+
+        SalaryCertificateResponse.PrivateSector privateSector = new SalaryCertificateResponse.PrivateSector();
+        privateSector.setEmploymentStatusInfo(new SalaryCertificateResponse.EmploymentStatusInfo[]{info});
+        SalaryCertificateResponse.SalaryCertificateData data = new SalaryCertificateResponse.SalaryCertificateData();
+        data.setPrivateSector(privateSector);
+
+        SalaryCertificateResponse response = new SalaryCertificateResponse();
+        response.setSuccess(true);
+        response.setMessage("Success");
+        response.setData(data);
+        return response;
+    }
+
+    private static SalaryCertificateResponse notFound() {
+        SalaryCertificateResponse response = new SalaryCertificateResponse();
+        response.setSuccess(false);
+        response.setMessage("No salary certificate found");
+        return response;
+    }
+}
@@ -0,0 +1,31 @@
+package com.credit.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a single row in a bulk customer creation request
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkCreateCustomerResult {
+
+    // Position of the row in the request
+    private int index;
+    private Status status;
+    private String email;
+    // Id of the created customer, only set when status is CREATED
+    private Long id;
+    private String error;
+
+    public enum Status {
+        CREATED,
+        DUPLICATE,
+        INVALID,
+        FAILED
+    }
+}
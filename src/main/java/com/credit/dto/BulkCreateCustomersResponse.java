@@ -0,0 +1,21 @@
+package com.credit.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Response for bulk customer creation with one result per request row
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkCreateCustomersResponse {
+
+    private int total;
+    private int created;
+    private int rejected;
+    private List<BulkCreateCustomerResult> results;
+}
@@ -0,0 +1,21 @@
+package com.credit.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One applicant in a bulk salary certificate enquiry
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkSalaryCertificateEnquiry {
+
+    private String nationalId;
+    private String dateOfBirth;
+    // Customer the stored certificate is linked to, optional
+    private Long customerId;
+}
@@ -0,0 +1,34 @@
+package com.credit.dto;
+
+import com.credit.model.SalaryCertificateResponse;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a single applicant in a bulk salary certificate enquiry
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkSalaryCertificateResult {
+
+    // Position of the applicant in the request
+    private int index;
+    private Status status;
+    private String nationalId;
+    private Long customerId;
+    // First employment record, only set when status is FOUND
+    private SalaryCertificateResponse.EmploymentStatusInfo certificate;
+    private String error;
+
+    public enum Status {
+        FOUND,
+        NOT_FOUND,
+        INVALID,
+        UNAVAILABLE,
+        FAILED
+    }
+}
@@ -0,0 +1,62 @@
+package com.credit.dto;
+
+import com.credit.exception.InvalidRequestException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A single page of results for keyset (cursor) pagination
+ * The cursor is an opaque token wrapping the last returned id, so the next page
+ * is read with "id > cursor" instead of an OFFSET scan that grows with page depth
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    private List<T> content;
+    private String nextCursor;
+    private int limit;
+    private boolean hasMore;
+
+    /**
+     * Build a page from rows fetched with limit + 1 - the extra row only tells us
+     * whether another page exists and is never returned to the client
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int limit, Function<T, Long> idExtractor) {
+        boolean hasMore = rows.size() > limit;
+        List<T> content = hasMore ? rows.subList(0, limit) : rows;
+        String nextCursor = hasMore ? encodeCursor(idExtractor.apply(content.get(content.size() - 1))) : null;
+        return new CursorPage<>(content, nextCursor, limit, hasMore);
+    }
+
+    public static String encodeCursor(Long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Long.toString(id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor back into the last seen id (0 when no cursor is given)
+     */
+    public static long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0L;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            long id = Long.parseLong(decoded);
+            if (id < 0) {
+                throw new InvalidRequestException("Invalid cursor: " + cursor);
+            }
+            return id;
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Invalid cursor: " + cursor);
+        }
+    }
+}
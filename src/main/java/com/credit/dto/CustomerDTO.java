@@ -25,6 +25,7 @@ public class CustomerDTO {
     private Integer creditScore;
     private Double annualSalary;
     private Double creditRiskScore;
+    private String creditRiskModelVersion;
     
     // Full name computed property - this is an example of how DTOs can provide
     // computed values without storing them in the database
@@ -0,0 +1,41 @@
+package com.credit.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.Positive;
+import java.time.LocalDateTime;
+
+/**
+ * A range of the customer event log to publish again
+ * Give either an id range or a time range; open ends default to the start and end of the log
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventReplayRequest {
+
+    @Min(value = 1, message = "fromId must be positive")
+    private Long fromId;
+
+    @Min(value = 1, message = "toId must be positive")
+    private Long toId;
+
+    private LocalDateTime from;
+
+    private LocalDateTime to;
+
+    // Messages per second across all workers; null uses the configured default
+    @Positive(message = "ratePerSecond must be positive")
+    private Double ratePerSecond;
+
+    @Min(value = 1, message = "workers must be at least 1")
+    @Max(value = 32, message = "workers must be at most 32")
+    private Integer workers;
+
+    // Send every message with this routing key instead of its partition key, e.g. to feed only a new projection
+    private String routingKey;
+}
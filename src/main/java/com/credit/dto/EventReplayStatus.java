@@ -0,0 +1,32 @@
+package com.credit.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of the current (or last) event log replay
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventReplayStatus {
+
+    public enum State {
+        IDLE, RUNNING, COMPLETED, CANCELLED, FAILED
+    }
+
+    private State state;
+    private Long fromId;
+    private Long toId;
+    private double ratePerSecond;
+    private int workers;
+    private long published;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String error;
+}
@@ -0,0 +1,13 @@
+package com.credit.dto;
+
+/**
+ * How a customer name search is matched
+ */
+public enum NameSearchMode {
+    // First or last name starts with the query (B-tree range scan)
+    PREFIX,
+    // Every term of the query appears in the name (ngram full-text, boolean mode)
+    TOKEN,
+    // Names sharing the most grams with the query, best match first (ngram full-text, natural language mode)
+    FUZZY
+}
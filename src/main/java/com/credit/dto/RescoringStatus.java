@@ -0,0 +1,56 @@
+package com.credit.dto;
+
+import com.credit.model.RescoringJob;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of the current (or last) credit risk rescoring job
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RescoringStatus {
+
+    private Long jobId;
+    private String modelVersion;
+    private RescoringJob.State state;
+    private Long fromId;
+    private Long toId;
+    // Last checkpoint - a resumed job continues after this id
+    private Long checkpointId;
+    private long rowsRescored;
+    private double percentComplete;
+    private double rowsPerSecond;
+    private Long etaSeconds;
+    private LocalDateTime startedAt;
+    private String error;
+
+    /**
+     * @param idsCovered How many ids of the range have been processed
+     */
+    public static RescoringStatus from(RescoringJob job, long idsCovered, double rowsPerSecond, Long etaSeconds) {
+        long total = job.getToId() - job.getFromId() + 1;
+        double percent = job.getState() == RescoringJob.State.COMPLETED || total <= 0
+                ? 100.0 : Math.min(100.0, 100.0 * idsCovered / total);
+        return RescoringStatus.builder()
+                .jobId(job.getId())
+                .modelVersion(job.getModelVersion())
+                .state(job.getState())
+                .fromId(job.getFromId())
+                .toId(job.getToId())
+                .checkpointId(job.getLastId())
+                .rowsRescored(job.getRowsRescored())
+                .percentComplete(percent)
+                .rowsPerSecond(rowsPerSecond)
+                .etaSeconds(etaSeconds)
+                .startedAt(job.getStartedAt())
+                .error(job.getError())
+                .build();
+    }
+}
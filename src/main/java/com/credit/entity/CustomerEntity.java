@@ -4,6 +4,8 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import javax.validation.constraints.*;
@@ -24,8 +26,18 @@ import java.util.List;
 public class CustomerEntity implements Serializable {
     private static final long serialVersionUID = 1L;
     
+    // Pooled sequence (table-backed on MySQL) so inserts can be JDBC batched;
+    // Hibernate reserves blocks of 100 ids per round trip to customer_id_seq
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customer_id_generator")
+    @GenericGenerator(
+            name = "customer_id_generator",
+            strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator",
+            parameters = {
+                    @Parameter(name = "sequence_name", value = "customer_id_seq"),
+                    @Parameter(name = "increment_size", value = "100"),
+                    @Parameter(name = "optimizer", value = "pooled-lo")
+            })
     private Long id;
 
     @Column(name = "first_name", nullable = false)
@@ -48,6 +60,9 @@ public class CustomerEntity implements Serializable {
 
     @Column(name = "credit_risk_score")
     private Double creditRiskScore;
+
+    @Column(name = "credit_risk_model_version", length = 20)
+    private String creditRiskModelVersion;
     
     // Note: We'll handle the relationship with SalaryCertificate separately
     // This keeps the entity focused on its core responsibility
@@ -62,6 +77,7 @@ public class CustomerEntity implements Serializable {
                 ", creditScore=" + creditScore +
                 ", annualSalary=" + annualSalary +
                 ", creditRiskScore=" + creditRiskScore +
+                ", creditRiskModelVersion='" + creditRiskModelVersion + '\'' +
                 '}';
     }
 } 
\ No newline at end of file
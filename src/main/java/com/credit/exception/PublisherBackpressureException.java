@@ -0,0 +1,14 @@
+package com.credit.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when the message publisher queue stays full for longer than the enqueue timeout
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class PublisherBackpressureException extends RuntimeException {
+    public PublisherBackpressureException(String message) {
+        super(message);
+    }
+}
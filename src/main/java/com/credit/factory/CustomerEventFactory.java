@@ -2,12 +2,15 @@ package com.credit.factory;
 
 import com.credit.entity.CustomerEntity;
 import com.credit.model.CustomerEvent;
+import com.credit.model.CustomerSnapshot;
+import com.credit.model.FieldChange;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Factory Pattern Implementation for CustomerEvent creation
@@ -25,6 +28,9 @@ public class CustomerEventFactory {
     
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ISO_DATE_TIME;
     
+    // Seeded from the clock so sequences keep increasing across restarts
+    private final AtomicLong sequence = new AtomicLong(System.currentTimeMillis() * 1000);
+    
     /**
      * Create customer created event with standard messaging
      */
@@ -43,7 +49,7 @@ public class CustomerEventFactory {
      * Create customer deleted event
      */
     public CustomerEvent createCustomerDeletedEvent(Long customerId) {
-        return CustomerEvent.builder()
+        return newEvent()
                 .eventType(CustomerEvent.EventType.DELETED)
                 .customerId(customerId)
                 .timestamp(LocalDateTime.now().format(FORMATTER))
@@ -51,24 +57,52 @@ public class CustomerEventFactory {
                 .build();
     }
     
+    /**
+     * Create a delta event carrying only the fields that changed
+     * A change to the credit score is reported as CREDIT_SCORE_UPDATED
+     */
+    public CustomerEvent createCustomerChangedEvent(CustomerEntity entity, Map<String, FieldChange> changes) {
+        FieldChange creditScore = changes.get("creditScore");
+        if (creditScore != null) {
+            return createCreditScoreUpdatedEvent(entity, (Integer) creditScore.getOldValue(), changes);
+        }
+        return newEvent()
+                .eventType(CustomerEvent.EventType.UPDATED)
+                .customerId(entity.getId())
+                .timestamp(LocalDateTime.now().format(FORMATTER))
+                .message("Customer information updated")
+                .changes(changes)
+                .build();
+    }
+    
+    /**
+     * Create a delta event for a customer whose credit risk was rescored by a background job
+     */
+    public CustomerEvent createCreditRiskRescoredEvent(Long customerId, Map<String, FieldChange> changes) {
+        return newEvent()
+                .eventType(CustomerEvent.EventType.UPDATED)
+                .customerId(customerId)
+                .timestamp(LocalDateTime.now().format(FORMATTER))
+                .message("Credit risk rescored")
+                .changes(changes)
+                .build();
+    }
+    
     /**
      * Create specialized event for credit score updates
      * This shows how Factory can create different variants
      */
-    public CustomerEvent createCreditScoreUpdatedEvent(CustomerEntity entity, Integer oldScore) {
+    public CustomerEvent createCreditScoreUpdatedEvent(CustomerEntity entity, Integer oldScore,
+                                                       Map<String, FieldChange> changes) {
         String message = String.format("Credit score updated from %d to %d", 
                                       oldScore, entity.getCreditScore());
         
-        Map<String, Object> details = extractCustomerDetails(entity);
-        details.put("previousCreditScore", oldScore);
-        details.put("scoreChange", entity.getCreditScore() - oldScore);
-        
-        return CustomerEvent.builder()
+        return newEvent()
                 .eventType(CustomerEvent.EventType.CREDIT_SCORE_UPDATED)
                 .customerId(entity.getId())
                 .timestamp(LocalDateTime.now().format(FORMATTER))
                 .message(message)
-                .customerDetails(details)
+                .changes(changes)
                 .build();
     }
     
@@ -87,34 +121,21 @@ public class CustomerEventFactory {
      * Central event creation method - demonstrates how Factory centralizes logic
      */
     private CustomerEvent createEvent(CustomerEntity entity, CustomerEvent.EventType eventType, String message) {
-        Map<String, Object> details = extractCustomerDetails(entity);
-        
-        return CustomerEvent.builder()
+        return newEvent()
                 .eventType(eventType)
                 .customerId(entity.getId())
                 .timestamp(LocalDateTime.now().format(FORMATTER))
                 .message(message)
-                .customerDetails(details)
+                .customer(CustomerSnapshot.from(entity))
                 .build();
     }
     
     /**
-     * Extract customer details for event - this could be enhanced with business rules
+     * Start every event with a fresh id and the next sequence number
      */
-    private Map<String, Object> extractCustomerDetails(CustomerEntity entity) {
-        Map<String, Object> details = new HashMap<>();
-        details.put("id", entity.getId());
-        details.put("firstName", entity.getFirstName());
-        details.put("lastName", entity.getLastName());
-        details.put("email", entity.getEmail());
-        details.put("creditScore", entity.getCreditScore());
-        details.put("annualSalary", entity.getAnnualSalary());
-        details.put("creditRiskScore", entity.getCreditRiskScore());
-        
-        // Add computed fields that might be useful for event consumers
-        details.put("fullName", entity.getFirstName() + " " + entity.getLastName());
-        details.put("isHighValue", entity.getCreditScore() >= 750 && entity.getAnnualSalary() >= 100000);
-        
-        return details;
+    private CustomerEvent.CustomerEventBuilder newEvent() {
+        return CustomerEvent.builder()
+                .eventId(UUID.randomUUID().toString())
+                .sequence(sequence.incrementAndGet());
     }
-} 
\ No newline at end of file
+}
@@ -30,6 +30,7 @@ public class CustomerMapper {
                 .creditScore(entity.getCreditScore())
                 .annualSalary(entity.getAnnualSalary())
                 .creditRiskScore(entity.getCreditRiskScore())
+                .creditRiskModelVersion(entity.getCreditRiskModelVersion())
                 .build();
     }
 
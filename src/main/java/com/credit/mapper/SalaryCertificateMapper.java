@@ -0,0 +1,83 @@
+package com.credit.mapper;
+
+import com.credit.model.SalaryCertificate;
+import com.credit.model.SalaryCertificateRequest;
+import com.credit.model.SalaryCertificateResponse;
+import org.springframework.stereotype.Component;
+
+/**
+ * Converts between upstream salary certificate responses and stored certificates
+ */
+@Component
+public class SalaryCertificateMapper {
+
+    /**
+     * @return the first employment record of a successful response, or null when there is none
+     */
+    public SalaryCertificateResponse.EmploymentStatusInfo firstEmployment(SalaryCertificateResponse response) {
+        if (response != null && response.isSuccess() && response.getData() != null &&
+            response.getData().getPrivateSector() != null &&
+            response.getData().getPrivateSector().getEmploymentStatusInfo() != null &&
+            response.getData().getPrivateSector().getEmploymentStatusInfo().length > 0) {
+            return response.getData().getPrivateSector().getEmploymentStatusInfo()[0];
+        }
+        return null;
+    }
+
+    public SalaryCertificate toEntity(SalaryCertificateRequest request,
+                                      SalaryCertificateResponse.EmploymentStatusInfo employmentInfo) {
+        SalaryCertificate certificate = new SalaryCertificate();
+        certificate.setFullName(employmentInfo.getFullName());
+        certificate.setBasicWage(employmentInfo.getBasicWage());
+        certificate.setHousingAllowance(employmentInfo.getHousingAllowance());
+        certificate.setOtherAllowance(employmentInfo.getOtherAllowance());
+        certificate.setFullWage(employmentInfo.getFullWage());
+        certificate.setEmployerName(employmentInfo.getEmployerName());
+        certificate.setDateOfJoining(employmentInfo.getDateOfJoining());
+        certificate.setWorkingMonths(employmentInfo.getWorkingMonths());
+        certificate.setEmploymentStatus(employmentInfo.getEmploymentStatus());
+        certificate.setSalaryStartingDate(employmentInfo.getSalaryStartingDate());
+        certificate.setEstablishmentActivity(employmentInfo.getEstablishmentActivity());
+        certificate.setCommercialRegistrationNumber(employmentInfo.getCommercialRegistrationNumber());
+        certificate.setLegalEntity(employmentInfo.getLegalEntity());
+        certificate.setDateOfBirth(employmentInfo.getDateOfBirth());
+        certificate.setNationality(employmentInfo.getNationality());
+        certificate.setGosinumber(employmentInfo.getGosinumber());
+        certificate.setNationalId(request.getNationalId());
+        certificate.setEnquiryDateOfBirth(request.getDateOfBirth());
+        return certificate;
+    }
+
+    /**
+     * Rebuild the upstream response shape from a stored certificate
+     */
+    public SalaryCertificateResponse toResponse(SalaryCertificate certificate) {
+        SalaryCertificateResponse.EmploymentStatusInfo employmentInfo = new SalaryCertificateResponse.EmploymentStatusInfo();
+        employmentInfo.setFullName(certificate.getFullName());
+        employmentInfo.setBasicWage(certificate.getBasicWage());
+        employmentInfo.setHousingAllowance(certificate.getHousingAllowance());
+        employmentInfo.setOtherAllowance(certificate.getOtherAllowance());
+        employmentInfo.setFullWage(certificate.getFullWage());
+        employmentInfo.setEmployerName(certificate.getEmployerName());
+        employmentInfo.setDateOfJoining(certificate.getDateOfJoining());
+        employmentInfo.setWorkingMonths(certificate.getWorkingMonths());
+        employmentInfo.setEmploymentStatus(certificate.getEmploymentStatus());
+        employmentInfo.setSalaryStartingDate(certificate.getSalaryStartingDate());
+        employmentInfo.setEstablishmentActivity(certificate.getEstablishmentActivity());
+        employmentInfo.setCommercialRegistrationNumber(certificate.getCommercialRegistrationNumber());
+        employmentInfo.setLegalEntity(certificate.getLegalEntity());
+        employmentInfo.setDateOfBirth(certificate.getDateOfBirth());
+        employmentInfo.setNationality(certificate.getNationality());
+        employmentInfo.setGosinumber(certificate.getGosinumber());
+
+        SalaryCertificateResponse.PrivateSector privateSector = new SalaryCertificateResponse.PrivateSector();
+        privateSector.setEmploymentStatusInfo(new SalaryCertificateResponse.EmploymentStatusInfo[]{employmentInfo});
+        SalaryCertificateResponse.SalaryCertificateData data = new SalaryCertificateResponse.SalaryCertificateData();
+        data.setPrivateSector(privateSector);
+        SalaryCertificateResponse response = new SalaryCertificateResponse();
+        response.setSuccess(true);
+        response.setMessage("Stored certificate from " + certificate.getCreatedAt());
+        response.setData(data);
+        return response;
+    }
+}
@@ -0,0 +1,63 @@
+package com.credit.messaging;
+
+import com.credit.config.RabbitMQConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps a customer to one of N customer event partitions
+ * Every event of a customer goes to the same partition queue, and each partition
+ * queue has a single active consumer, so events of one customer are consumed in
+ * the order they were published.
+ */
+@Component
+public class CustomerEventPartitioner {
+
+    private final int partitions;
+
+    public CustomerEventPartitioner(@Value("${messaging.partitions:4}") int partitions) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("messaging.partitions must be at least 1");
+        }
+        this.partitions = partitions;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public int partitionFor(Long customerId) {
+        if (customerId == null) {
+            return 0;
+        }
+        // Spread sequential ids evenly (murmur3 finalizer) before taking the modulus
+        long h = customerId;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) Math.floorMod(h, (long) partitions);
+    }
+
+    public String routingKeyFor(Long customerId) {
+        return routingKey(partitionFor(customerId));
+    }
+
+    public static String routingKey(int partition) {
+        return RabbitMQConfig.CUSTOMER_EVENT_ROUTING_KEY + "." + partition;
+    }
+
+    public static String queueName(int partition) {
+        return RabbitMQConfig.QUEUE_NAME + "." + partition;
+    }
+
+    /**
+     * All partition queue names, for the listener declaration
+     */
+    public String[] queueNames() {
+        String[] names = new String[partitions];
+        for (int i = 0; i < partitions; i++) {
+            names[i] = queueName(i);
+        }
+        return names;
+    }
+}
@@ -0,0 +1,235 @@
+package com.credit.messaging;
+
+import com.credit.model.CustomerEvent;
+import com.credit.model.FieldChange;
+import com.credit.model.OutboxMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Collapses update events of the same customer within one locked outbox batch
+ * A customer's trailing updates are held in the outbox while the newest of them is
+ * younger than the window, so a burst accumulates, but never once the oldest has
+ * waited for the max delay. Consecutive UPDATED / CREDIT_SCORE_UPDATED rows of a
+ * customer are merged into one event that is sent in place of the first of them: the
+ * delta keeps each field's first old value and last new value, and the newest event
+ * wins for id, sequence and snapshot.
+ * CREATED and DELETED rows are barriers: they are never held, they end the customer's
+ * merge and release the updates before them, so updates after them start a new one.
+ * A customer's events are therefore never reordered, and creates and deletes are never
+ * merged away. Every source row is still deleted by the relay and kept in the event log.
+ */
+@Slf4j
+public class EventCoalescer {
+
+    private final MessageConverter converter;
+    private final Duration window;
+    private final Duration maxDelay;
+    private final Counter received;
+    private final Counter emitted;
+    private final Counter held;
+
+    public EventCoalescer(MessageConverter converter, MeterRegistry meterRegistry, Duration window, Duration maxDelay) {
+        this.converter = converter;
+        this.window = window;
+        this.maxDelay = maxDelay;
+        this.received = meterRegistry.counter("messaging.coalescer.received");
+        this.emitted = meterRegistry.counter("messaging.coalescer.emitted");
+        this.held = meterRegistry.counter("messaging.coalescer.held");
+        Gauge.builder("messaging.coalescer.ratio", this, coalescer -> coalescer.emitted.count() == 0
+                        ? 1.0 : coalescer.received.count() / coalescer.emitted.count())
+                .description("Outbox rows relayed per message published")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Drop the rows that should stay in the outbox for a later run
+     * Those are a customer's updates after its last CREATED / DELETED in the batch, while the
+     * newest of them was written less than the window ago and the oldest less than the max
+     * delay ago. Nothing else of that customer follows them in the batch, so holding them
+     * never lets a later event of the customer overtake them.
+     *
+     * @param batch Outbox rows in id order
+     * @return The rows to publish and delete now, in id order
+     */
+    public List<OutboxMessage> due(List<OutboxMessage> batch, LocalDateTime now) {
+        // Customer id -> updates since the customer's last barrier
+        Map<Long, List<OutboxMessage>> trailing = new HashMap<>();
+        for (OutboxMessage row : batch) {
+            Long customerId = row.getAggregateId();
+            if (customerId == null) {
+                continue;
+            }
+            if (isUpdate(row)) {
+                trailing.computeIfAbsent(customerId, id -> new ArrayList<>()).add(row);
+            } else {
+                trailing.remove(customerId);
+            }
+        }
+
+        LocalDateTime quietSince = now.minus(window);
+        LocalDateTime waitingSince = now.minus(maxDelay);
+        Set<Long> heldIds = new HashSet<>();
+        for (List<OutboxMessage> run : trailing.values()) {
+            LocalDateTime oldest = run.get(0).getCreatedAt();
+            LocalDateTime newest = run.get(run.size() - 1).getCreatedAt();
+            if (oldest != null && newest != null
+                    && newest.isAfter(quietSince) && oldest.isAfter(waitingSince)) {
+                run.forEach(row -> heldIds.add(row.getId()));
+            }
+        }
+        if (heldIds.isEmpty()) {
+            return batch;
+        }
+        held.increment(heldIds.size());
+        return batch.stream()
+                .filter(row -> !heldIds.contains(row.getId()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @param batch Outbox rows in id order
+     * @return The messages to publish, in an order that keeps every customer's events in sequence
+     */
+    public List<OutboxMessage> coalesce(List<OutboxMessage> batch) {
+        List<List<OutboxMessage>> slots = new ArrayList<>(batch.size());
+        // Customer id -> slot of the updates that can still be merged
+        Map<Long, List<OutboxMessage>> open = new HashMap<>();
+        for (OutboxMessage row : batch) {
+            Long customerId = row.getAggregateId();
+            if (customerId != null && isUpdate(row)) {
+                List<OutboxMessage> slot = open.get(customerId);
+                if (slot != null) {
+                    slot.add(row);
+                    continue;
+                }
+                slot = new ArrayList<>();
+                slot.add(row);
+                open.put(customerId, slot);
+                slots.add(slot);
+            } else {
+                if (customerId != null) {
+                    open.remove(customerId);
+                }
+                List<OutboxMessage> slot = new ArrayList<>(1);
+                slot.add(row);
+                slots.add(slot);
+            }
+        }
+
+        List<OutboxMessage> messages = new ArrayList<>(slots.size());
+        for (List<OutboxMessage> slot : slots) {
+            if (slot.size() == 1) {
+                messages.add(slot.get(0));
+            } else {
+                messages.addAll(merge(slot));
+            }
+        }
+        received.increment(batch.size());
+        emitted.increment(messages.size());
+        return messages;
+    }
+
+    private List<OutboxMessage> merge(List<OutboxMessage> rows) {
+        try {
+            CustomerEvent merged = decode(rows.get(0));
+            for (int i = 1; i < rows.size(); i++) {
+                merged = merge(merged, decode(rows.get(i)));
+            }
+            return Collections.singletonList(encode(rows.get(rows.size() - 1), merged));
+        } catch (RuntimeException e) {
+            // Rows that cannot be merged are sent as they are, still in order
+            log.warn("Could not coalesce {} updates of customer {}: {}",
+                    rows.size(), rows.get(0).getAggregateId(), e.getMessage());
+            return rows;
+        }
+    }
+
+    /**
+     * The newer event wins for id, sequence, message and snapshot; deltas are combined
+     */
+    static CustomerEvent merge(CustomerEvent earlier, CustomerEvent newer) {
+        Map<String, FieldChange> changes = null;
+        if (earlier.getChanges() != null || newer.getChanges() != null) {
+            Map<String, FieldChange> merged = new LinkedHashMap<>();
+            if (earlier.getChanges() != null) {
+                merged.putAll(earlier.getChanges());
+            }
+            if (newer.getChanges() != null) {
+                newer.getChanges().forEach((field, change) -> {
+                    FieldChange first = merged.get(field);
+                    merged.put(field, new FieldChange(
+                            first != null ? first.getOldValue() : change.getOldValue(), change.getNewValue()));
+                });
+            }
+            changes = merged;
+        }
+        // A score change anywhere in the run keeps the merged event a CREDIT_SCORE_UPDATED
+        CustomerEvent.EventType type = earlier.getEventType() == CustomerEvent.EventType.CREDIT_SCORE_UPDATED
+                ? earlier.getEventType() : newer.getEventType();
+        return CustomerEvent.builder()
+                .eventId(newer.getEventId())
+                .sequence(newer.getSequence())
+                .eventType(type)
+                .customerId(newer.getCustomerId())
+                .timestamp(newer.getTimestamp())
+                .message(type == newer.getEventType() ? newer.getMessage() : earlier.getMessage())
+                .customer(newer.getCustomer() != null ? newer.getCustomer() : earlier.getCustomer())
+                .changes(changes)
+                .build();
+    }
+
+    private CustomerEvent decode(OutboxMessage row) {
+        return (CustomerEvent) converter.fromMessage(new Message(row.getPayload(), propertiesOf(row)));
+    }
+
+    /**
+     * Encode the merged event with the wire format of the newest row it replaces
+     */
+    private OutboxMessage encode(OutboxMessage newest, CustomerEvent event) {
+        Message message = converter.toMessage(event, propertiesOf(newest));
+        return OutboxMessage.builder()
+                .id(newest.getId())
+                .eventId(event.getEventId())
+                .aggregateId(newest.getAggregateId())
+                .eventType(event.getEventType().name())
+                .exchange(newest.getExchange())
+                .routingKey(newest.getRoutingKey())
+                .contentType(newest.getContentType())
+                .typeId(newest.getTypeId())
+                .payload(message.getBody())
+                .build();
+    }
+
+    private static MessageProperties propertiesOf(OutboxMessage row) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(row.getContentType());
+        if (row.getTypeId() != null) {
+            properties.setHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME, row.getTypeId());
+        }
+        return properties;
+    }
+
+    private static boolean isUpdate(OutboxMessage row) {
+        return CustomerEvent.EventType.UPDATED.name().equals(row.getEventType())
+                || CustomerEvent.EventType.CREDIT_SCORE_UPDATED.name().equals(row.getEventType());
+    }
+}
@@ -0,0 +1,126 @@
+package com.credit.messaging;
+
+import com.credit.model.CustomerEvent;
+import com.credit.repository.ProcessedEventRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Drops customer events that were already processed, by event id
+ * Ids are remembered in a bounded, time-windowed in-memory cache, so redeliveries
+ * within the window cost no database access. With messaging.dedup.persistent=true
+ * the ids are also written to processed_events and cache misses are checked there
+ * with one query per batch, which covers restarts and redeliveries to another replica.
+ * Events without an id (from producers that predate it) are always processed, and so
+ * are events the caller marks as deliberate re-sends, such as replays.
+ */
+@Component
+@Slf4j
+public class EventDeduplicator {
+
+    private final Cache<String, Boolean> processed;
+    private final ProcessedEventRepository processedEventRepository;
+    private final boolean persistent;
+    private final Duration window;
+    private final Counter duplicates;
+
+    public EventDeduplicator(ProcessedEventRepository processedEventRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${messaging.dedup.max-size:500000}") long maximumSize,
+                             @Value("${messaging.dedup.window:1h}") Duration window,
+                             @Value("${messaging.dedup.persistent:false}") boolean persistent) {
+        this.processed = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(window)
+                .build();
+        this.processedEventRepository = processedEventRepository;
+        this.persistent = persistent;
+        this.window = window;
+        this.duplicates = meterRegistry.counter("messaging.consumer.duplicates");
+    }
+
+    /**
+     * @return the events not processed yet, in their original order; repeats inside
+     * the batch are dropped as well
+     */
+    public List<CustomerEvent> filterUnprocessed(List<CustomerEvent> events) {
+        return filterUnprocessed(events, event -> false);
+    }
+
+    /**
+     * @param alwaysProcess Events to keep even if their id was processed before
+     * @return the events not processed yet plus the ones always processed, in their original order
+     */
+    public List<CustomerEvent> filterUnprocessed(List<CustomerEvent> events, Predicate<CustomerEvent> alwaysProcess) {
+        Set<String> seen = new HashSet<>();
+        List<CustomerEvent> candidates = new ArrayList<>(events.size());
+        for (CustomerEvent event : events) {
+            String eventId = event.getEventId();
+            if (eventId == null || alwaysProcess.test(event)) {
+                candidates.add(event);
+            } else if (processed.getIfPresent(eventId) == null && seen.add(eventId)) {
+                candidates.add(event);
+            }
+        }
+
+        Set<String> processedInStore = persistent ? processedEventRepository.findProcessed(seen) : Collections.emptySet();
+        List<CustomerEvent> fresh = candidates.stream()
+                .filter(event -> event.getEventId() == null || alwaysProcess.test(event)
+                        || !processedInStore.contains(event.getEventId()))
+                .collect(Collectors.toList());
+        processedInStore.forEach(eventId -> processed.put(eventId, Boolean.TRUE));
+
+        int dropped = events.size() - fresh.size();
+        if (dropped > 0) {
+            duplicates.increment(dropped);
+            log.debug("Dropped {} duplicate customer events", dropped);
+        }
+        return fresh;
+    }
+
+    /**
+     * Remember events once they were processed successfully
+     */
+    public void markProcessed(List<CustomerEvent> events) {
+        List<String> eventIds = events.stream()
+                .map(CustomerEvent::getEventId)
+                .filter(eventId -> eventId != null)
+                .collect(Collectors.toList());
+        if (eventIds.isEmpty()) {
+            return;
+        }
+        if (persistent) {
+            processedEventRepository.insertAll(eventIds);
+        }
+        eventIds.forEach(eventId -> processed.put(eventId, Boolean.TRUE));
+    }
+
+    /**
+     * Delete persisted ids older than the dedup window, a bounded chunk at a time
+     */
+    @Scheduled(fixedDelayString = "${messaging.dedup.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        if (!persistent) {
+            return;
+        }
+        int deleted;
+        do {
+            deleted = processedEventRepository.deleteOlderThanSeconds(window.getSeconds(), 10000);
+        } while (deleted == 10000);
+    }
+}
@@ -0,0 +1,160 @@
+package com.credit.messaging;
+
+import com.credit.model.CustomerEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * In-process event bus for subscribers running in the same JVM as the producer
+ * A preallocated ring buffer in the style of the LMAX disruptor: producers claim a
+ * sequence with one atomic increment and write the event object into its slot, a
+ * single dispatcher thread reads the slots in sequence order and calls the
+ * subscribers. No encoding, no broker round trip, and events reach subscribers in
+ * publish order. Producers publish from after-commit callbacks, which concurrent
+ * transactions run in no particular order, so publish order is not commit order.
+ * When the ring is full producers wait for the dispatcher.
+ * Delivery is at most once: a subscriber failure is only counted and events still
+ * in the ring are lost on shutdown or a crash, so subscribers must have a durable
+ * path (the broker) behind it. Disabled unless messaging.local-delivery.enabled=true.
+ */
+@Component
+@Slf4j
+public class LocalEventBus {
+
+    private static final int SPIN_TRIES = 100;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final boolean enabled;
+    private final int capacity;
+    private final int mask;
+    private final CustomerEvent[] events;
+    private final long[] publishedAt;
+    private final AtomicLongArray available;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final List<Consumer<CustomerEvent>> subscribers = new CopyOnWriteArrayList<>();
+    private final Timer latency;
+    private final Counter delivered;
+    private final Counter failed;
+
+    private volatile long consumed = -1;
+    private volatile boolean running;
+    private Thread dispatcher;
+
+    public LocalEventBus(MeterRegistry meterRegistry,
+                         @Value("${messaging.local-delivery.enabled:false}") boolean enabled,
+                         @Value("${messaging.local-delivery.ring-size:65536}") int ringSize) {
+        if (Integer.bitCount(ringSize) != 1) {
+            throw new IllegalArgumentException("messaging.local-delivery.ring-size must be a power of two");
+        }
+        this.enabled = enabled;
+        this.capacity = ringSize;
+        this.mask = ringSize - 1;
+        this.events = new CustomerEvent[ringSize];
+        this.publishedAt = new long[ringSize];
+        this.available = new AtomicLongArray(ringSize);
+        for (int i = 0; i < ringSize; i++) {
+            available.set(i, -1);
+        }
+        this.latency = Timer.builder("messaging.local.bus.latency")
+                .description("Time from publish to delivery on the local bus")
+                .register(meterRegistry);
+        this.delivered = meterRegistry.counter("messaging.local.bus.delivered");
+        this.failed = meterRegistry.counter("messaging.local.bus.failed");
+        Gauge.builder("messaging.local.bus.backlog", this, bus -> bus.claimed.get() - bus.consumed)
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void subscribe(Consumer<CustomerEvent> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        dispatcher = new Thread(this::dispatch, "local-event-bus");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (dispatcher != null) {
+            dispatcher.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    public void publish(List<CustomerEvent> batch) {
+        batch.forEach(this::publish);
+    }
+
+    public void publish(CustomerEvent event) {
+        if (!running) {
+            return;
+        }
+        long sequence = claimed.incrementAndGet();
+        // Wait while the slot still holds an event the dispatcher has not read
+        while (sequence - consumed > capacity) {
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+        int index = (int) (sequence & mask);
+        events[index] = event;
+        publishedAt[index] = System.nanoTime();
+        // Ordered write publishes the slot contents to the dispatcher
+        available.lazySet(index, sequence);
+    }
+
+    private void dispatch() {
+        int idle = 0;
+        while (running || consumed < claimed.get()) {
+            long next = consumed + 1;
+            int index = (int) (next & mask);
+            if (available.get(index) != next) {
+                // Spin briefly for low latency, then back off so an idle bus costs no CPU
+                if (++idle < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+                continue;
+            }
+            idle = 0;
+            CustomerEvent event = events[index];
+            long start = publishedAt[index];
+            events[index] = null;
+            consumed = next;
+            latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            for (Consumer<CustomerEvent> subscriber : subscribers) {
+                try {
+                    subscriber.accept(event);
+                    delivered.increment();
+                } catch (RuntimeException e) {
+                    failed.increment();
+                    log.error("Local subscriber failed for customer event {}", event.getEventId(), e);
+                }
+            }
+        }
+    }
+}
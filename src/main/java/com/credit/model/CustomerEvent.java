@@ -1,7 +1,6 @@
 package com.credit.model;
 
 import com.credit.entity.CustomerEntity;
-import com.fasterxml.jackson.annotation.JsonIdentityReference;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -10,8 +9,8 @@ import lombok.NoArgsConstructor;
 import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 /**
  * Represents an event related to a customer
@@ -25,6 +24,12 @@ public class CustomerEvent implements Serializable {
     private static final long serialVersionUID = 1L;
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ISO_DATE_TIME;
     
+    // Unique id of this event, stable across redeliveries; consumers deduplicate on it
+    private String eventId;
+    
+    // Monotonic sequence assigned by the producing replica
+    private Long sequence;
+    
     // Type of event (e.g., CREATED, UPDATED, DELETED)
     private EventType eventType;
     
@@ -37,8 +42,11 @@ public class CustomerEvent implements Serializable {
     // Any additional information about the event
     private String message;
     
-    // Basic customer details for the event instead of full customer object
-    private Map<String, Object> customerDetails;
+    // Customer state at the time of the event (not set for deletes and delta events)
+    private CustomerSnapshot customer;
+    
+    // Only the fields that changed, for delta update events
+    private Map<String, FieldChange> changes;
     
     /**
      * Event types for customer-related events
@@ -54,14 +62,13 @@ public class CustomerEvent implements Serializable {
      * Create a new customer created event
      */
     public static CustomerEvent customerCreated(CustomerEntity customer) {
-        Map<String, Object> details = extractCustomerDetails(customer);
-        
         return CustomerEvent.builder()
+                .eventId(UUID.randomUUID().toString())
                 .eventType(EventType.CREATED)
                 .customerId(customer.getId())
                 .timestamp(LocalDateTime.now().format(FORMATTER))
                 .message("Customer created")
-                .customerDetails(details)
+                .customer(CustomerSnapshot.from(customer))
                 .build();
     }
     
@@ -69,14 +76,13 @@ public class CustomerEvent implements Serializable {
      * Create a new customer updated event
      */
     public static CustomerEvent customerUpdated(CustomerEntity customer) {
-        Map<String, Object> details = extractCustomerDetails(customer);
-        
         return CustomerEvent.builder()
+                .eventId(UUID.randomUUID().toString())
                 .eventType(EventType.UPDATED)
                 .customerId(customer.getId())
                 .timestamp(LocalDateTime.now().format(FORMATTER))
                 .message("Customer updated")
-                .customerDetails(details)
+                .customer(CustomerSnapshot.from(customer))
                 .build();
     }
     
@@ -85,25 +91,11 @@ public class CustomerEvent implements Serializable {
      */
     public static CustomerEvent customerDeleted(Long customerId) {
         return CustomerEvent.builder()
+                .eventId(UUID.randomUUID().toString())
                 .eventType(EventType.DELETED)
                 .customerId(customerId)
                 .timestamp(LocalDateTime.now().format(FORMATTER))
                 .message("Customer deleted")
                 .build();
     }
-    
-    /**
-     * Extract basic customer details to avoid serialization issues
-     */
-    private static Map<String, Object> extractCustomerDetails(CustomerEntity customer) {
-        Map<String, Object> details = new HashMap<>();
-        details.put("id", customer.getId());
-        details.put("firstName", customer.getFirstName());
-        details.put("lastName", customer.getLastName());
-        details.put("email", customer.getEmail());
-        details.put("creditScore", customer.getCreditScore());
-        details.put("annualSalary", customer.getAnnualSalary());
-        details.put("creditRiskScore", customer.getCreditRiskScore());
-        return details;
-    }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,45 @@
+package com.credit.model;
+
+import com.credit.entity.CustomerEntity;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Customer state carried on customer events
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CustomerSnapshot implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private Long id;
+    private String firstName;
+    private String lastName;
+    private String email;
+    private Integer creditScore;
+    private Double annualSalary;
+    private Double creditRiskScore;
+    private String creditRiskModelVersion;
+    private boolean highValue;
+
+    public static CustomerSnapshot from(CustomerEntity entity) {
+        return CustomerSnapshot.builder()
+                .id(entity.getId())
+                .firstName(entity.getFirstName())
+                .lastName(entity.getLastName())
+                .email(entity.getEmail())
+                .creditScore(entity.getCreditScore())
+                .annualSalary(entity.getAnnualSalary())
+                .creditRiskScore(entity.getCreditRiskScore())
+                .creditRiskModelVersion(entity.getCreditRiskModelVersion())
+                .highValue(entity.getCreditScore() != null && entity.getAnnualSalary() != null
+                        && entity.getCreditScore() >= 750 && entity.getAnnualSalary() >= 100000)
+                .build();
+    }
+}
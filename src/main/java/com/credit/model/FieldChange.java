@@ -0,0 +1,37 @@
+package com.credit.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Old and new value of a single field in a delta event
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FieldChange implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private Object oldValue;
+    private Object newValue;
+
+    /**
+     * Compare two field -> value maps and keep only the fields whose value changed
+     */
+    public static Map<String, FieldChange> diff(Map<String, Object> before, Map<String, Object> after) {
+        Map<String, FieldChange> changes = new LinkedHashMap<>();
+        after.forEach((field, newValue) -> {
+            Object oldValue = before.get(field);
+            if (!Objects.equals(oldValue, newValue)) {
+                changes.put(field, new FieldChange(oldValue, newValue));
+            }
+        });
+        return changes;
+    }
+}
@@ -0,0 +1,34 @@
+package com.credit.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A message waiting in the transactional outbox
+ * The payload is stored already encoded by the AMQP message converter,
+ * so the relay can send it as-is without deserializing it again
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxMessage {
+
+    private Long id;
+    // Only stored in the customer event log
+    private String eventId;
+    private Long aggregateId;
+    private String eventType;
+    private String exchange;
+    private String routingKey;
+    private String contentType;
+    // Value of the __TypeId__ header used by the Jackson message converter
+    private String typeId;
+    private byte[] payload;
+    // Set on rows read back by the relay
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,34 @@
+package com.credit.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Checkpoint of a credit risk rescoring job
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RescoringJob {
+
+    public enum State {
+        RUNNING, COMPLETED, CANCELLED, FAILED
+    }
+
+    private Long id;
+    private String modelVersion;
+    private State state;
+    private long fromId;
+    private long toId;
+    // Every customer with an id up to here has been rescored
+    private long lastId;
+    private long rowsRescored;
+    private String error;
+    private LocalDateTime startedAt;
+    private LocalDateTime updatedAt;
+}
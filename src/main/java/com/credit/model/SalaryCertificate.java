@@ -38,6 +38,13 @@ public class SalaryCertificate implements Serializable {
     private String nationality;
     private String gosinumber;
 
+    // Enquiry key the certificate was fetched with
+    @Column(name = "national_id")
+    private String nationalId;
+
+    @Column(name = "enquiry_date_of_birth")
+    private String enquiryDateOfBirth;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
@@ -0,0 +1,89 @@
+package com.credit.repository;
+
+import com.credit.model.OutboxMessage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * JDBC access to the append-only customer_event_log table
+ * Rows are only ever inserted; replays read them back in id order
+ * Each row is assigned one of PARTITIONS fixed replay partitions by customer, indexed
+ * with its id, so a replay worker reads its share of the log with index range scans.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CustomerEventLogRepository {
+
+    // Fixed by the V13 backfill; changing it requires re-partitioning the log
+    public static final int PARTITIONS = 64;
+
+    private static final RowMapper<OutboxMessage> ROW_MAPPER = (rs, rowNum) -> OutboxMessage.builder()
+            .id(rs.getLong("id"))
+            .eventId(rs.getString("event_id"))
+            .aggregateId(rs.getObject("aggregate_id", Long.class))
+            .eventType(rs.getString("event_type"))
+            .contentType(rs.getString("content_type"))
+            .typeId(rs.getString("type_id"))
+            .payload(rs.getBytes("payload"))
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insertAll(List<OutboxMessage> messages) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO customer_event_log (event_id, aggregate_id, log_partition, event_type, content_type, " +
+                "type_id, payload) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                messages.stream()
+                        .map(message -> new Object[]{
+                                message.getEventId(), message.getAggregateId(), partitionOf(message.getAggregateId()),
+                                message.getEventType(), message.getContentType(), message.getTypeId(),
+                                message.getPayload()})
+                        .collect(Collectors.toList()));
+    }
+
+    /**
+     * @return the id of the first event logged at or after the time, or null if there is none
+     */
+    public Long findFirstIdFrom(LocalDateTime from) {
+        return jdbcTemplate.queryForObject(
+                "SELECT MIN(id) FROM customer_event_log WHERE created_at >= ?", Long.class, Timestamp.valueOf(from));
+    }
+
+    /**
+     * @return the id of the last event logged before the time, or null if there is none
+     */
+    public Long findLastIdBefore(LocalDateTime to) {
+        return jdbcTemplate.queryForObject(
+                "SELECT MAX(id) FROM customer_event_log WHERE created_at < ?", Long.class, Timestamp.valueOf(to));
+    }
+
+    public Long findLastId() {
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM customer_event_log", Long.class);
+    }
+
+    /**
+     * Read the next page of one replay partition within an id range
+     * All events of a customer are in the same partition, so reading a partition in id
+     * order replays each customer's events in their original order. Keyset paging on
+     * (log_partition, id) keeps every page an index range scan and no connection is
+     * held while the page is being published.
+     */
+    public List<OutboxMessage> findPage(int partition, long afterId, long toId, int limit) {
+        return jdbcTemplate.query(
+                "SELECT id, event_id, aggregate_id, event_type, content_type, type_id, payload " +
+                "FROM customer_event_log WHERE log_partition = ? AND id > ? AND id <= ? " +
+                "ORDER BY id LIMIT ?",
+                ROW_MAPPER, partition, afterId, toId, limit);
+    }
+
+    public static int partitionOf(Long aggregateId) {
+        return aggregateId == null ? 0 : (int) Math.floorMod(aggregateId, (long) PARTITIONS);
+    }
+}
@@ -1,18 +1,48 @@
 package com.credit.repository;
 
+import com.credit.dto.CustomerDTO;
 import com.credit.entity.CustomerEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
-public interface CustomerRepository extends JpaRepository<CustomerEntity, Long> {
+public interface CustomerRepository extends JpaRepository<CustomerEntity, Long>, CustomerRepositoryCustom {
+    
+    // Constructor expression used by the read-only projections below
+    // Selecting straight into the DTO skips entity hydration, dirty-checking snapshots and the mapper
+    String DTO_PROJECTION = "SELECT new com.credit.dto.CustomerDTO(" +
+            "c.id, c.firstName, c.lastName, c.email, c.phoneNumber, " +
+            "c.creditScore, c.annualSalary, c.creditRiskScore, c.creditRiskModelVersion) ";
     
     boolean existsByEmail(String email);
     
+    /**
+     * Set-based duplicate check for bulk creation - one query per chunk instead of one per row
+     */
+    @Query("SELECT c.email FROM CustomerEntity c WHERE c.email IN :emails")
+    Set<String> findExistingEmails(@Param("emails") Collection<String> emails);
+    
+    @Query("SELECT c.id FROM CustomerEntity c WHERE c.id IN :ids")
+    Set<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+    
     // Dynamic filtering methods for better query capabilities
     List<CustomerEntity> findByFirstNameContainingIgnoreCase(String firstName);
     
@@ -22,19 +52,78 @@ public interface CustomerRepository extends JpaRepository<CustomerEntity, Long>
     
     List<CustomerEntity> findByAnnualSalaryBetween(Double minSalary, Double maxSalary);
     
-    @Query("SELECT c FROM CustomerEntity c WHERE " +
-           "(:firstName IS NULL OR LOWER(c.firstName) LIKE LOWER(CONCAT('%', :firstName, '%'))) AND " +
-           "(:lastName IS NULL OR LOWER(c.lastName) LIKE LOWER(CONCAT('%', :lastName, '%'))) AND " +
-           "(:minCreditScore IS NULL OR c.creditScore >= :minCreditScore) AND " +
-           "(:maxCreditScore IS NULL OR c.creditScore <= :maxCreditScore) AND " +
-           "(:minSalary IS NULL OR c.annualSalary >= :minSalary) AND " +
-           "(:maxSalary IS NULL OR c.annualSalary <= :maxSalary)")
-    List<CustomerEntity> findCustomersWithFilters(
-            @Param("firstName") String firstName,
-            @Param("lastName") String lastName,
-            @Param("minCreditScore") Integer minCreditScore,
-            @Param("maxCreditScore") Integer maxCreditScore,
-            @Param("minSalary") Double minSalary,
-            @Param("maxSalary") Double maxSalary
-    );
+    /**
+     * Keyset pagination - seeks straight to the cursor on the primary key,
+     * so the cost of a page does not depend on how deep it is
+     */
+    @Query(DTO_PROJECTION + "FROM CustomerEntity c WHERE c.id > :afterId ORDER BY c.id")
+    List<CustomerDTO> findPageAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    /**
+     * Load a customer for a write, holding its row lock until the transaction ends
+     * Concurrent writers of the same customer queue here, so each one's outbox row is
+     * inserted after the previous writer committed and outbox ids follow commit order
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM CustomerEntity c WHERE c.id = :id")
+    Optional<CustomerEntity> findByIdForUpdate(@Param("id") Long id);
+    
+    /**
+     * Cache-miss loader for a single customer; opens its own short read-only transaction
+     */
+    @Transactional(readOnly = true)
+    @Query(DTO_PROJECTION + "FROM CustomerEntity c WHERE c.id = :id")
+    Optional<CustomerDTO> findDtoById(@Param("id") Long id);
+    
+    /**
+     * Forward-only cursor over the whole table for exports
+     * A fetch size of Integer.MIN_VALUE makes MySQL Connector/J stream rows one by one
+     * instead of buffering the full result set. Must be consumed inside a transaction.
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HINT_CACHEABLE, value = "false"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query(DTO_PROJECTION + "FROM CustomerEntity c ORDER BY c.id")
+    Stream<CustomerDTO> streamAll();
+    
+    /**
+     * Prefix name search - one range scan on each of the first_name / last_name indexes
+     * An OR across the two columns with ORDER BY id tends to be planned as a primary key
+     * scan, so each column is searched on its own index (at most :limit rows each) and the
+     * two id lists are merged. The pattern must already be escaped with '!' and end with '%'.
+     */
+    @Query(value = "SELECT c.* FROM customers c JOIN (" +
+                   "(SELECT id FROM customers FORCE INDEX (idx_customers_first_name) " +
+                   "WHERE first_name LIKE :pattern ESCAPE '!' AND id > :afterId ORDER BY id LIMIT :limit) " +
+                   "UNION " +
+                   "(SELECT id FROM customers FORCE INDEX (idx_customers_last_name) " +
+                   "WHERE last_name LIKE :pattern ESCAPE '!' AND id > :afterId ORDER BY id LIMIT :limit)" +
+                   ") matches ON matches.id = c.id ORDER BY c.id LIMIT :limit",
+           nativeQuery = true)
+    List<CustomerEntity> searchByNamePrefix(@Param("pattern") String pattern,
+                                            @Param("afterId") Long afterId,
+                                            @Param("limit") int limit);
+    
+    /**
+     * Token name search on the ngram full-text index (boolean mode)
+     */
+    @Query(value = "SELECT * FROM customers WHERE " +
+                   "MATCH(first_name, last_name) AGAINST (:query IN BOOLEAN MODE) AND id > :afterId " +
+                   "ORDER BY id LIMIT :limit",
+           nativeQuery = true)
+    List<CustomerEntity> searchByNameTokens(@Param("query") String query,
+                                            @Param("afterId") Long afterId,
+                                            @Param("limit") int limit);
+    
+    /**
+     * Fuzzy name search on the ngram full-text index
+     * Natural language mode ranks rows by shared grams, so typos still match; results come best first
+     */
+    @Query(value = "SELECT * FROM customers WHERE " +
+                   "MATCH(first_name, last_name) AGAINST (:query IN NATURAL LANGUAGE MODE) " +
+                   "LIMIT :limit",
+           nativeQuery = true)
+    List<CustomerEntity> searchByNameFuzzy(@Param("query") String query, @Param("limit") int limit);
 } 
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.credit.repository;
+
+import com.credit.dto.CustomerDTO;
+import com.credit.entity.CustomerEntity;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * Custom query methods that Spring Data cannot derive
+ */
+public interface CustomerRepositoryCustom {
+
+    /**
+     * Run a Specification ordered by id with a row limit and no count query
+     * (JpaSpecificationExecutor only offers Page results, which always issue a COUNT).
+     * Rows are projected straight into CustomerDTO without hydrating entities.
+     */
+    List<CustomerDTO> findPage(Specification<CustomerEntity> specification, int limit);
+}
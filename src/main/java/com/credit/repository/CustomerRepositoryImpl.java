@@ -0,0 +1,45 @@
+package com.credit.repository;
+
+import com.credit.dto.CustomerDTO;
+import com.credit.entity.CustomerEntity;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.List;
+
+/**
+ * Criteria API implementation of {@link CustomerRepositoryCustom}
+ */
+public class CustomerRepositoryImpl implements CustomerRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<CustomerDTO> findPage(Specification<CustomerEntity> specification, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<CustomerDTO> query = cb.createQuery(CustomerDTO.class);
+        Root<CustomerEntity> root = query.from(CustomerEntity.class);
+
+        if (specification != null) {
+            Predicate predicate = specification.toPredicate(root, query, cb);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+        query.select(cb.construct(CustomerDTO.class,
+                        root.get("id"), root.get("firstName"), root.get("lastName"), root.get("email"),
+                        root.get("phoneNumber"), root.get("creditScore"), root.get("annualSalary"),
+                        root.get("creditRiskScore"), root.get("creditRiskModelVersion")))
+                .orderBy(cb.asc(root.get("id")));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
@@ -0,0 +1,90 @@
+package com.credit.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Set-based JDBC access to customer scoring columns for background rescoring
+ * Rows are read into caller-owned primitive arrays and written back as JDBC batches,
+ * so a chunk costs one SELECT and one batched UPDATE without loading entities
+ */
+@Repository
+@RequiredArgsConstructor
+public class CustomerScoringRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return {min id, max id} of the customers table, or null when it is empty
+     */
+    public long[] findIdBounds() {
+        return jdbcTemplate.query("SELECT MIN(id), MAX(id) FROM customers", rs -> {
+            rs.next();
+            long min = rs.getLong(1);
+            return rs.wasNull() ? null : new long[]{min, rs.getLong(2)};
+        });
+    }
+
+    /**
+     * Read the scoring inputs of customers with ids in [fromId, toId] that were not
+     * scored with the given model version yet, together with their current score and
+     * version (NaN and null when they were never scored)
+     *
+     * @return the number of rows written to the arrays
+     */
+    public int findScoringInputs(long fromId, long toId, String modelVersion,
+                                 long[] ids, int[] creditScores, double[] annualSalaries,
+                                 double[] previousRiskScores, String[] previousVersions) {
+        int[] count = {0};
+        jdbcTemplate.query(
+                "SELECT id, credit_score, annual_salary, credit_risk_score, credit_risk_model_version " +
+                "FROM customers " +
+                "WHERE id BETWEEN ? AND ? AND credit_score IS NOT NULL " +
+                "AND (credit_risk_model_version IS NULL OR credit_risk_model_version <> ?) ORDER BY id",
+                rs -> {
+                    int i = count[0]++;
+                    ids[i] = rs.getLong(1);
+                    creditScores[i] = rs.getInt(2);
+                    annualSalaries[i] = rs.getDouble(3);
+                    double previousRiskScore = rs.getDouble(4);
+                    previousRiskScores[i] = rs.wasNull() ? Double.NaN : previousRiskScore;
+                    previousVersions[i] = rs.getString(5);
+                },
+                fromId, toId, modelVersion);
+        return count[0];
+    }
+
+    /**
+     * Write back the first length scores as one JDBC batch
+     * A row is only updated if its inputs still match what was scored, so a concurrent
+     * update through the API (which scores with the active model itself) is never overwritten
+     *
+     * @return the update count of each row, 0 for rows skipped because they changed meanwhile
+     */
+    public int[] updateScores(long[] ids, int[] creditScores, double[] annualSalaries, double[] riskScores,
+                             String modelVersion, int length) {
+        return jdbcTemplate.batchUpdate(
+                "UPDATE customers SET credit_risk_score = ?, credit_risk_model_version = ? " +
+                "WHERE id = ? AND credit_score = ? AND annual_salary = ?",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement statement, int i) throws SQLException {
+                        statement.setDouble(1, riskScores[i]);
+                        statement.setString(2, modelVersion);
+                        statement.setLong(3, ids[i]);
+                        statement.setInt(4, creditScores[i]);
+                        statement.setDouble(5, annualSalaries[i]);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return length;
+                    }
+                });
+    }
+}
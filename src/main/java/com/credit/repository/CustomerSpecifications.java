@@ -0,0 +1,90 @@
+package com.credit.repository;
+
+import com.credit.entity.CustomerEntity;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Specifications for dynamic customer filtering
+ * Only the predicates that are actually supplied end up in the SQL, so MySQL can pick
+ * a range plan per filter combination instead of one generic "(:p IS NULL OR ...)" plan
+ */
+public final class CustomerSpecifications {
+
+    // Escape character for LIKE patterns; '\' would need double escaping in MySQL literals
+    public static final char LIKE_ESCAPE = '!';
+
+    private CustomerSpecifications() {
+    }
+
+    /**
+     * Combine the supplied filters with AND, skipping every null argument
+     */
+    public static Specification<CustomerEntity> withFilters(String firstName, String lastName,
+                                                            Integer minCreditScore, Integer maxCreditScore,
+                                                            Double minSalary, Double maxSalary) {
+        Specification<CustomerEntity> specification = Specification.where(null);
+        if (firstName != null) {
+            specification = specification.and(firstNameStartsWith(firstName));
+        }
+        if (lastName != null) {
+            specification = specification.and(lastNameStartsWith(lastName));
+        }
+        if (minCreditScore != null) {
+            specification = specification.and(creditScoreAtLeast(minCreditScore));
+        }
+        if (maxCreditScore != null) {
+            specification = specification.and(creditScoreAtMost(maxCreditScore));
+        }
+        if (minSalary != null) {
+            specification = specification.and(annualSalaryAtLeast(minSalary));
+        }
+        if (maxSalary != null) {
+            specification = specification.and(annualSalaryAtMost(maxSalary));
+        }
+        return specification;
+    }
+
+    public static Specification<CustomerEntity> firstNameStartsWith(String prefix) {
+        return (root, query, cb) -> cb.like(root.get("firstName"), escapeLike(prefix) + "%", LIKE_ESCAPE);
+    }
+
+    public static Specification<CustomerEntity> lastNameStartsWith(String prefix) {
+        return (root, query, cb) -> cb.like(root.get("lastName"), escapeLike(prefix) + "%", LIKE_ESCAPE);
+    }
+
+    public static Specification<CustomerEntity> creditScoreAtLeast(Integer minCreditScore) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("creditScore"), minCreditScore);
+    }
+
+    public static Specification<CustomerEntity> creditScoreAtMost(Integer maxCreditScore) {
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("creditScore"), maxCreditScore);
+    }
+
+    public static Specification<CustomerEntity> annualSalaryAtLeast(Double minSalary) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("annualSalary"), minSalary);
+    }
+
+    public static Specification<CustomerEntity> annualSalaryAtMost(Double maxSalary) {
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("annualSalary"), maxSalary);
+    }
+
+    /**
+     * Keyset cursor - rows strictly after the last id of the previous page
+     */
+    public static Specification<CustomerEntity> idGreaterThan(Long afterId) {
+        return (root, query, cb) -> cb.greaterThan(root.get("id"), afterId);
+    }
+
+    /**
+     * Escape LIKE wildcards so user input is matched literally
+     */
+    public static String escapeLike(String value) {
+        if (value == null) {
+            return null;
+        }
+        String escape = String.valueOf(LIKE_ESCAPE);
+        return value.replace(escape, escape + escape)
+                .replace("%", escape + "%")
+                .replace("_", escape + "_");
+    }
+}
@@ -0,0 +1,78 @@
+package com.credit.repository;
+
+import com.credit.model.OutboxMessage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * JDBC access to the outbox_events table
+ * Plain JDBC keeps outbox inserts batchable (the table uses AUTO_INCREMENT ids)
+ * and gives the relay row locks it can skip instead of waiting on
+ */
+@Repository
+@RequiredArgsConstructor
+public class OutboxRepository {
+
+    private static final RowMapper<OutboxMessage> ROW_MAPPER = (rs, rowNum) -> OutboxMessage.builder()
+            .id(rs.getLong("id"))
+            .aggregateId(rs.getObject("aggregate_id", Long.class))
+            .eventType(rs.getString("event_type"))
+            .exchange(rs.getString("exchange_name"))
+            .routingKey(rs.getString("routing_key"))
+            .contentType(rs.getString("content_type"))
+            .typeId(rs.getString("type_id"))
+            .payload(rs.getBytes("payload"))
+            .createdAt(rs.getObject("created_at", LocalDateTime.class))
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insertAll(List<OutboxMessage> messages) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO outbox_events (aggregate_id, event_type, exchange_name, routing_key, " +
+                "content_type, type_id, payload) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                messages.stream()
+                        .map(message -> new Object[]{
+                                message.getAggregateId(), message.getEventType(), message.getExchange(),
+                                message.getRoutingKey(), message.getContentType(), message.getTypeId(),
+                                message.getPayload()})
+                        .collect(Collectors.toList()));
+    }
+
+    /**
+     * Try to become the active relay until the current transaction ends
+     * Returns false straight away when another replica holds the lock. Must run in a transaction.
+     */
+    public boolean tryLockRelay() {
+        return !jdbcTemplate.queryForList(
+                "SELECT id FROM outbox_relay_lock WHERE id = 1 FOR UPDATE SKIP LOCKED", Integer.class).isEmpty();
+    }
+
+    /**
+     * Lock the oldest pending messages
+     * Only call this while holding the relay lock: draining batches in parallel would let
+     * a later batch be confirmed before an earlier one and reorder a customer's events.
+     * Must run in a transaction.
+     */
+    public List<OutboxMessage> lockNextBatch(int limit) {
+        return jdbcTemplate.query(
+                "SELECT id, aggregate_id, event_type, exchange_name, routing_key, content_type, type_id, payload, " +
+                "created_at FROM outbox_events ORDER BY id LIMIT ? FOR UPDATE",
+                ROW_MAPPER, limit);
+    }
+
+    public int deleteByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        return jdbcTemplate.update("DELETE FROM outbox_events WHERE id IN (" + placeholders + ")", ids.toArray());
+    }
+}
@@ -0,0 +1,45 @@
+package com.credit.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * JDBC access to the processed_events table backing consumer deduplication
+ * Lookups and inserts are set-based so a whole batch costs one round trip each
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProcessedEventRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public Set<String> findProcessed(Collection<String> eventIds) {
+        if (eventIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+        String placeholders = String.join(",", Collections.nCopies(eventIds.size(), "?"));
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT event_id FROM processed_events WHERE event_id IN (" + placeholders + ")",
+                String.class, eventIds.toArray()));
+    }
+
+    public void insertAll(List<String> eventIds) {
+        // IGNORE: another consumer may have recorded the same redelivered event
+        jdbcTemplate.batchUpdate("INSERT IGNORE INTO processed_events (event_id) VALUES (?)",
+                eventIds.stream().map(eventId -> new Object[]{eventId}).collect(Collectors.toList()));
+    }
+
+    public int deleteOlderThanSeconds(long seconds, int limit) {
+        return jdbcTemplate.update(
+                "DELETE FROM processed_events WHERE processed_at < NOW(6) - INTERVAL ? SECOND LIMIT ?",
+                seconds, limit);
+    }
+}
@@ -0,0 +1,125 @@
+package com.credit.repository;
+
+import com.credit.model.RescoringJob;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * JDBC access to the rescoring_jobs checkpoint table
+ */
+@Repository
+@RequiredArgsConstructor
+public class RescoringJobRepository {
+
+    private static final String COLUMNS =
+            "id, model_version, state, from_id, to_id, last_id, rows_rescored, error, started_at, updated_at";
+
+    private static final RowMapper<RescoringJob> ROW_MAPPER = (rs, rowNum) -> RescoringJob.builder()
+            .id(rs.getLong("id"))
+            .modelVersion(rs.getString("model_version"))
+            .state(RescoringJob.State.valueOf(rs.getString("state")))
+            .fromId(rs.getLong("from_id"))
+            .toId(rs.getLong("to_id"))
+            .lastId(rs.getLong("last_id"))
+            .rowsRescored(rs.getLong("rows_rescored"))
+            .error(rs.getString("error"))
+            .startedAt(rs.getTimestamp("started_at").toLocalDateTime())
+            .updatedAt(rs.getTimestamp("updated_at").toLocalDateTime())
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @throws org.springframework.dao.DuplicateKeyException if the model version already has
+     * an unfinished job, e.g. one another replica inserted a moment ago
+     */
+    public long insert(RescoringJob job) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO rescoring_jobs (model_version, state, from_id, to_id, last_id) VALUES (?, ?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS);
+            statement.setString(1, job.getModelVersion());
+            statement.setString(2, job.getState().name());
+            statement.setLong(3, job.getFromId());
+            statement.setLong(4, job.getToId());
+            statement.setLong(5, job.getLastId());
+            return statement;
+        }, keyHolder);
+        return keyHolder.getKey().longValue();
+    }
+
+    public Optional<RescoringJob> findById(long id) {
+        List<RescoringJob> jobs = jdbcTemplate.query(
+                "SELECT " + COLUMNS + " FROM rescoring_jobs WHERE id = ?", ROW_MAPPER, id);
+        return jobs.stream().findFirst();
+    }
+
+    public Optional<RescoringJob> findLatest() {
+        List<RescoringJob> jobs = jdbcTemplate.query(
+                "SELECT " + COLUMNS + " FROM rescoring_jobs ORDER BY id DESC LIMIT 1", ROW_MAPPER);
+        return jobs.stream().findFirst();
+    }
+
+    /**
+     * The most recent job for the model version that did not complete, if any
+     */
+    public Optional<RescoringJob> findLatestUnfinished(String modelVersion) {
+        List<RescoringJob> jobs = jdbcTemplate.query(
+                "SELECT " + COLUMNS + " FROM rescoring_jobs WHERE model_version = ? AND state <> ? " +
+                "ORDER BY id DESC LIMIT 1",
+                ROW_MAPPER, modelVersion, RescoringJob.State.COMPLETED.name());
+        return jobs.stream().findFirst();
+    }
+
+    /**
+     * Atomically take over an unfinished job
+     * Succeeds unless the job completed or is RUNNING with a heartbeat newer than staleAfter,
+     * so of several replicas claiming the same job only one gets it.
+     *
+     * @return whether this caller now runs the job
+     */
+    public boolean claim(long id, Duration staleAfter) {
+        return jdbcTemplate.update(
+                "UPDATE rescoring_jobs SET state = ?, error = NULL, updated_at = CURRENT_TIMESTAMP(6) " +
+                "WHERE id = ? AND state <> ? " +
+                "AND (state <> ? OR updated_at < CURRENT_TIMESTAMP(6) - INTERVAL ? MICROSECOND)",
+                RescoringJob.State.RUNNING.name(), id, RescoringJob.State.COMPLETED.name(),
+                RescoringJob.State.RUNNING.name(), staleAfter.toNanos() / 1000) == 1;
+    }
+
+    /**
+     * Record progress; also serves as a heartbeat of a running job
+     */
+    public void checkpoint(long id, long lastId, long rowsRescored) {
+        jdbcTemplate.update(
+                "UPDATE rescoring_jobs SET last_id = ?, rows_rescored = ?, updated_at = CURRENT_TIMESTAMP(6) " +
+                "WHERE id = ?",
+                lastId, rowsRescored, id);
+    }
+
+    /**
+     * Tell other replicas the job is still alive while a wave has not reached its checkpoint
+     */
+    public void heartbeat(long id) {
+        jdbcTemplate.update(
+                "UPDATE rescoring_jobs SET updated_at = CURRENT_TIMESTAMP(6) WHERE id = ? AND state = ?",
+                id, RescoringJob.State.RUNNING.name());
+    }
+
+    public void updateState(long id, RescoringJob.State state, String error) {
+        jdbcTemplate.update(
+                "UPDATE rescoring_jobs SET state = ?, error = ?, updated_at = CURRENT_TIMESTAMP(6) WHERE id = ?",
+                state.name(), error, id);
+    }
+}
@@ -0,0 +1,46 @@
+package com.credit.repository;
+
+import com.credit.model.SalaryCertificate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * JDBC batch inserts of salary certificates
+ * The entity uses IDENTITY ids, which stops Hibernate from batching inserts; this
+ * writes a whole batch as one multi-row INSERT (rewriteBatchedStatements=true).
+ */
+@Repository
+@RequiredArgsConstructor
+public class SalaryCertificateBatchRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insertAll(List<SalaryCertificate> certificates) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO salary_certificates (full_name, basic_wage, housing_allowance, other_allowance, " +
+                "full_wage, employer_name, date_of_joining, working_months, employment_status, " +
+                "salary_starting_date, establishment_activity, commercial_registration_number, legal_entity, " +
+                "date_of_birth, nationality, gosinumber, national_id, enquiry_date_of_birth, created_at, customer_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                certificates.stream()
+                        .map(certificate -> new Object[]{
+                                certificate.getFullName(), certificate.getBasicWage(),
+                                certificate.getHousingAllowance(), certificate.getOtherAllowance(),
+                                certificate.getFullWage(), certificate.getEmployerName(),
+                                certificate.getDateOfJoining(), certificate.getWorkingMonths(),
+                                certificate.getEmploymentStatus(), certificate.getSalaryStartingDate(),
+                                certificate.getEstablishmentActivity(), certificate.getCommercialRegistrationNumber(),
+                                certificate.getLegalEntity(), certificate.getDateOfBirth(),
+                                certificate.getNationality(), certificate.getGosinumber(),
+                                certificate.getNationalId(), certificate.getEnquiryDateOfBirth(), now,
+                                certificate.getCustomer() != null ? certificate.getCustomer().getId() : null})
+                        .collect(Collectors.toList()));
+    }
+}
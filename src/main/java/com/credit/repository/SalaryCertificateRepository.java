@@ -4,6 +4,15 @@ import com.credit.model.SalaryCertificate;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Optional;
+
 @Repository
 public interface SalaryCertificateRepository extends JpaRepository<SalaryCertificate, Long> {
-} 
\ No newline at end of file
+
+    /**
+     * Newest certificate fetched for the enquiry key since the given time
+     */
+    Optional<SalaryCertificate> findFirstByNationalIdAndEnquiryDateOfBirthAndCreatedAtAfterOrderByCreatedAtDesc(
+            String nationalId, String enquiryDateOfBirth, LocalDateTime createdAfter);
+}
@@ -0,0 +1,27 @@
+package com.credit.scoring;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Parameters of one version of the linear credit risk model
+ * risk = 1 - (normalizedCreditScore * creditScoreWeight + normalizedSalary * salaryWeight),
+ * where the credit score is normalized over [minCreditScore, maxCreditScore] and the
+ * salary is capped at salaryCap. The defaults are the original (v1) model.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreditRiskModel {
+
+    public static final String DEFAULT_VERSION = "v1";
+
+    // Filled in from the key under credit.risk.models
+    private String version = DEFAULT_VERSION;
+    private double creditScoreWeight = 0.7;
+    private double salaryWeight = 0.3;
+    private double minCreditScore = 300.0;
+    private double maxCreditScore = 850.0;
+    private double salaryCap = 200000.0;
+}
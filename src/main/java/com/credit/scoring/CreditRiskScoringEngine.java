@@ -0,0 +1,36 @@
+package com.credit.scoring;
+
+import com.credit.entity.CustomerEntity;
+
+/**
+ * Computes credit risk scores with one version of a risk model
+ * Every score is stored together with the version that produced it, so rows scored
+ * by an older model can be found and rescored.
+ */
+public interface CreditRiskScoringEngine {
+
+    /**
+     * @return the version of the model this engine scores with
+     */
+    String modelVersion();
+
+    /**
+     * @return the risk score, lower is better
+     */
+    double score(int creditScore, double annualSalary);
+
+    /**
+     * Score many customers at once: riskScores[i] is the score of creditScores[i] and
+     * annualSalaries[i], for i below length. Works on primitive arrays only, so a batch
+     * allocates nothing per customer and the loop can be unrolled by the JIT.
+     */
+    void scoreBatch(int[] creditScores, double[] annualSalaries, double[] riskScores, int length);
+
+    /**
+     * Score a customer and record the model version on it
+     */
+    default void score(CustomerEntity entity) {
+        entity.setCreditRiskScore(score(entity.getCreditScore(), entity.getAnnualSalary()));
+        entity.setCreditRiskModelVersion(modelVersion());
+    }
+}
@@ -0,0 +1,63 @@
+package com.credit.scoring;
+
+/**
+ * Scoring engine for the linear credit risk model
+ * The arithmetic is kept in the same order as the original formula, so the default
+ * model produces exactly the scores already stored for existing customers.
+ */
+public class LinearCreditRiskScoringEngine implements CreditRiskScoringEngine {
+
+    private final String version;
+    private final double creditScoreWeight;
+    private final double salaryWeight;
+    private final double minCreditScore;
+    private final double creditScoreRange;
+    private final double salaryCap;
+
+    public LinearCreditRiskScoringEngine(CreditRiskModel model) {
+        if (model.getMaxCreditScore() <= model.getMinCreditScore()) {
+            throw new IllegalArgumentException("Credit risk model " + model.getVersion()
+                    + ": max-credit-score must be greater than min-credit-score");
+        }
+        if (model.getSalaryCap() <= 0) {
+            throw new IllegalArgumentException("Credit risk model " + model.getVersion()
+                    + ": salary-cap must be positive");
+        }
+        this.version = model.getVersion();
+        this.creditScoreWeight = model.getCreditScoreWeight();
+        this.salaryWeight = model.getSalaryWeight();
+        this.minCreditScore = model.getMinCreditScore();
+        this.creditScoreRange = model.getMaxCreditScore() - model.getMinCreditScore();
+        this.salaryCap = model.getSalaryCap();
+    }
+
+    @Override
+    public String modelVersion() {
+        return version;
+    }
+
+    @Override
+    public double score(int creditScore, double annualSalary) {
+        double normalizedCreditScore = (creditScore - minCreditScore) / creditScoreRange;
+        double normalizedSalary = Math.min(annualSalary / salaryCap, 1.0);
+        return 1.0 - ((normalizedCreditScore * creditScoreWeight) + (normalizedSalary * salaryWeight));
+    }
+
+    @Override
+    public void scoreBatch(int[] creditScores, double[] annualSalaries, double[] riskScores, int length) {
+        if (length > creditScores.length || length > annualSalaries.length || length > riskScores.length) {
+            throw new IllegalArgumentException("Batch length " + length + " exceeds the arrays");
+        }
+        // Fields copied to locals so the loop body only touches the arrays
+        double min = minCreditScore;
+        double range = creditScoreRange;
+        double cap = salaryCap;
+        double scoreWeight = creditScoreWeight;
+        double capWeight = salaryWeight;
+        for (int i = 0; i < length; i++) {
+            double normalizedCreditScore = (creditScores[i] - min) / range;
+            double normalizedSalary = Math.min(annualSalaries[i] / cap, 1.0);
+            riskScores[i] = 1.0 - ((normalizedCreditScore * scoreWeight) + (normalizedSalary * capWeight));
+        }
+    }
+}
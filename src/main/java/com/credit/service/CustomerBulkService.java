@@ -0,0 +1,234 @@
+package com.credit.service;
+
+import com.credit.dto.BulkCreateCustomerResult;
+import com.credit.dto.BulkCreateCustomersResponse;
+import com.credit.dto.CreateCustomerRequest;
+import com.credit.entity.CustomerEntity;
+import com.credit.exception.InvalidRequestException;
+import com.credit.factory.CustomerEventFactory;
+import com.credit.mapper.CustomerMapper;
+import com.credit.model.CustomerEvent;
+import com.credit.repository.CustomerRepository;
+import com.credit.scoring.CreditRiskScoringEngine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Service for creating many customers in one request
+ * Duplicates are checked with one set-based query per chunk, rows are inserted as
+ * JDBC batches in short per-chunk transactions, and each chunk's created events are
+ * written to the outbox in the same transaction
+ */
+@Service
+@Slf4j
+public class CustomerBulkService {
+
+    private final CustomerRepository customerRepository;
+    private final CustomerMapper customerMapper;
+    private final CustomerEventFactory eventFactory;
+    private final OutboxService outboxService;
+    private final CreditRiskScoringEngine scoringEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final Validator validator;
+    private final int maxRows;
+    private final int chunkSize;
+
+    public CustomerBulkService(CustomerRepository customerRepository,
+                               CustomerMapper customerMapper,
+                               CustomerEventFactory eventFactory,
+                               OutboxService outboxService,
+                               CreditRiskScoringEngine scoringEngine,
+                               TransactionTemplate transactionTemplate,
+                               EntityManager entityManager,
+                               Validator validator,
+                               @Value("${customer.bulk.max-rows:100000}") int maxRows,
+                               @Value("${customer.bulk.chunk-size:500}") int chunkSize) {
+        this.customerRepository = customerRepository;
+        this.customerMapper = customerMapper;
+        this.eventFactory = eventFactory;
+        this.outboxService = outboxService;
+        this.scoringEngine = scoringEngine;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.validator = validator;
+        this.maxRows = maxRows;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Create customers in bulk
+     *
+     * @param requests The customers to create
+     * @return One result per request row, in request order
+     */
+    public BulkCreateCustomersResponse createCustomers(List<CreateCustomerRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new InvalidRequestException("At least one customer is required");
+        }
+        if (requests.size() > maxRows) {
+            throw new InvalidRequestException("A bulk request may contain at most " + maxRows + " customers");
+        }
+
+        BulkCreateCustomerResult[] results = new BulkCreateCustomerResult[requests.size()];
+        List<Integer> accepted = validate(requests, results);
+
+        for (int from = 0; from < accepted.size(); from += chunkSize) {
+            List<Integer> chunk = accepted.subList(from, Math.min(from + chunkSize, accepted.size()));
+            processChunk(requests, chunk, results);
+        }
+
+        List<BulkCreateCustomerResult> resultList = new ArrayList<>(results.length);
+        Collections.addAll(resultList, results);
+        int created = (int) resultList.stream()
+                .filter(result -> result.getStatus() == BulkCreateCustomerResult.Status.CREATED)
+                .count();
+        log.info("Bulk create finished: {} requested, {} created", requests.size(), created);
+        return new BulkCreateCustomersResponse(requests.size(), created, requests.size() - created, resultList);
+    }
+
+    /**
+     * Validate every row and reject emails repeated inside the request
+     *
+     * @return the indexes of rows that passed
+     */
+    private List<Integer> validate(List<CreateCustomerRequest> requests, BulkCreateCustomerResult[] results) {
+        List<Integer> accepted = new ArrayList<>(requests.size());
+        Set<String> seenEmails = new HashSet<>();
+        for (int i = 0; i < requests.size(); i++) {
+            CreateCustomerRequest request = requests.get(i);
+            if (request == null) {
+                results[i] = rejected(i, null, BulkCreateCustomerResult.Status.INVALID, "Customer is required");
+                continue;
+            }
+            Set<ConstraintViolation<CreateCustomerRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                String error = violations.stream()
+                        .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining(", "));
+                results[i] = rejected(i, request.getEmail(), BulkCreateCustomerResult.Status.INVALID, error);
+            } else if (!seenEmails.add(normalize(request.getEmail()))) {
+                results[i] = rejected(i, request.getEmail(), BulkCreateCustomerResult.Status.DUPLICATE,
+                        "Email appears more than once in the request");
+            } else {
+                accepted.add(i);
+            }
+        }
+        return accepted;
+    }
+
+    private void processChunk(List<CreateCustomerRequest> requests, List<Integer> chunk,
+                              BulkCreateCustomerResult[] results) {
+        // One query for the whole chunk instead of existsByEmail per row
+        Set<String> existing = customerRepository.findExistingEmails(chunk.stream()
+                        .map(index -> requests.get(index).getEmail())
+                        .collect(Collectors.toList()))
+                .stream()
+                .map(CustomerBulkService::normalize)
+                .collect(Collectors.toSet());
+
+        List<Integer> indexes = new ArrayList<>(chunk.size());
+        List<CustomerEntity> entities = new ArrayList<>(chunk.size());
+        for (Integer index : chunk) {
+            CreateCustomerRequest request = requests.get(index);
+            if (existing.contains(normalize(request.getEmail()))) {
+                results[index] = rejected(index, request.getEmail(), BulkCreateCustomerResult.Status.DUPLICATE,
+                        "Email already exists: " + request.getEmail());
+                continue;
+            }
+            CustomerEntity entity = customerMapper.toEntity(request);
+            scoringEngine.score(entity);
+            indexes.add(index);
+            entities.add(entity);
+        }
+        if (entities.isEmpty()) {
+            return;
+        }
+
+        try {
+            insert(entities);
+            for (int i = 0; i < entities.size(); i++) {
+                results[indexes.get(i)] = created(indexes.get(i), entities.get(i));
+            }
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent writer took one of the emails - isolate the offending rows
+            log.warn("Batch insert of {} customers failed, retrying row by row: {}", entities.size(), e.getMessage());
+            insertOneByOne(indexes, entities, results);
+        }
+    }
+
+    private void insertOneByOne(List<Integer> indexes, List<CustomerEntity> entities,
+                                BulkCreateCustomerResult[] results) {
+        for (int i = 0; i < entities.size(); i++) {
+            CustomerEntity entity = entities.get(i);
+            entity.setId(null);
+            try {
+                insert(Collections.singletonList(entity));
+                results[indexes.get(i)] = created(indexes.get(i), entity);
+            } catch (DataIntegrityViolationException e) {
+                results[indexes.get(i)] = rejected(indexes.get(i), entity.getEmail(),
+                        BulkCreateCustomerResult.Status.DUPLICATE, "Email already exists: " + entity.getEmail());
+            } catch (RuntimeException e) {
+                results[indexes.get(i)] = rejected(indexes.get(i), entity.getEmail(),
+                        BulkCreateCustomerResult.Status.FAILED, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Insert in one short transaction together with the created events; the commit
+     * flushes the rows as JDBC batches
+     * Clearing afterwards keeps a request-scoped persistence context from growing across chunks
+     */
+    private void insert(List<CustomerEntity> entities) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                customerRepository.saveAll(entities);
+                List<CustomerEvent> events = entities.stream()
+                        .map(eventFactory::createCustomerCreatedEvent)
+                        .collect(Collectors.toList());
+                outboxService.enqueueAll(events);
+            });
+        } finally {
+            entityManager.clear();
+        }
+    }
+
+    private static BulkCreateCustomerResult created(int index, CustomerEntity entity) {
+        return BulkCreateCustomerResult.builder()
+                .index(index)
+                .status(BulkCreateCustomerResult.Status.CREATED)
+                .email(entity.getEmail())
+                .id(entity.getId())
+                .build();
+    }
+
+    private static BulkCreateCustomerResult rejected(int index, String email,
+                                                     BulkCreateCustomerResult.Status status, String error) {
+        return BulkCreateCustomerResult.builder()
+                .index(index)
+                .status(status)
+                .email(email)
+                .error(error)
+                .build();
+    }
+
+    private static String normalize(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,107 @@
+package com.credit.service;
+
+import com.credit.dto.CustomerDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded in-process cache of customer DTOs keyed by customer id
+ * Entries are evicted by size and TTL, and invalidated from customer events so
+ * every replica drops stale entries without extra database round trips.
+ * Hit/miss statistics are published to Micrometer as cache.* metrics tagged cache=customers
+ * Every put and evict bumps a generation counter for the id, and a value loaded on a
+ * miss is only cached if no write happened since the load started, so a slow reader
+ * cannot put back a row that a writer has since replaced or evicted.
+ */
+@Component
+public class CustomerCache {
+
+    // Striped by id so the counters stay bounded; ids sharing a stripe only skip some populates
+    private static final int GENERATION_STRIPES = 4096;
+
+    private final Cache<Long, CustomerDTO> cache;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    public CustomerCache(@Value("${customer.cache.max-size:10000}") long maximumSize,
+                         @Value("${customer.cache.ttl:10m}") Duration ttl,
+                         MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "customers");
+    }
+
+    /**
+     * @return the cached customer or null on a miss
+     */
+    public CustomerDTO get(Long id) {
+        return cache.getIfPresent(id);
+    }
+
+    /**
+     * Token to take before loading a customer on a miss, for putIfUnchanged
+     */
+    public long generation(Long id) {
+        return generations.get(stripe(id));
+    }
+
+    /**
+     * Cache a customer loaded on a miss, unless it was written or evicted since the load started
+     * The check runs inside the map's compute for the id, and writers bump the generation
+     * before they touch the entry, so a stale value can never land after a newer write.
+     *
+     * @param generation The value of generation(id) taken before the customer was loaded
+     * @return whether the customer was cached
+     */
+    public boolean putIfUnchanged(CustomerDTO customer, long generation) {
+        if (customer == null || customer.getId() == null) {
+            return false;
+        }
+        Long id = customer.getId();
+        boolean[] cached = new boolean[1];
+        cache.asMap().compute(id, (key, current) -> {
+            if (generations.get(stripe(key)) != generation) {
+                return current;
+            }
+            cached[0] = true;
+            return customer;
+        });
+        return cached[0];
+    }
+
+    /**
+     * Store the state a write has just committed
+     */
+    public void put(CustomerDTO customer) {
+        if (customer != null && customer.getId() != null) {
+            generations.incrementAndGet(stripe(customer.getId()));
+            cache.put(customer.getId(), customer);
+        }
+    }
+
+    public void evict(Long id) {
+        if (id != null) {
+            generations.incrementAndGet(stripe(id));
+            cache.invalidate(id);
+        }
+    }
+
+    public void evictAll(Collection<Long> ids) {
+        ids.forEach(id -> generations.incrementAndGet(stripe(id)));
+        cache.invalidateAll(ids);
+    }
+
+    private static int stripe(Long id) {
+        return Long.hashCode(id) & (GENERATION_STRIPES - 1);
+    }
+}
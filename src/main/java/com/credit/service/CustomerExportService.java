@@ -0,0 +1,75 @@
+package com.credit.service;
+
+import com.credit.dto.CustomerDTO;
+import com.credit.repository.CustomerRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Service that streams the full customer table as NDJSON (one JSON document per line)
+ * Rows are read from a forward-only cursor and written straight to the response,
+ * so heap usage does not depend on the size of the table
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CustomerExportService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int FLUSH_EVERY_ROWS = 1000;
+
+    private final CustomerRepository customerRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Write every customer to the given stream as NDJSON
+     *
+     * @param outputStream The raw response stream
+     * @param gzip Whether to gzip the output
+     * @return The number of exported rows
+     */
+    @Transactional(readOnly = true)
+    public long exportCustomers(OutputStream outputStream, boolean gzip) throws IOException {
+        OutputStream target = gzip
+                ? new GZIPOutputStream(outputStream, BUFFER_SIZE, true)
+                : new BufferedOutputStream(outputStream, BUFFER_SIZE);
+
+        long rows = 0;
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(target);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+
+        // Rows are projected straight into DTOs, so nothing is attached to the
+        // persistence context and it does not grow with the table
+        try (Stream<CustomerDTO> customers = customerRepository.streamAll()) {
+            Iterator<CustomerDTO> iterator = customers.iterator();
+            while (iterator.hasNext()) {
+                generator.writeObject(iterator.next());
+                generator.writeRaw('\n');
+
+                if (++rows % FLUSH_EVERY_ROWS == 0) {
+                    generator.flush();
+                }
+            }
+        }
+
+        generator.flush();
+        if (target instanceof GZIPOutputStream) {
+            ((GZIPOutputStream) target).finish();
+        }
+        target.flush();
+        log.info("Exported {} customers (gzip={})", rows, gzip);
+        return rows;
+    }
+}
@@ -0,0 +1,394 @@
+package com.credit.service;
+
+import com.credit.dto.RescoringStatus;
+import com.credit.exception.InvalidRequestException;
+import com.credit.factory.CustomerEventFactory;
+import com.credit.model.CustomerEvent;
+import com.credit.model.FieldChange;
+import com.credit.model.RescoringJob;
+import com.credit.repository.CustomerScoringRepository;
+import com.credit.repository.RescoringJobRepository;
+import com.credit.scoring.CreditRiskScoringEngine;
+import com.credit.support.RateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background job that rescores every customer with the active credit risk model
+ * The id range is cut into chunks that are rescored in parallel on a fork-join pool:
+ * each chunk is one SELECT into primitive arrays, one scoreBatch call and one batched
+ * UPDATE in its own short transaction. Chunks are processed in waves; after each wave
+ * the job checkpoints the id it has reached, so an interrupted job resumes from there,
+ * and while a wave runs the job row gets a heartbeat so other replicas do not take it
+ * over. Jobs are claimed with a conditional UPDATE and new ones are guarded by a unique
+ * key, so two replicas never run the same job. Rows already scored with the active
+ * version are skipped. Every row the UPDATE actually changed gets an UPDATED delta
+ * event, written to the outbox in the chunk's transaction, so other replicas evict
+ * their caches and consumers see the new score.
+ */
+@Service
+@Slf4j
+public class CustomerRescoringService {
+
+    private static final int CHUNKS_PER_WORKER_PER_WAVE = 4;
+
+    private final CustomerScoringRepository scoringRepository;
+    private final RescoringJobRepository jobRepository;
+    private final CreditRiskScoringEngine scoringEngine;
+    private final CustomerCache customerCache;
+    private final OutboxService outboxService;
+    private final CustomerEventFactory eventFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter rescored;
+    private final int chunkSize;
+    private final int parallelism;
+    private final double defaultRowsPerSecond;
+    private final Duration staleAfter;
+    private final ExecutorService runner;
+
+    private volatile RunningJob current;
+
+    public CustomerRescoringService(CustomerScoringRepository scoringRepository,
+                                    RescoringJobRepository jobRepository,
+                                    CreditRiskScoringEngine scoringEngine,
+                                    CustomerCache customerCache,
+                                    OutboxService outboxService,
+                                    CustomerEventFactory eventFactory,
+                                    TransactionTemplate transactionTemplate,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${customer.rescoring.chunk-size:5000}") int chunkSize,
+                                    @Value("${customer.rescoring.parallelism:4}") int parallelism,
+                                    @Value("${customer.rescoring.rows-per-second:0}") double defaultRowsPerSecond,
+                                    @Value("${customer.rescoring.stale-after:60s}") Duration staleAfter) {
+        this.scoringRepository = scoringRepository;
+        this.jobRepository = jobRepository;
+        this.scoringEngine = scoringEngine;
+        this.customerCache = customerCache;
+        this.outboxService = outboxService;
+        this.eventFactory = eventFactory;
+        this.transactionTemplate = transactionTemplate;
+        this.rescored = meterRegistry.counter("customer.rescoring.rows");
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.defaultRowsPerSecond = defaultRowsPerSecond;
+        this.staleAfter = staleAfter;
+        this.runner = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "customer-rescoring");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start rescoring with the active model, resuming the last unfinished job for it
+     *
+     * @param rowsPerSecond Throttle, null for the configured default; 0 means unthrottled
+     * @throws InvalidRequestException if a job is already running here or on another replica
+     */
+    public synchronized RescoringStatus start(Double rowsPerSecond) {
+        if (current != null && !current.finished) {
+            throw new InvalidRequestException("A rescoring job is already running");
+        }
+        double rate = rowsPerSecond != null ? rowsPerSecond : defaultRowsPerSecond;
+        if (rate < 0) {
+            throw new InvalidRequestException("rowsPerSecond must not be negative");
+        }
+        String version = scoringEngine.modelVersion();
+        Optional<RescoringJob> unfinished = jobRepository.findLatestUnfinished(version);
+        RescoringJob job;
+        if (unfinished.isPresent()) {
+            job = unfinished.get();
+            // Check and take over in one UPDATE, so two replicas cannot both resume the job
+            if (!jobRepository.claim(job.getId(), staleAfter)) {
+                throw new InvalidRequestException("Rescoring job " + job.getId() + " is running on another instance");
+            }
+            log.info("Resuming rescoring job {} for model {} from id {}", job.getId(), version, job.getLastId());
+        } else {
+            long[] bounds = scoringRepository.findIdBounds();
+            if (bounds == null) {
+                throw new InvalidRequestException("There are no customers to rescore");
+            }
+            job = RescoringJob.builder()
+                    .modelVersion(version)
+                    .state(RescoringJob.State.RUNNING)
+                    .fromId(bounds[0])
+                    .toId(bounds[1])
+                    .lastId(bounds[0] - 1)
+                    .startedAt(LocalDateTime.now())
+                    .build();
+            try {
+                job.setId(jobRepository.insert(job));
+            } catch (DuplicateKeyException e) {
+                // Another replica inserted the job for this version since we looked
+                throw new InvalidRequestException("A rescoring job for model " + version
+                        + " was started on another instance");
+            }
+            log.info("Started rescoring job {} for model {} over ids {}..{}",
+                    job.getId(), version, bounds[0], bounds[1]);
+        }
+        job.setState(RescoringJob.State.RUNNING);
+        job.setError(null);
+        RunningJob running = new RunningJob(job, rate > 0 ? new RateLimiter(rate) : null);
+        current = running;
+        runner.execute(() -> run(running));
+        return running.toStatus();
+    }
+
+    public RescoringStatus status() {
+        RunningJob running = current;
+        if (running != null && !running.finished) {
+            return running.toStatus();
+        }
+        // Reload so a job run by another replica, or before a restart, is reported too
+        return jobRepository.findLatest()
+                .map(job -> RescoringStatus.from(job, job.getLastId() - job.getFromId() + 1, 0, null))
+                .orElseGet(() -> RescoringStatus.builder().build());
+    }
+
+    /**
+     * Stop the running job after its current wave; it can be resumed later
+     */
+    public RescoringStatus cancel() {
+        RunningJob running = current;
+        if (running != null) {
+            running.cancelled = true;
+        }
+        return status();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cancel();
+        runner.shutdown();
+    }
+
+    private void run(RunningJob running) {
+        RescoringJob job = running.job;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            long waveSize = (long) chunkSize * parallelism * CHUNKS_PER_WORKER_PER_WAVE;
+            long cursor = job.getLastId();
+            while (cursor < job.getToId() && !running.cancelled) {
+                long waveEnd = Math.min(job.getToId(), cursor + waveSize);
+                invokeWithHeartbeat(pool, new RescoreRange(running, cursor + 1, waveEnd), running);
+                if (running.cancelled) {
+                    // Part of the wave may have been skipped, so keep the previous checkpoint
+                    break;
+                }
+                cursor = waveEnd;
+                running.checkpoint(cursor);
+                jobRepository.checkpoint(job.getId(), cursor, running.rowsRescored());
+            }
+            finish(running, running.cancelled ? RescoringJob.State.CANCELLED : RescoringJob.State.COMPLETED, null);
+        } catch (CancellationException e) {
+            finish(running, RescoringJob.State.CANCELLED, null);
+        } catch (RuntimeException e) {
+            log.error("Rescoring job {} failed", job.getId(), e);
+            String error = String.valueOf(e.getMessage());
+            finish(running, RescoringJob.State.FAILED, error.length() <= 1000 ? error : error.substring(0, 1000));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Run a wave, refreshing the job's heartbeat every quarter of stale-after until it is done
+     * A throttled wave, or even a single throttled chunk, can take longer than stale-after
+     */
+    private void invokeWithHeartbeat(ForkJoinPool pool, RescoreRange wave, RunningJob running) {
+        ForkJoinTask<Void> task = pool.submit(wave);
+        long heartbeatMillis = Math.max(1, staleAfter.toMillis() / 4);
+        while (true) {
+            try {
+                task.get(heartbeatMillis, TimeUnit.MILLISECONDS);
+                return;
+            } catch (TimeoutException e) {
+                jobRepository.heartbeat(running.job.getId());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running.cancelled = true;
+                throw new CancellationException("Interrupted while rescoring");
+            }
+        }
+    }
+
+    private void finish(RunningJob running, RescoringJob.State state, String error) {
+        RescoringJob job = running.job;
+        job.setState(state);
+        job.setError(error);
+        jobRepository.updateState(job.getId(), state, error);
+        running.finished = true;
+        log.info("Rescoring job {} {} at id {} after {} rows", job.getId(), state, job.getLastId(),
+                running.rowsRescored());
+    }
+
+    /**
+     * Rescore one chunk of at most chunkSize ids
+     * Runs on a fork-join worker; the arrays are reused by each worker across chunks
+     */
+    private void rescoreChunk(RunningJob running, long fromId, long toId) {
+        ChunkBuffers buffers = running.buffers.get();
+        String version = running.job.getModelVersion();
+        int count = scoringRepository.findScoringInputs(fromId, toId, version, buffers.ids,
+                buffers.creditScores, buffers.annualSalaries, buffers.previousRiskScores, buffers.previousVersions);
+        if (count > 0) {
+            running.throttle(count);
+            scoringEngine.scoreBatch(buffers.creditScores, buffers.annualSalaries, buffers.riskScores, count);
+            List<Long> updatedIds = transactionTemplate.execute(status -> updateScores(buffers, version, count));
+            customerCache.evictAll(updatedIds);
+            running.rows.addAndGet(updatedIds.size());
+            rescored.increment(updatedIds.size());
+        }
+        running.idsDone.addAndGet(toId - fromId + 1);
+    }
+
+    /**
+     * Write the chunk's scores and enqueue one event per row that was actually updated
+     * Rows the guarded UPDATE skipped were changed through the API, which emitted its own event
+     *
+     * @return the ids of the updated rows
+     */
+    private List<Long> updateScores(ChunkBuffers buffers, String version, int count) {
+        int[] updateCounts = scoringRepository.updateScores(buffers.ids, buffers.creditScores,
+                buffers.annualSalaries, buffers.riskScores, version, count);
+        List<Long> updatedIds = new ArrayList<>(count);
+        List<CustomerEvent> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // The driver may report SUCCESS_NO_INFO for a rewritten batch; only 0 means skipped
+            if (updateCounts[i] == 0) {
+                continue;
+            }
+            Map<String, FieldChange> changes = new LinkedHashMap<>();
+            double previousRiskScore = buffers.previousRiskScores[i];
+            changes.put("creditRiskScore", new FieldChange(
+                    Double.isNaN(previousRiskScore) ? null : previousRiskScore, buffers.riskScores[i]));
+            changes.put("creditRiskModelVersion", new FieldChange(buffers.previousVersions[i], version));
+            updatedIds.add(buffers.ids[i]);
+            events.add(eventFactory.createCreditRiskRescoredEvent(buffers.ids[i], changes));
+        }
+        outboxService.enqueueAll(events);
+        return updatedIds;
+    }
+
+    /**
+     * Splits an id range in halves until each piece fits in one chunk
+     */
+    private final class RescoreRange extends RecursiveAction {
+        private final RunningJob running;
+        private final long fromId;
+        private final long toId;
+
+        private RescoreRange(RunningJob running, long fromId, long toId) {
+            this.running = running;
+            this.fromId = fromId;
+            this.toId = toId;
+        }
+
+        @Override
+        protected void compute() {
+            if (running.cancelled) {
+                return;
+            }
+            if (toId - fromId + 1 <= chunkSize) {
+                rescoreChunk(running, fromId, toId);
+                return;
+            }
+            long middle = fromId + (toId - fromId) / 2;
+            invokeAll(new RescoreRange(running, fromId, middle), new RescoreRange(running, middle + 1, toId));
+        }
+    }
+
+    private final class ChunkBuffers {
+        private final long[] ids = new long[chunkSize];
+        private final int[] creditScores = new int[chunkSize];
+        private final double[] annualSalaries = new double[chunkSize];
+        private final double[] riskScores = new double[chunkSize];
+        private final double[] previousRiskScores = new double[chunkSize];
+        private final String[] previousVersions = new String[chunkSize];
+    }
+
+    /**
+     * In-memory progress of the job this replica is running
+     */
+    private final class RunningJob {
+        private final RescoringJob job;
+        private final RateLimiter limiter;
+        private final ThreadLocal<ChunkBuffers> buffers = ThreadLocal.withInitial(ChunkBuffers::new);
+        private final long rowsAtStart;
+        private final long idsAtStart;
+        private final long startedNanos = System.nanoTime();
+        private final AtomicLong rows = new AtomicLong();
+        private final AtomicLong idsDone = new AtomicLong();
+        private volatile boolean cancelled;
+        private volatile boolean finished;
+
+        private RunningJob(RescoringJob job, RateLimiter limiter) {
+            this.job = job;
+            this.limiter = limiter;
+            this.rowsAtStart = job.getRowsRescored();
+            this.idsAtStart = job.getLastId() - job.getFromId() + 1;
+        }
+
+        private void throttle(int rowCount) {
+            if (limiter == null) {
+                return;
+            }
+            try {
+                limiter.acquire(rowCount);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while throttling rescoring");
+            }
+        }
+
+        private long rowsRescored() {
+            return rowsAtStart + rows.get();
+        }
+
+        private void checkpoint(long lastId) {
+            job.setLastId(lastId);
+            job.setRowsRescored(rowsRescored());
+        }
+
+        private RescoringStatus toStatus() {
+            double elapsedSeconds = (System.nanoTime() - startedNanos) / 1e9;
+            long done = idsDone.get();
+            long remaining = Math.max(0, job.getToId() - job.getFromId() + 1 - idsAtStart - done);
+            Long etaSeconds = done == 0 || elapsedSeconds == 0 ? null
+                    : (long) Math.ceil(remaining / (done / elapsedSeconds));
+            RescoringStatus status = RescoringStatus.from(job, idsAtStart + done,
+                    elapsedSeconds == 0 ? 0 : rows.get() / elapsedSeconds, etaSeconds);
+            status.setRowsRescored(rowsRescored());
+            return status;
+        }
+    }
+}
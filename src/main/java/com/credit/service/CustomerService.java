@@ -3,83 +3,175 @@ package com.credit.service;
 import com.credit.dto.CreateCustomerRequest;
 import com.credit.dto.UpdateCustomerRequest;
 import com.credit.dto.CustomerDTO;
+import com.credit.dto.CursorPage;
+import com.credit.dto.NameSearchMode;
 import com.credit.entity.CustomerEntity;
-import com.credit.model.CustomerEvent;
+import com.credit.model.FieldChange;
 import com.credit.repository.CustomerRepository;
+import com.credit.repository.CustomerSpecifications;
 import com.credit.mapper.CustomerMapper;
 import com.credit.factory.CustomerEventFactory;
 import com.credit.exception.CustomerNotFoundException;
 import com.credit.exception.DuplicateEmailException;
+import com.credit.exception.InvalidRequestException;
+import com.credit.scoring.CreditRiskScoringEngine;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class CustomerService {
 
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 500;
+
     private final CustomerRepository customerRepository;
-    private final MessagePublisherService messagePublisherService;
+    private final OutboxService outboxService;
     private final CustomerMapper customerMapper;
     private final CustomerEventFactory eventFactory;
+    private final CustomerCache customerCache;
+    private final CreditRiskScoringEngine scoringEngine;
 
     @Autowired
     public CustomerService(CustomerRepository customerRepository, 
-                          MessagePublisherService messagePublisherService,
+                          OutboxService outboxService,
                           CustomerMapper customerMapper,
-                          CustomerEventFactory eventFactory) {
+                          CustomerEventFactory eventFactory,
+                          CustomerCache customerCache,
+                          CreditRiskScoringEngine scoringEngine) {
         this.customerRepository = customerRepository;
-        this.messagePublisherService = messagePublisherService;
+        this.outboxService = outboxService;
         this.customerMapper = customerMapper;
         this.eventFactory = eventFactory;
+        this.customerCache = customerCache;
+        this.scoringEngine = scoringEngine;
     }
 
-    public List<CustomerDTO> getAllCustomers() {
-        return customerRepository.findAll()
-                .stream()
-                .map(customerMapper::toDTO)
-                .collect(Collectors.toList());
+    /**
+     * Get a page of customers ordered by id
+     * Uses keyset pagination so memory and latency stay flat however deep the page is
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<CustomerDTO> getAllCustomers(String after, Integer limit) {
+        int pageSize = resolvePageSize(limit);
+        List<CustomerDTO> rows = customerRepository.findPageAfter(
+                CursorPage.decodeCursor(after), PageRequest.of(0, pageSize + 1));
+        return CursorPage.of(rows, pageSize, CustomerDTO::getId);
     }
 
     /**
      * Get customers with dynamic filtering
      * This demonstrates how to build flexible query capabilities
      */
-    public List<CustomerDTO> getAllCustomers(String firstName, String lastName, 
-                                           Integer minCreditScore, Integer maxCreditScore,
-                                           Double minSalary, Double maxSalary) {
+    @Transactional(readOnly = true)
+    public CursorPage<CustomerDTO> getAllCustomers(String firstName, String lastName, 
+                                                   Integer minCreditScore, Integer maxCreditScore,
+                                                   Double minSalary, Double maxSalary,
+                                                   String after, Integer limit) {
         
-        // If no filters are provided, return all customers
+        // If no filters are provided, page through all customers
         if (firstName == null && lastName == null && 
             minCreditScore == null && maxCreditScore == null && 
             minSalary == null && maxSalary == null) {
-            return getAllCustomers();
+            return getAllCustomers(after, limit);
         }
         
-        // Use the dynamic filtering query from repository
-        return customerRepository.findCustomersWithFilters(
-                firstName, lastName, minCreditScore, maxCreditScore, minSalary, maxSalary)
-                .stream()
-                .map(customerMapper::toDTO)
-                .collect(Collectors.toList());
+        // Build a query with only the supplied predicates plus the keyset cursor
+        // Name filters are prefix matches so they can use the name indexes
+        int pageSize = resolvePageSize(limit);
+        Specification<CustomerEntity> specification = CustomerSpecifications
+                .withFilters(firstName, lastName, minCreditScore, maxCreditScore, minSalary, maxSalary)
+                .and(CustomerSpecifications.idGreaterThan(CursorPage.decodeCursor(after)));
+        List<CustomerDTO> rows = customerRepository.findPage(specification, pageSize + 1);
+        return CursorPage.of(rows, pageSize, CustomerDTO::getId);
     }
 
+    /**
+     * Search customers by first or last name using the name indexes
+     * PREFIX and TOKEN pages are ordered by id and support cursors;
+     * FUZZY results are ordered by relevance and only return a single page
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<CustomerDTO> searchCustomersByName(String query, NameSearchMode mode,
+                                                         String after, Integer limit) {
+        if (query == null || query.trim().isEmpty()) {
+            throw new InvalidRequestException("Search query is required");
+        }
+        int pageSize = resolvePageSize(limit);
+        long afterId = CursorPage.decodeCursor(after);
+        
+        switch (mode) {
+            case PREFIX:
+                // Prefix and full-text queries are native, so they still load entities; the read-only
+                // transaction keeps Hibernate from taking dirty-checking snapshots of them
+                List<CustomerDTO> rows = customerRepository.searchByNamePrefix(
+                                CustomerSpecifications.escapeLike(query.trim()) + "%", afterId, pageSize + 1)
+                        .stream()
+                        .map(customerMapper::toDTO)
+                        .collect(Collectors.toList());
+                return CursorPage.of(rows, pageSize, CustomerDTO::getId);
+            case TOKEN:
+                List<CustomerDTO> matches = customerRepository.searchByNameTokens(
+                                toBooleanModeQuery(query), afterId, pageSize + 1)
+                        .stream()
+                        .map(customerMapper::toDTO)
+                        .collect(Collectors.toList());
+                return CursorPage.of(matches, pageSize, CustomerDTO::getId);
+            case FUZZY:
+                if (afterId != 0L) {
+                    throw new InvalidRequestException("Cursors are not supported for FUZZY search");
+                }
+                List<CustomerDTO> ranked = customerRepository.searchByNameFuzzy(query.trim(), pageSize)
+                        .stream()
+                        .map(customerMapper::toDTO)
+                        .collect(Collectors.toList());
+                return new CursorPage<>(ranked, null, pageSize, false);
+            default:
+                throw new InvalidRequestException("Unsupported search mode: " + mode);
+        }
+    }
+
+    /**
+     * Get a customer by id, reading through the in-process cache
+     * Not transactional: a cache hit touches no connection, and a miss loads the row
+     * in the repository's own read-only transaction
+     */
     public CustomerDTO getCustomerById(Long id) {
-        CustomerEntity entity = customerRepository.findById(id)
+        CustomerDTO cached = customerCache.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        
+        // Taken before the load, so a write that lands meanwhile keeps this value out of the cache
+        long generation = customerCache.generation(id);
+        CustomerDTO customer = customerRepository.findDtoById(id)
                 .orElseThrow(() -> new CustomerNotFoundException("Customer not found with id: " + id));
-        return customerMapper.toDTO(entity);
+        customerCache.putIfUnchanged(customer, generation);
+        return customer;
     }
 
+    /**
+     * Create a customer; the created event is written to the outbox in the same transaction
+     */
+    @Transactional
     public CustomerDTO createCustomer(CreateCustomerRequest request) {
         if (customerRepository.existsByEmail(request.getEmail())) {
             throw new DuplicateEmailException("Email already exists: " + request.getEmail());
         }
         
         CustomerEntity entity = customerMapper.toEntity(request);
-        calculateCreditRiskScore(entity);
+        scoringEngine.score(entity);
         CustomerEntity savedEntity = customerRepository.save(entity);
         
         // Publish customer created event
@@ -88,83 +180,143 @@ public class CustomerService {
         return customerMapper.toDTO(savedEntity);
     }
 
+    /**
+     * Apply a partial update
+     * Nothing is written and no event is emitted when the request changes nothing;
+     * otherwise the event carries only the changed fields
+     */
+    @Transactional
     public CustomerDTO updateCustomer(Long id, UpdateCustomerRequest request) {
-        CustomerEntity entity = customerRepository.findById(id)
+        CustomerEntity entity = customerRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new CustomerNotFoundException("Customer not found with id: " + id));
         
+        Map<String, Object> before = trackedFields(entity);
         customerMapper.updateEntity(entity, request);
-        calculateCreditRiskScore(entity);
+        scoringEngine.score(entity);
+        Map<String, FieldChange> changes = FieldChange.diff(before, trackedFields(entity));
+        if (changes.isEmpty()) {
+            log.debug("Update of customer {} changed nothing, skipping write", id);
+            return customerMapper.toDTO(entity);
+        }
+        
         CustomerEntity updatedEntity = customerRepository.save(entity);
         
         // Publish customer updated event
-        publishCustomerUpdatedEvent(updatedEntity);
+        publishCustomerUpdatedEvent(updatedEntity, changes);
+        
+        // Refresh the local cache once committed; other replicas evict on the event
+        CustomerDTO customer = customerMapper.toDTO(updatedEntity);
+        afterCommit(() -> customerCache.put(customer));
         
-        return customerMapper.toDTO(updatedEntity);
+        return customer;
     }
 
+    @Transactional
     public void deleteCustomer(Long id) {
-        if (!customerRepository.existsById(id)) {
-            throw new CustomerNotFoundException("Customer not found with id: " + id);
-        }
-        customerRepository.deleteById(id);
+        CustomerEntity entity = customerRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new CustomerNotFoundException("Customer not found with id: " + id));
+        customerRepository.delete(entity);
         
         // Publish customer deleted event
         publishCustomerDeletedEvent(id);
+        
+        // Evicting earlier would let a concurrent read re-cache the row before the delete commits
+        afterCommit(() -> customerCache.evict(id));
     }
 
-    private void calculateCreditRiskScore(CustomerEntity entity) {
-        double creditScoreWeight = 0.7;
-        double salaryWeight = 0.3;
-        
-        double normalizedCreditScore = (entity.getCreditScore() - 300.0) / (850.0 - 300.0);
-        
-        double normalizedSalary = Math.min(entity.getAnnualSalary() / 200000.0, 1.0);
-        
-        double riskScore = 1.0 - ((normalizedCreditScore * creditScoreWeight) + (normalizedSalary * salaryWeight));
-        
-        entity.setCreditRiskScore(riskScore);
+    private int resolvePageSize(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (limit < 1) {
+            throw new InvalidRequestException("Limit must be at least 1");
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
     }
-    
+
+    /**
+     * Turn free text into a boolean-mode full-text query where every term is required
+     * Operator characters are stripped and terms shorter than the ngram size (2) are dropped.
+     * Exclusions ("-smith") are rejected rather than silently turned into required terms.
+     */
+    static String toBooleanModeQuery(String query) {
+        StringBuilder booleanQuery = new StringBuilder();
+        for (String term : query.trim().split("\\s+")) {
+            if (term.startsWith("-")) {
+                throw new InvalidRequestException("Excluding terms is not supported: " + term);
+            }
+            String cleaned = term.replaceAll("[+\\-<>()~*\"@]", "");
+            if (cleaned.length() < 2) {
+                continue;
+            }
+            if (booleanQuery.length() > 0) {
+                booleanQuery.append(' ');
+            }
+            booleanQuery.append("+\"").append(cleaned).append('"');
+        }
+        if (booleanQuery.length() == 0) {
+            throw new InvalidRequestException("Search query must contain at least one term of 2 or more characters");
+        }
+        return booleanQuery.toString();
+    }
+
     /**
-     * Publish an event when a customer is created
+     * Run a cache update once the current transaction commits, so a rollback never
+     * leaves data in the cache that no event will ever invalidate
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Fields compared to detect changes, in event order
+     */
+    private static Map<String, Object> trackedFields(CustomerEntity entity) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("firstName", entity.getFirstName());
+        fields.put("lastName", entity.getLastName());
+        fields.put("email", entity.getEmail());
+        fields.put("phoneNumber", entity.getPhoneNumber());
+        fields.put("creditScore", entity.getCreditScore());
+        fields.put("annualSalary", entity.getAnnualSalary());
+        fields.put("creditRiskScore", entity.getCreditRiskScore());
+        fields.put("creditRiskModelVersion", entity.getCreditRiskModelVersion());
+        return fields;
+    }
+
+    /**
+     * Record an event when a customer is created
      * Now using Factory pattern for event creation
      */
     private void publishCustomerCreatedEvent(CustomerEntity entity) {
-        try {
-            log.info("Publishing customer created event for customer ID: {}", entity.getId());
-            CustomerEvent event = eventFactory.createCustomerCreatedEvent(entity);
-            messagePublisherService.publishCustomerEvent(event);
-        } catch (Exception e) {
-            log.error("Failed to publish customer created event", e);
-        }
+        log.info("Recording customer created event for customer ID: {}", entity.getId());
+        outboxService.enqueue(eventFactory.createCustomerCreatedEvent(entity));
     }
     
     /**
-     * Publish an event when a customer is updated
+     * Record a delta event when a customer is updated
      * Now using Factory pattern for intelligent event creation
      */
-    private void publishCustomerUpdatedEvent(CustomerEntity entity) {
-        try {
-            log.info("Publishing customer updated event for customer ID: {}", entity.getId());
-            // Use high-value customer factory method for better business logic
-            CustomerEvent event = eventFactory.createHighValueCustomerEvent(entity);
-            messagePublisherService.publishCustomerEvent(event);
-        } catch (Exception e) {
-            log.error("Failed to publish customer updated event", e);
-        }
+    private void publishCustomerUpdatedEvent(CustomerEntity entity, Map<String, FieldChange> changes) {
+        log.info("Recording customer updated event for customer ID: {} (changed: {})", entity.getId(), changes.keySet());
+        outboxService.enqueue(eventFactory.createCustomerChangedEvent(entity, changes));
     }
     
     /**
-     * Publish an event when a customer is deleted
+     * Record an event when a customer is deleted
      * Now using Factory pattern for consistent event creation
      */
     private void publishCustomerDeletedEvent(Long customerId) {
-        try {
-            log.info("Publishing customer deleted event for customer ID: {}", customerId);
-            CustomerEvent event = eventFactory.createCustomerDeletedEvent(customerId);
-            messagePublisherService.publishCustomerEvent(event);
-        } catch (Exception e) {
-            log.error("Failed to publish customer deleted event", e);
-        }
+        log.info("Recording customer deleted event for customer ID: {}", customerId);
+        outboxService.enqueue(eventFactory.createCustomerDeletedEvent(customerId));
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,313 @@
+package com.credit.service;
+
+import com.credit.config.RabbitMQConfig;
+import com.credit.model.CustomerEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rabbitmq.client.GetResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.support.DefaultMessagePropertiesConverter;
+import org.springframework.amqp.rabbit.support.MessagePropertiesConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Retry and dead-letter handling for customer events
+ * A failed message is re-published to the delay queue of its backoff tier and comes
+ * back to its original queue when the delay expires; after max-attempts it goes to the
+ * DLQ with the failure in its headers. Failed messages leave the main queue right away,
+ * so a poison message never blocks other customers' messages behind it.
+ * Later events of the failed event's customer are held back in the same delay queue
+ * until it is processed or dead-lettered, so a delayed retry never applies older state
+ * over newer. Held-back customers are tracked in memory; a partition moving to another
+ * replica while a customer is held back can let its later events overtake the retry.
+ */
+@Service
+@Slf4j
+public class DeadLetterService {
+
+    public static final String ATTEMPT_HEADER = "x-retry-attempt";
+    public static final String EXCEPTION_CLASS_HEADER = "x-exception-class";
+    public static final String EXCEPTION_MESSAGE_HEADER = "x-exception-message";
+    public static final String FAILED_AT_HEADER = "x-failed-at";
+
+    private static final int MAX_HEADER_LENGTH = 1000;
+    private static final int REDRIVE_CHUNK = 500;
+
+    private final MessagePublisherService messagePublisherService;
+    private final RabbitTemplate rabbitTemplate;
+    private final AmqpAdmin amqpAdmin;
+    private final MessagePropertiesConverter propertiesConverter = new DefaultMessagePropertiesConverter();
+    private final long[] delaysMs;
+    private final int maxAttempts;
+    private final long publishTimeoutMs;
+    private final Counter retried;
+    private final Counter deadLettered;
+    private final Counter redriven;
+    private final Counter heldBack;
+    // Customer id -> the failed event its later events wait behind
+    private final Cache<Long, HeldCustomer> heldCustomers;
+
+    public DeadLetterService(MessagePublisherService messagePublisherService,
+                             RabbitTemplate rabbitTemplate,
+                             AmqpAdmin amqpAdmin,
+                             MeterRegistry meterRegistry,
+                             @Value("${messaging.retry.delays-ms:1000,10000,60000,300000}") long[] delaysMs,
+                             @Value("${messaging.retry.max-attempts:5}") int maxAttempts,
+                             @Value("${messaging.retry.publish-timeout-ms:5000}") long publishTimeoutMs) {
+        this.messagePublisherService = messagePublisherService;
+        this.rabbitTemplate = rabbitTemplate;
+        this.amqpAdmin = amqpAdmin;
+        this.delaysMs = delaysMs;
+        this.maxAttempts = maxAttempts;
+        this.publishTimeoutMs = publishTimeoutMs;
+        this.retried = meterRegistry.counter("messaging.consumer.retried");
+        this.deadLettered = meterRegistry.counter("messaging.consumer.dead.lettered");
+        this.redriven = meterRegistry.counter("messaging.consumer.redriven");
+        this.heldBack = meterRegistry.counter("messaging.consumer.held.back");
+        // Refreshed on every retry of the head event; expiry only frees customers whose retry got lost
+        long longestDelayMs = Arrays.stream(delaysMs).max().orElse(0);
+        this.heldCustomers = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(2 * longestDelayMs + publishTimeoutMs))
+                .build();
+    }
+
+    /**
+     * Hand off a failed customer event and hold its customer's later events back behind it
+     *
+     * @return A future completed once the broker has accepted the re-published message
+     */
+    public CompletableFuture<Void> retryOrDeadLetter(CustomerEvent event, Message message, Throwable failure) {
+        String retryQueue = retryQueueFor(message.getMessageProperties());
+        if (event.getCustomerId() != null && event.getEventId() != null) {
+            if (retryQueue == null) {
+                heldCustomers.invalidate(event.getCustomerId());
+            } else {
+                heldCustomers.put(event.getCustomerId(), new HeldCustomer(event.getEventId(), retryQueue));
+            }
+        }
+        return retryOrDeadLetter(message, failure);
+    }
+
+    /**
+     * Re-publish an event behind its customer's failed event if that one is still being retried
+     * The attempt count is left alone since this event did not fail itself.
+     *
+     * @return A future completed once the broker has accepted the message, or null when
+     * the event can be processed now
+     */
+    public CompletableFuture<Void> holdBackIfBlocked(CustomerEvent event, Message message) {
+        if (event.getCustomerId() == null) {
+            return null;
+        }
+        HeldCustomer held = heldCustomers.getIfPresent(event.getCustomerId());
+        if (held == null || held.eventId.equals(event.getEventId())) {
+            return null;
+        }
+        MessageProperties properties = message.getMessageProperties();
+        properties.setHeader(RabbitMQConfig.TARGET_QUEUE_HEADER, targetQueueOf(properties));
+        properties.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+        heldBack.increment();
+        log.debug("Holding back event {} of customer {} behind failed event {}",
+                event.getEventId(), event.getCustomerId(), held.eventId);
+        return messagePublisherService.publishRaw("", held.retryQueue, message);
+    }
+
+    /**
+     * @return whether an event of the customer is being retried and its later events wait behind it
+     */
+    public boolean isHeldBack(Long customerId) {
+        return customerId != null && heldCustomers.getIfPresent(customerId) != null;
+    }
+
+    /**
+     * Let a customer's events through again once the event they waited behind was processed
+     */
+    public void release(CustomerEvent event) {
+        if (event.getCustomerId() == null) {
+            return;
+        }
+        HeldCustomer held = heldCustomers.getIfPresent(event.getCustomerId());
+        if (held != null && held.eventId.equals(event.getEventId())) {
+            heldCustomers.invalidate(event.getCustomerId());
+        }
+    }
+
+    /**
+     * Schedule another attempt for a failed message, or dead-letter it after the last one
+     *
+     * @return A future completed once the broker has accepted the re-published message
+     */
+    public CompletableFuture<Void> retryOrDeadLetter(Message message, Throwable failure) {
+        MessageProperties properties = message.getMessageProperties();
+        int attempt = attemptOf(properties) + 1;
+        if (attempt >= maxAttempts) {
+            return deadLetter(message, failure);
+        }
+        long delayMs = delayFor(attempt);
+        properties.setHeader(ATTEMPT_HEADER, attempt);
+        properties.setHeader(RabbitMQConfig.TARGET_QUEUE_HEADER, targetQueueOf(properties));
+        properties.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+        retried.increment();
+        log.warn("Customer event failed (attempt {}), retrying in {} ms: {}", attempt, delayMs, failure.getMessage());
+        return messagePublisherService.publishRaw("", RabbitMQConfig.retryQueueName(delayMs), message);
+    }
+
+    /**
+     * Move a message to the DLQ with the failure recorded in its headers
+     *
+     * @return A future completed once the broker has accepted the message
+     */
+    public CompletableFuture<Void> deadLetter(Message message, Throwable failure) {
+        MessageProperties properties = message.getMessageProperties();
+        properties.setHeader(RabbitMQConfig.TARGET_QUEUE_HEADER, targetQueueOf(properties));
+        properties.setHeader(EXCEPTION_CLASS_HEADER, failure.getClass().getName());
+        properties.setHeader(EXCEPTION_MESSAGE_HEADER, truncate(String.valueOf(failure.getMessage())));
+        properties.setHeader(FAILED_AT_HEADER, Instant.now().toString());
+        properties.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+        deadLettered.increment();
+        log.error("Customer event dead-lettered after {} attempts: {}", attemptOf(properties) + 1, failure.getMessage());
+        return messagePublisherService.publishRaw("", RabbitMQConfig.DEAD_LETTER_QUEUE_NAME, message);
+    }
+
+    /**
+     * Wait until every re-published message is confirmed
+     *
+     * @throws AmqpException if any of them was not, so the caller can reject the batch
+     */
+    public void awaitHandoffs(List<CompletableFuture<Void>> handoffs) {
+        if (handoffs.isEmpty()) {
+            return;
+        }
+        try {
+            CompletableFuture.allOf(handoffs.toArray(new CompletableFuture[0]))
+                    .get(publishTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmqpException("Interrupted while re-publishing failed messages");
+        } catch (ExecutionException e) {
+            throw new AmqpException("Failed to re-publish failed messages", e.getCause());
+        } catch (TimeoutException e) {
+            throw new AmqpException("Timed out re-publishing failed messages");
+        }
+    }
+
+    /**
+     * Send up to max dead-lettered messages back to their original queue with a fresh
+     * attempt count. Messages are taken in chunks and only acked from the DLQ once the
+     * broker confirmed the re-published copies.
+     *
+     * @return The number of messages re-driven
+     */
+    public int redrive(int max) {
+        Integer total = rabbitTemplate.execute(channel -> {
+            int count = 0;
+            while (count < max) {
+                List<CompletableFuture<Void>> handoffs = new ArrayList<>();
+                long lastDeliveryTag = -1;
+                while (handoffs.size() < Math.min(REDRIVE_CHUNK, max - count)) {
+                    GetResponse response = channel.basicGet(RabbitMQConfig.DEAD_LETTER_QUEUE_NAME, false);
+                    if (response == null) {
+                        break;
+                    }
+                    lastDeliveryTag = response.getEnvelope().getDeliveryTag();
+                    MessageProperties properties = propertiesConverter.toMessageProperties(
+                            response.getProps(), response.getEnvelope(), StandardCharsets.UTF_8.name());
+                    String target = targetQueueOf(properties);
+                    Map<String, Object> headers = properties.getHeaders();
+                    headers.remove(ATTEMPT_HEADER);
+                    headers.remove(EXCEPTION_CLASS_HEADER);
+                    headers.remove(EXCEPTION_MESSAGE_HEADER);
+                    headers.remove(FAILED_AT_HEADER);
+                    properties.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+                    handoffs.add(messagePublisherService.publishRaw("", target, new Message(response.getBody(), properties)));
+                }
+                if (handoffs.isEmpty()) {
+                    break;
+                }
+                try {
+                    awaitHandoffs(handoffs);
+                } catch (AmqpException e) {
+                    // Put the chunk back; some copies may already be out, consumers dedupe on event id
+                    channel.basicNack(lastDeliveryTag, true, true);
+                    throw e;
+                }
+                channel.basicAck(lastDeliveryTag, true);
+                count += handoffs.size();
+            }
+            return count;
+        });
+        int count = total == null ? 0 : total;
+        redriven.increment(count);
+        log.info("Re-drove {} dead-lettered customer events", count);
+        return count;
+    }
+
+    /**
+     * @return the number of messages waiting in the DLQ
+     */
+    public long deadLetterCount() {
+        QueueInformation info = amqpAdmin.getQueueInfo(RabbitMQConfig.DEAD_LETTER_QUEUE_NAME);
+        return info == null ? 0 : info.getMessageCount();
+    }
+
+    /**
+     * @return the delay queue of the message's next attempt, or null if it would be dead-lettered
+     */
+    private String retryQueueFor(MessageProperties properties) {
+        int attempt = attemptOf(properties) + 1;
+        return attempt >= maxAttempts ? null : RabbitMQConfig.retryQueueName(delayFor(attempt));
+    }
+
+    private long delayFor(int attempt) {
+        return delaysMs[Math.min(attempt - 1, delaysMs.length - 1)];
+    }
+
+    private static int attemptOf(MessageProperties properties) {
+        Object attempt = properties.getHeaders().get(ATTEMPT_HEADER);
+        return attempt instanceof Number ? ((Number) attempt).intValue() : 0;
+    }
+
+    private static String targetQueueOf(MessageProperties properties) {
+        Object target = properties.getHeaders().get(RabbitMQConfig.TARGET_QUEUE_HEADER);
+        if (target != null) {
+            return target.toString();
+        }
+        return properties.getConsumerQueue() != null ? properties.getConsumerQueue() : RabbitMQConfig.QUEUE_NAME;
+    }
+
+    private static String truncate(String value) {
+        return value.length() <= MAX_HEADER_LENGTH ? value : value.substring(0, MAX_HEADER_LENGTH);
+    }
+
+    private static final class HeldCustomer {
+        private final String eventId;
+        private final String retryQueue;
+
+        private HeldCustomer(String eventId, String retryQueue) {
+            this.eventId = eventId;
+            this.retryQueue = retryQueue;
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.credit.service;
+
+import com.credit.config.RabbitMQConfig;
+import com.credit.dto.EventReplayRequest;
+import com.credit.dto.EventReplayStatus;
+import com.credit.exception.InvalidRequestException;
+import com.credit.exception.PublisherBackpressureException;
+import com.credit.messaging.CustomerEventPartitioner;
+import com.credit.model.OutboxMessage;
+import com.credit.repository.CustomerEventLogRepository;
+import com.credit.support.RateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes a range of the customer event log back onto the service exchange
+ * Used to rebuild downstream state or bootstrap a new consumer. The range is read by
+ * several workers in parallel, each owning a share of the log's replay partitions and
+ * so of the customers, so every customer's events are replayed in their original order.
+ * Replayed messages keep their event ids and carry the x-replayed header, which makes
+ * consumers process them again instead of dropping them as duplicates. All workers share one rate limit and a
+ * page is only advanced past once the broker confirmed it. One replay runs at a time.
+ */
+@Service
+@Slf4j
+public class EventReplayService {
+
+    public static final String REPLAY_HEADER = "x-replayed";
+
+    private final CustomerEventLogRepository eventLogRepository;
+    private final MessagePublisherService messagePublisherService;
+    private final CustomerEventPartitioner partitioner;
+    private final Counter replayed;
+    private final double defaultRatePerSecond;
+    private final int defaultWorkers;
+    private final int pageSize;
+    private final long confirmTimeoutMs;
+
+    private volatile ReplayJob current;
+
+    public EventReplayService(CustomerEventLogRepository eventLogRepository,
+                              MessagePublisherService messagePublisherService,
+                              CustomerEventPartitioner partitioner,
+                              MeterRegistry meterRegistry,
+                              @Value("${event-log.replay.rate-per-second:1000}") double defaultRatePerSecond,
+                              @Value("${event-log.replay.workers:4}") int defaultWorkers,
+                              @Value("${event-log.replay.page-size:500}") int pageSize,
+                              @Value("${event-log.replay.confirm-timeout-ms:30000}") long confirmTimeoutMs) {
+        this.eventLogRepository = eventLogRepository;
+        this.messagePublisherService = messagePublisherService;
+        this.partitioner = partitioner;
+        this.replayed = meterRegistry.counter("event.log.replayed");
+        this.defaultRatePerSecond = defaultRatePerSecond;
+        this.defaultWorkers = defaultWorkers;
+        this.pageSize = pageSize;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+    }
+
+    /**
+     * Start replaying a range in the background
+     *
+     * @throws InvalidRequestException if the range is invalid or a replay is already running
+     */
+    public synchronized EventReplayStatus start(EventReplayRequest request) {
+        if (current != null && current.state == EventReplayStatus.State.RUNNING) {
+            throw new InvalidRequestException("A replay is already running");
+        }
+        if (request.getFromId() != null && request.getFrom() != null
+                || request.getToId() != null && request.getTo() != null) {
+            throw new InvalidRequestException("Give either an id range or a time range, not both");
+        }
+        long fromId = resolveFromId(request);
+        long toId = resolveToId(request);
+        if (toId < fromId) {
+            throw new InvalidRequestException("The range contains no events");
+        }
+        double rate = request.getRatePerSecond() != null ? request.getRatePerSecond() : defaultRatePerSecond;
+        int workers = request.getWorkers() != null ? request.getWorkers() : defaultWorkers;
+
+        ReplayJob job = new ReplayJob(fromId, toId, rate, workers, request.getRoutingKey());
+        current = job;
+        log.info("Replaying customer events {}..{} at {}/s with {} workers", fromId, toId, rate, workers);
+        RateLimiter limiter = new RateLimiter(rate);
+        AtomicInteger threadIds = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "event-replay-" + threadIds.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<CompletableFuture<Void>> runs = new ArrayList<>(workers);
+        for (int worker = 0; worker < workers; worker++) {
+            int share = worker;
+            runs.add(CompletableFuture.runAsync(() -> replayShare(job, share, limiter), executor));
+        }
+        CompletableFuture.allOf(runs.toArray(new CompletableFuture[0])).whenComplete((ignored, failure) -> {
+            executor.shutdown();
+            job.finish(failure);
+            log.info("Replay {}..{} finished as {} after {} events", fromId, toId, job.state, job.published.get());
+        });
+        return job.toStatus();
+    }
+
+    public EventReplayStatus status() {
+        ReplayJob job = current;
+        return job == null ? EventReplayStatus.builder().state(EventReplayStatus.State.IDLE).build() : job.toStatus();
+    }
+
+    /**
+     * Stop the running replay after the page each worker is on
+     */
+    public EventReplayStatus cancel() {
+        ReplayJob job = current;
+        if (job != null) {
+            job.cancelled = true;
+        }
+        return status();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cancel();
+    }
+
+    private long resolveFromId(EventReplayRequest request) {
+        if (request.getFromId() != null) {
+            return request.getFromId();
+        }
+        if (request.getFrom() != null) {
+            Long first = eventLogRepository.findFirstIdFrom(request.getFrom());
+            return first != null ? first : Long.MAX_VALUE;
+        }
+        return 1;
+    }
+
+    private long resolveToId(EventReplayRequest request) {
+        Long toId = request.getToId();
+        if (toId == null && request.getTo() != null) {
+            toId = eventLogRepository.findLastIdBefore(request.getTo());
+            return toId != null ? toId : 0;
+        }
+        // Never chase events written after the replay started
+        Long last = eventLogRepository.findLastId();
+        long lastId = last != null ? last : 0;
+        return toId != null ? Math.min(toId, lastId) : lastId;
+    }
+
+    /**
+     * Replay the partitions owned by one worker, one partition at a time
+     */
+    private void replayShare(ReplayJob job, int worker, RateLimiter limiter) {
+        try {
+            for (int partition = worker; partition < CustomerEventLogRepository.PARTITIONS && !job.cancelled;
+                 partition += job.workers) {
+                replayPartition(job, partition, limiter);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.cancelled = true;
+            throw new AmqpException("Interrupted while replaying customer events");
+        } catch (RuntimeException e) {
+            // Stop the other workers too; the status reports how far the replay got
+            job.cancelled = true;
+            throw e;
+        }
+    }
+
+    private void replayPartition(ReplayJob job, int partition, RateLimiter limiter) throws InterruptedException {
+        long cursor = job.fromId - 1;
+        while (!job.cancelled) {
+            List<OutboxMessage> page = eventLogRepository.findPage(partition, cursor, job.toId, pageSize);
+            if (page.isEmpty()) {
+                return;
+            }
+            List<CompletableFuture<Void>> confirms = new ArrayList<>(page.size());
+            for (OutboxMessage message : page) {
+                limiter.acquire();
+                confirms.add(publish(job, message));
+            }
+            awaitConfirms(confirms);
+            job.published.addAndGet(page.size());
+            replayed.increment(page.size());
+            cursor = page.get(page.size() - 1).getId();
+        }
+    }
+
+    /**
+     * Hand one message to the publisher, waiting out a full publisher queue so a replay
+     * never pushes live traffic into backpressure errors
+     */
+    private CompletableFuture<Void> publish(ReplayJob job, OutboxMessage row) throws InterruptedException {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(row.getContentType());
+        properties.setMessageId("event-log-" + row.getId());
+        properties.setHeader(REPLAY_HEADER, true);
+        if (row.getTypeId() != null) {
+            properties.setHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME, row.getTypeId());
+        }
+        Message message = new Message(row.getPayload(), properties);
+        // Partition keys are recomputed so a replay follows the current partition count
+        String routingKey = job.routingKey != null ? job.routingKey : partitioner.routingKeyFor(row.getAggregateId());
+        while (true) {
+            try {
+                return messagePublisherService.publishRaw(RabbitMQConfig.EXCHANGE_NAME, routingKey, message);
+            } catch (PublisherBackpressureException e) {
+                TimeUnit.MILLISECONDS.sleep(50);
+            }
+        }
+    }
+
+    private void awaitConfirms(List<CompletableFuture<Void>> confirms) throws InterruptedException {
+        try {
+            CompletableFuture.allOf(confirms.toArray(new CompletableFuture[0]))
+                    .get(confirmTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new AmqpException("Replayed events were not confirmed", e.getCause());
+        } catch (TimeoutException e) {
+            throw new AmqpException("Timed out waiting for replay confirms");
+        }
+    }
+
+    private static final class ReplayJob {
+        private final long fromId;
+        private final long toId;
+        private final double ratePerSecond;
+        private final int workers;
+        private final String routingKey;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final AtomicLong published = new AtomicLong();
+        private volatile boolean cancelled;
+        private volatile EventReplayStatus.State state = EventReplayStatus.State.RUNNING;
+        private volatile LocalDateTime finishedAt;
+        private volatile String error;
+
+        private ReplayJob(long fromId, long toId, double ratePerSecond, int workers, String routingKey) {
+            this.fromId = fromId;
+            this.toId = toId;
+            this.ratePerSecond = ratePerSecond;
+            this.workers = workers;
+            this.routingKey = routingKey;
+        }
+
+        private void finish(Throwable failure) {
+            if (failure != null) {
+                Throwable cause = failure.getCause() != null ? failure.getCause() : failure;
+                error = cause.getMessage();
+                state = EventReplayStatus.State.FAILED;
+            } else {
+                state = cancelled ? EventReplayStatus.State.CANCELLED : EventReplayStatus.State.COMPLETED;
+            }
+            finishedAt = LocalDateTime.now();
+        }
+
+        private EventReplayStatus toStatus() {
+            return EventReplayStatus.builder()
+                    .state(state)
+                    .fromId(fromId)
+                    .toId(toId)
+                    .ratePerSecond(ratePerSecond)
+                    .workers(workers)
+                    .published(published.get())
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .error(error)
+                    .build();
+        }
+    }
+}
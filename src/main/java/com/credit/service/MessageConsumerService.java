@@ -1,19 +1,40 @@
 package com.credit.service;
 
 import com.credit.config.RabbitMQConfig;
+import com.credit.messaging.CustomerEventPartitioner;
+import com.credit.messaging.EventDeduplicator;
+import com.credit.messaging.LocalEventBus;
 import com.credit.model.CustomerEvent;
+import com.credit.support.KeyOrderedExecutor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.QueueInformation;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Service that consumes messages from RabbitMQ
@@ -25,47 +46,271 @@ import java.util.Map;
 public class MessageConsumerService {
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private CustomerCache customerCache;
+    
+    @Autowired
+    private AmqpAdmin amqpAdmin;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private CustomerEventPartitioner partitioner;
+    
+    @Autowired
+    private EventDeduplicator eventDeduplicator;
+    
+    @Autowired
+    private DeadLetterService deadLetterService;
+    
+    @Autowired
+    private MessageConverter messageConverter;
+    
+    @Autowired
+    private LocalEventBus localEventBus;
+    
+    @Value("${messaging.consumer.workers:8}")
+    private int workers;
+    
+    // Runs one customer's events in order while different customers run in parallel
+    private KeyOrderedExecutor customerExecutor;
+    private final AtomicLong backlog = new AtomicLong();
+    // Customer id -> last event skipped on the local bus; that customer's events go through
+    // the broker only until the broker has handled that event
+    private final Map<Long, String> brokerOnly = new ConcurrentHashMap<>();
+    private Counter eventsConsumed;
+    private DistributionSummary batchSizes;
+    private Timer batchTimer;
+    private Timer eventAge;
     
     @PostConstruct
     public void init() {
-        // Always register JavaTimeModule to ensure proper datetime handling
-        log.info("Registering JavaTimeModule for MessageConsumerService");
-        objectMapper.registerModule(new JavaTimeModule());
-        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        customerExecutor = new KeyOrderedExecutor("customer-events", workers);
+        eventsConsumed = Counter.builder("messaging.consumer.events")
+                .tag("queue", RabbitMQConfig.QUEUE_NAME)
+                .register(meterRegistry);
+        batchSizes = DistributionSummary.builder("messaging.consumer.batch.size")
+                .tag("queue", RabbitMQConfig.QUEUE_NAME)
+                .register(meterRegistry);
+        batchTimer = Timer.builder("messaging.consumer.batch.duration")
+                .tag("queue", RabbitMQConfig.QUEUE_NAME)
+                .register(meterRegistry);
+        eventAge = Timer.builder("messaging.consumer.event.age")
+                .description("Time from event creation to consumption")
+                .tag("queue", RabbitMQConfig.QUEUE_NAME)
+                .register(meterRegistry);
+        Gauge.builder("messaging.consumer.backlog", backlog, AtomicLong::get)
+                .description("Messages ready in the queue, refreshed periodically")
+                .tag("queue", RabbitMQConfig.QUEUE_NAME)
+                .register(meterRegistry);
+        if (localEventBus.isEnabled()) {
+            localEventBus.subscribe(this::receiveLocalEvent);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        customerExecutor.close();
     }
 
     /**
-     * Listen for messages on the customer-events queue
+     * Listen for batches of messages on the customer event partition queues
+     * (plus the original customer-events queue while it drains)
+     * Events are fanned out by customer id. A failing event is moved to its retry tier
+     * (or the DLQ) instead of failing the batch, and the customer's later events are held
+     * back behind it so they are never applied before it. The batch is acked in one go
+     * once every event is either processed or handed off
      * 
-     * @param event The customer event received from the queue
+     * @param messages The raw messages received from the queue
+     */
+    @RabbitListener(queues = {RabbitMQConfig.QUEUE_NAME, "#{customerEventPartitioner.queueNames()}"},
+            containerFactory = "customerEventBatchContainerFactory")
+    public void receiveCustomerEvents(List<Message> messages) {
+        List<CompletableFuture<Void>> handoffs = Collections.synchronizedList(new ArrayList<>());
+        Map<CustomerEvent, Message> sources = new IdentityHashMap<>();
+        List<CustomerEvent> events = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            try {
+                CustomerEvent event = (CustomerEvent) messageConverter.fromMessage(message);
+                sources.put(event, message);
+                events.add(event);
+            } catch (RuntimeException e) {
+                // Retrying cannot fix a message that does not decode
+                handoffs.add(deadLetterService.deadLetter(message, e));
+            }
+        }
+        
+        // Redeliveries are dropped before any work is done; ids are recorded only
+        // for events that were processed successfully. Replays resend processed events
+        // with their original ids on purpose, so they are never dropped.
+        List<CustomerEvent> fresh = eventDeduplicator.filterUnprocessed(events,
+                event -> sources.get(event).getMessageProperties().getHeaders()
+                        .containsKey(EventReplayService.REPLAY_HEADER));
+        List<CustomerEvent> processed = Collections.synchronizedList(new ArrayList<>(fresh.size()));
+        batchTimer.record(() -> CompletableFuture.allOf(fresh.stream()
+                        .map(event -> customerExecutor.submit(event.getCustomerId(),
+                                () -> handleInOrder(event, sources.get(event), processed, handoffs)))
+                        .toArray(CompletableFuture[]::new))
+                .join());
+        
+        eventDeduplicator.markProcessed(processed);
+        // Only ack once the failed messages are safely in their retry queue or the DLQ
+        deadLetterService.awaitHandoffs(handoffs);
+        
+        eventsConsumed.increment(messages.size());
+        batchSizes.record(messages.size());
+        log.debug("Processed batch of {} customer events ({} handed off)", messages.size(), handoffs.size());
+    }
+
+    /**
+     * Process one event on its customer's lane, or hand it off
+     * Runs after the customer's earlier events in the batch, so a failure of one of them
+     * has already marked the customer as held back.
+     */
+    private void handleInOrder(CustomerEvent event, Message source,
+                               List<CustomerEvent> processed, List<CompletableFuture<Void>> handoffs) {
+        CompletableFuture<Void> heldBack = deadLetterService.holdBackIfBlocked(event, source);
+        if (heldBack != null) {
+            handoffs.add(heldBack);
+            return;
+        }
+        try {
+            processCustomerEvent(event);
+        } catch (RuntimeException e) {
+            handoffs.add(deadLetterService.retryOrDeadLetter(event, source, e));
+            return;
+        }
+        deadLetterService.release(event);
+        processed.add(event);
+        catchUp(event);
+    }
+
+    /**
+     * Let the local bus deliver a customer's events again once the broker handled the last one it skipped
      */
-    @RabbitListener(queues = RabbitMQConfig.QUEUE_NAME)
-    public void receiveCustomerEvent(CustomerEvent event) {
+    private void catchUp(CustomerEvent event) {
+        if (event.getCustomerId() != null && event.getEventId() != null) {
+            brokerOnly.remove(event.getCustomerId(), event.getEventId());
+        }
+    }
+
+    /**
+     * Receive an event written by this replica straight from the in-process bus
+     * This is only a fast path: the broker copy of every event still reaches the partition
+     * listener, which drops it by event id once it was processed here. When local processing
+     * fails, the customer's events are left to the broker (with its retries and DLQ) until it
+     * has caught up, so a later event is never applied locally ahead of the failed one.
+     */
+    private void receiveLocalEvent(CustomerEvent event) {
+        Long customerId = event.getCustomerId();
+        if (customerId == null || event.getEventId() == null) {
+            // Without an id the broker copy cannot be deduplicated, so let the broker handle it
+            return;
+        }
+        if (brokerOnly.computeIfPresent(customerId, (id, skipped) -> event.getEventId()) != null) {
+            return;
+        }
+        if (deadLetterService.isHeldBack(customerId)) {
+            // An earlier event of this customer is being retried through the broker
+            brokerOnly.put(customerId, event.getEventId());
+            return;
+        }
+        if (eventDeduplicator.filterUnprocessed(Collections.singletonList(event)).isEmpty()) {
+            return;
+        }
+        try {
+            processCustomerEvent(event);
+        } catch (RuntimeException e) {
+            brokerOnly.put(customerId, event.getEventId());
+            log.warn("Local delivery of event {} failed, customer {} falls back to the broker: {}",
+                    event.getEventId(), customerId, e.getMessage());
+            return;
+        }
+        eventDeduplicator.markProcessed(Collections.singletonList(event));
+    }
+
+    private void processCustomerEvent(CustomerEvent event) {
+        recordAge(event);
+        
+        // In a real application, we would process the event here
+        // For example, we might update a cache, send a notification, etc.
+        switch (event.getEventType()) {
+            case CREATED:
+                log.debug("Processing CUSTOMER CREATED event for customer ID: {}", event.getCustomerId());
+                // Handle customer created event
+                break;
+            case UPDATED:
+            case CREDIT_SCORE_UPDATED:
+                log.debug("Processing CUSTOMER UPDATED event for customer ID: {}", event.getCustomerId());
+                // Handle customer updated event
+                break;
+            case DELETED:
+                log.debug("Processing CUSTOMER DELETED event for customer ID: {}", event.getCustomerId());
+                // Handle customer deleted event
+                break;
+            default:
+                log.warn("⚠️ Unknown event type: {}", event.getEventType());
+        }
+    }
+
+    private void recordAge(CustomerEvent event) {
+        if (event.getTimestamp() == null) {
+            return;
+        }
         try {
-            String eventJson = objectMapper.writeValueAsString(event);
-            log.info("✅ RECEIVED EVENT: {}", eventJson);
-            
-            // In a real application, we would process the event here
-            // For example, we might update a cache, send a notification, etc.
-            switch (event.getEventType()) {
-                case CREATED:
-                    log.info("👤 Processing CUSTOMER CREATED event for customer ID: {}", event.getCustomerId());
-                    // Handle customer created event
-                    break;
-                case UPDATED:
-                    log.info("📝 Processing CUSTOMER UPDATED event for customer ID: {}", event.getCustomerId());
-                    // Handle customer updated event
-                    break;
-                case DELETED:
-                    log.info("🗑️ Processing CUSTOMER DELETED event for customer ID: {}", event.getCustomerId());
-                    // Handle customer deleted event
-                    break;
-                default:
-                    log.warn("⚠️ Unknown event type: {}", event.getEventType());
+            // Events carry a local timestamp from a replica of this service, so the clocks match
+            Duration age = Duration.between(LocalDateTime.parse(event.getTimestamp()), LocalDateTime.now());
+            if (!age.isNegative()) {
+                eventAge.record(age);
             }
-        } catch (JsonProcessingException e) {
-            log.error("❌ Error processing event: {}", e.getMessage());
+        } catch (DateTimeParseException e) {
+            log.debug("Ignoring unparseable event timestamp: {}", event.getTimestamp());
+        }
+    }
+
+    /**
+     * Refresh the customer-events backlog gauge from the broker
+     * The gauge is the total across the original queue and every partition queue
+     */
+    @Scheduled(fixedDelayString = "${messaging.consumer.backlog-refresh-ms:5000}")
+    public void refreshBacklog() {
+        long total = queueDepth(RabbitMQConfig.QUEUE_NAME);
+        for (String queueName : partitioner.queueNames()) {
+            total += queueDepth(queueName);
+        }
+        backlog.set(total);
+    }
+
+    private long queueDepth(String queueName) {
+        try {
+            QueueInformation info = amqpAdmin.getQueueInfo(queueName);
+            return info == null ? 0 : info.getMessageCount();
+        } catch (Exception e) {
+            log.debug("Could not read queue depth for {}: {}", queueName, e.getMessage());
+            return 0;
+        }
+    }
+    
+    /**
+     * Keep the local customer cache coherent with writes made on any replica
+     * Consumes from this replica's own anonymous queue, so every replica sees every event
+     * 
+     * @param event The customer event received from the queue
+     */
+    @RabbitListener(queues = "#{customerCacheQueue.name}")
+    public void receiveCacheInvalidation(CustomerEvent event) {
+        if (event.getCustomerId() == null) {
+            return;
+        }
+        switch (event.getEventType()) {
+            case CREATED:
+            case UPDATED:
+            case CREDIT_SCORE_UPDATED:
+            case DELETED:
+                customerCache.evict(event.getCustomerId());
+                break;
+            default:
+                log.warn("⚠️ Unknown event type: {}", event.getEventType());
         }
     }
     
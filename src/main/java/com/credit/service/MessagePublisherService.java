@@ -1,74 +1,292 @@
 package com.credit.service;
 
+import com.credit.config.MessagingProperties;
 import com.credit.config.RabbitMQConfig;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import lombok.RequiredArgsConstructor;
+import com.credit.exception.PublisherBackpressureException;
+import com.credit.messaging.CustomerEventPartitioner;
+import com.credit.model.CustomerEvent;
+import com.credit.model.OutboxMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Asynchronous RabbitMQ publisher
+ * Callers only put the message on a bounded queue; a dedicated sender thread converts
+ * it, publishes batches on a single channel and completes each caller's future when
+ * the broker confirms it. Nacked, unsent and unroutable (returned) messages fail their
+ * future and are never re-queued here: re-sending one message at the tail of the queue
+ * would let later events for the same customer overtake it. Callers that need delivery
+ * retry in order themselves - OutboxRelay rolls the batch back and resends it from the
+ * oldest row. When the queue stays full callers get a PublisherBackpressureException
+ * instead of blocking forever.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class MessagePublisherService {
 
     private final RabbitTemplate rabbitTemplate;
-    
-    @Autowired
-    private ObjectMapper objectMapper;
-    
+    private final MessagingProperties messagingProperties;
+    private final CustomerEventPartitioner partitioner;
+    private final BlockingQueue<PendingPublish> queue;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+    private final int batchSize;
+    private final long enqueueTimeoutMs;
+    private final Counter confirmed;
+    private final Counter nacked;
+    private final Counter returned;
+    private final Counter sendFailed;
+    private final Counter rejected;
+
+    private volatile boolean running;
+    private Thread sender;
+
+    public MessagePublisherService(RabbitTemplate rabbitTemplate,
+                                   MessagingProperties messagingProperties,
+                                   CustomerEventPartitioner partitioner,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${messaging.publisher.queue-capacity:50000}") int queueCapacity,
+                                   @Value("${messaging.publisher.max-in-flight:5000}") int maxInFlight,
+                                   @Value("${messaging.publisher.batch-size:500}") int batchSize,
+                                   @Value("${messaging.publisher.enqueue-timeout-ms:100}") long enqueueTimeoutMs) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.messagingProperties = messagingProperties;
+        this.partitioner = partitioner;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.inFlight = new Semaphore(maxInFlight);
+        this.maxInFlight = maxInFlight;
+        // A batch must fit in the in-flight window or the sender could never acquire it
+        this.batchSize = Math.min(batchSize, maxInFlight);
+        this.enqueueTimeoutMs = enqueueTimeoutMs;
+
+        Gauge.builder("messaging.publisher.queued", queue, BlockingQueue::size)
+                .description("Messages waiting for the sender thread")
+                .register(meterRegistry);
+        Gauge.builder("messaging.publisher.in.flight", inFlight, permits -> maxInFlight - permits.availablePermits())
+                .description("Messages sent but not yet confirmed by the broker")
+                .register(meterRegistry);
+        this.confirmed = meterRegistry.counter("messaging.publisher.confirmed");
+        this.nacked = meterRegistry.counter("messaging.publisher.nacked");
+        this.returned = meterRegistry.counter("messaging.publisher.returned");
+        this.sendFailed = meterRegistry.counter("messaging.publisher.send.failed");
+        this.rejected = meterRegistry.counter("messaging.publisher.rejected");
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        sender = new Thread(this::runSender, "rabbit-publisher");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
     /**
-     * Initialize the service with properly configured ObjectMapper
+     * Stop accepting messages, let the sender drain what is queued and fail anything left
      */
-    @PostConstruct
-    public void init() {
-        // Always register JavaTimeModule to ensure proper datetime handling
-        log.info("Registering JavaTimeModule for datetime handling");
-        objectMapper.registerModule(new JavaTimeModule());
-        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        sender.join(TimeUnit.SECONDS.toMillis(10));
+        PendingPublish publish;
+        while ((publish = queue.poll()) != null) {
+            publish.future.completeExceptionally(new AmqpException("Publisher shut down before the message was sent"));
+        }
     }
 
     /**
      * Publish a message to RabbitMQ
-     * 
+     *
      * @param routingKey The routing key to use (determines which queue receives the message)
      * @param message The message object to send
+     * @return A future completed when the broker confirms the message
+     * @throws PublisherBackpressureException if the publish queue is full
+     */
+    public CompletableFuture<Void> publishMessage(String routingKey, Object message) {
+        return enqueue(new PendingPublish(RabbitMQConfig.EXCHANGE_NAME, routingKey, message));
+    }
+
+    /**
+     * Publish a customer event message to its customer's partition
+     *
+     * @param event The event to publish
+     * @return A future completed when the broker confirms the message
+     */
+    public CompletableFuture<Void> publishCustomerEvent(CustomerEvent event) {
+        return publishMessage(partitioner.routingKeyFor(event.getCustomerId()), event);
+    }
+
+    /**
+     * Publish an already encoded message to any exchange, e.g. to re-route a consumed message
+     *
+     * @return A future completed when the broker confirms the message
      */
-    public void publishMessage(String routingKey, Object message) {
+    public CompletableFuture<Void> publishRaw(String exchange, String routingKey, Message message) {
+        return enqueue(new PendingPublish(exchange, routingKey, message));
+    }
+
+    /**
+     * Publish a pre-encoded outbox message
+     *
+     * @param message The outbox row to publish
+     * @return A future completed when the broker confirms the message
+     */
+    public CompletableFuture<Void> publishOutboxMessage(OutboxMessage message) {
+        return enqueue(new PendingPublish(message.getExchange(), message.getRoutingKey(), toAmqpMessage(message)));
+    }
+
+    private CompletableFuture<Void> enqueue(PendingPublish publish) {
+        if (!running) {
+            throw new IllegalStateException("Message publisher is not running");
+        }
         try {
-            log.info("Publishing message with routing key: {}", routingKey);
-            
-            // Log message content for debugging
+            if (!queue.offer(publish, enqueueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                throw new PublisherBackpressureException("Message publisher is saturated, try again later");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PublisherBackpressureException("Interrupted while waiting for publisher queue space");
+        }
+        return publish.future;
+    }
+
+    private void runSender() {
+        List<PendingPublish> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
             try {
-                String messageJson = objectMapper.writeValueAsString(message);
-                log.debug("Message content: {}", messageJson);
-            } catch (JsonProcessingException e) {
-                log.warn("Could not serialize message for logging", e);
+                PendingPublish first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                sendBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Unexpected error in publisher sender thread", e);
+            } finally {
+                batch.clear();
             }
-            
-            // Send the message
-            rabbitTemplate.convertAndSend(RabbitMQConfig.EXCHANGE_NAME, routingKey, message);
-            log.info("Message published successfully");
+        }
+    }
+
+    /**
+     * Send a batch on one channel without waiting; confirms complete the futures
+     */
+    private void sendBatch(List<PendingPublish> batch) throws InterruptedException {
+        inFlight.acquire(batch.size());
+        MessageConverter converter = rabbitTemplate.getMessageConverter();
+        int[] sent = {0};
+        try {
+            rabbitTemplate.invoke(operations -> {
+                for (PendingPublish publish : batch) {
+                    Message message;
+                    try {
+                        message = publish.toMessage(converter, messagingProperties);
+                    } catch (RuntimeException e) {
+                        // Conversion errors are not retryable; fail this message only
+                        inFlight.release();
+                        sent[0]++;
+                        publish.future.completeExceptionally(e);
+                        continue;
+                    }
+                    CorrelationData correlation = new CorrelationData();
+                    operations.send(publish.exchange, publish.routingKey, message, correlation);
+                    sent[0]++;
+                    correlation.getFuture().addCallback(
+                            confirm -> onConfirm(publish, correlation, confirm.isAck(), confirm.getReason()),
+                            failure -> onConfirm(publish, correlation, false, failure.getMessage()));
+                }
+                return null;
+            });
         } catch (AmqpException e) {
-            log.error("Failed to publish message: {}", e.getMessage());
-            throw e;
+            // Messages already sent are nacked by the channel when it closes; fail the rest
+            log.warn("Failed to send publisher batch after {} of {} messages: {}", sent[0], batch.size(), e.getMessage());
+            for (int i = sent[0]; i < batch.size(); i++) {
+                inFlight.release();
+                sendFailed.increment();
+                batch.get(i).future.completeExceptionally(
+                        new AmqpException("Message could not be sent: " + e.getMessage(), e));
+            }
         }
     }
-    
+
+    private void onConfirm(PendingPublish publish, CorrelationData correlation, boolean ack, String reason) {
+        inFlight.release();
+        if (!ack) {
+            nacked.increment();
+            log.warn("Message nacked by the broker: exchange={}, routingKey={}, reason={}",
+                    publish.exchange, publish.routingKey, reason);
+            publish.future.completeExceptionally(new AmqpException("Message was not confirmed by the broker: " + reason));
+        } else if (correlation.getReturned() != null) {
+            // Confirmed but not routed to any queue - retrying will not help
+            returned.increment();
+            log.error("Message returned as unroutable: exchange={}, routingKey={}, reply={}",
+                    publish.exchange, publish.routingKey, correlation.getReturned().getReplyText());
+            publish.future.completeExceptionally(new AmqpException(
+                    "Message returned as unroutable: " + correlation.getReturned().getReplyText()));
+        } else {
+            confirmed.increment();
+            publish.future.complete(null);
+        }
+    }
+
+    private static Message toAmqpMessage(OutboxMessage message) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(message.getContentType());
+        properties.setMessageId("outbox-" + message.getId());
+        if (message.getTypeId() != null) {
+            properties.setHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME, message.getTypeId());
+        }
+        return new Message(message.getPayload(), properties);
+    }
+
     /**
-     * Publish a customer event message
-     * 
-     * @param message The message to publish
+     * A message waiting to be sent; the payload is converted on the sender thread
      */
-    public void publishCustomerEvent(Object message) {
-        log.info("Publishing customer event message");
-        publishMessage("credit.customer.event", message);
+    private static final class PendingPublish {
+        private final String exchange;
+        private final String routingKey;
+        private final Object payload;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private PendingPublish(String exchange, String routingKey, Object payload) {
+            this.exchange = exchange;
+            this.routingKey = routingKey;
+            this.payload = payload;
+        }
+
+        private Message toMessage(MessageConverter converter, MessagingProperties messagingProperties) {
+            if (payload instanceof Message) {
+                return (Message) payload;
+            }
+            // The content type picks the wire format for the target exchange
+            MessageProperties properties = new MessageProperties();
+            properties.setContentType(messagingProperties.contentTypeFor(exchange));
+            return converter.toMessage(payload, properties);
+        }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,124 @@
+package com.credit.service;
+
+import com.credit.messaging.EventCoalescer;
+import com.credit.model.OutboxMessage;
+import com.credit.repository.OutboxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Background relay that drains the outbox to RabbitMQ
+ * Each batch is locked, handed to the async publisher and deleted in one transaction
+ * once every message is confirmed. If the broker does not confirm in time, the
+ * transaction rolls back and the rows are retried on the next run, so events are
+ * delivered at least once.
+ * Only one replica relays at a time (it holds the outbox_relay_lock row for the batch
+ * transaction) and a batch is deleted before the next one is locked, so messages are
+ * published in outbox id order, apart from the coalescing below. Updates and deletes lock the customer row before
+ * writing their outbox row (the rescoring job's guarded UPDATE does too), so a
+ * customer's outbox ids follow commit order and its events are published in order;
+ * a rolled-back batch is resent from its oldest row and may repeat events.
+ * With messaging.coalescing.enabled=true, a customer's trailing updates stay in the
+ * outbox for up to the coalescing window (never longer than its max delay) and
+ * consecutive updates of a customer within a batch are merged into one message.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+
+    private final OutboxRepository outboxRepository;
+    private final MessagePublisherService messagePublisherService;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long confirmTimeoutMs;
+    private final EventCoalescer coalescer;
+
+    public OutboxRelay(OutboxRepository outboxRepository,
+                       MessagePublisherService messagePublisherService,
+                       TransactionTemplate transactionTemplate,
+                       RabbitTemplate rabbitTemplate,
+                       MeterRegistry meterRegistry,
+                       @Value("${outbox.relay.batch-size:500}") int batchSize,
+                       @Value("${outbox.relay.confirm-timeout-ms:5000}") long confirmTimeoutMs,
+                       @Value("${messaging.coalescing.enabled:false}") boolean coalescingEnabled,
+                       @Value("${messaging.coalescing.window:500ms}") Duration coalescingWindow,
+                       @Value("${messaging.coalescing.max-delay:2s}") Duration coalescingMaxDelay) {
+        this.outboxRepository = outboxRepository;
+        this.messagePublisherService = messagePublisherService;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+        this.coalescer = coalescingEnabled
+                ? new EventCoalescer(rabbitTemplate.getMessageConverter(), meterRegistry,
+                        coalescingWindow, coalescingMaxDelay)
+                : null;
+    }
+
+    /**
+     * Drain full batches back to back, then wait for the next tick
+     * A batch with held rows is not full, so the relay never spins on rows it is holding.
+     */
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:200}")
+    public void relay() {
+        try {
+            int relayed;
+            do {
+                Integer count = transactionTemplate.execute(status -> relayBatch());
+                relayed = count == null ? 0 : count;
+            } while (relayed == batchSize);
+        } catch (Exception e) {
+            log.error("Outbox relay failed, will retry: {}", e.getMessage());
+        }
+    }
+
+    private int relayBatch() {
+        if (!outboxRepository.tryLockRelay()) {
+            log.debug("Another replica is relaying the outbox");
+            return 0;
+        }
+        List<OutboxMessage> batch = outboxRepository.lockNextBatch(batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        List<OutboxMessage> due = coalescer != null ? coalescer.due(batch, LocalDateTime.now()) : batch;
+        if (due.isEmpty()) {
+            return 0;
+        }
+        List<OutboxMessage> messages = coalescer != null ? coalescer.coalesce(due) : due;
+        CompletableFuture<?>[] confirms = messages.stream()
+                .map(messagePublisherService::publishOutboxMessage)
+                .toArray(CompletableFuture[]::new);
+        awaitConfirms(confirms);
+        outboxRepository.deleteByIds(due.stream().map(OutboxMessage::getId).collect(Collectors.toList()));
+        log.debug("Relayed {} outbox messages as {} messages", due.size(), messages.size());
+        return due.size();
+    }
+
+    private void awaitConfirms(CompletableFuture<?>[] confirms) {
+        try {
+            CompletableFuture.allOf(confirms).get(confirmTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmqpException("Interrupted while waiting for outbox confirms");
+        } catch (ExecutionException e) {
+            throw new AmqpException("Outbox batch was not confirmed", e.getCause());
+        } catch (TimeoutException e) {
+            throw new AmqpException("Timed out waiting for outbox confirms");
+        }
+    }
+}
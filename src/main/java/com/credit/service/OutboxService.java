@@ -0,0 +1,92 @@
+package com.credit.service;
+
+import com.credit.config.MessagingProperties;
+import com.credit.config.RabbitMQConfig;
+import com.credit.messaging.CustomerEventPartitioner;
+import com.credit.messaging.LocalEventBus;
+import com.credit.model.CustomerEvent;
+import com.credit.model.OutboxMessage;
+import com.credit.repository.CustomerEventLogRepository;
+import com.credit.repository.OutboxRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Writes customer events to the transactional outbox
+ * Must be called inside the transaction that changes the customer, so the event
+ * is stored if and only if the change commits. OutboxRelay publishes it afterwards.
+ * The same encoded message is appended to the customer event log for replays.
+ * With local delivery enabled the event objects are also handed to the in-process
+ * bus once the transaction commits.
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private final OutboxRepository outboxRepository;
+    private final CustomerEventLogRepository eventLogRepository;
+    private final RabbitTemplate rabbitTemplate;
+    private final MessagingProperties messagingProperties;
+    private final CustomerEventPartitioner partitioner;
+    private final LocalEventBus localEventBus;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(CustomerEvent event) {
+        enqueueAll(Collections.singletonList(event));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueAll(List<CustomerEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        MessageConverter converter = rabbitTemplate.getMessageConverter();
+        List<OutboxMessage> messages = events.stream()
+                .map(event -> toOutboxMessage(converter, event))
+                .collect(Collectors.toList());
+        outboxRepository.insertAll(messages);
+        eventLogRepository.insertAll(messages);
+        if (localEventBus.isEnabled()) {
+            // Local subscribers must never see a change that rolls back
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    localEventBus.publish(events);
+                }
+            });
+        }
+    }
+
+    /**
+     * Encode the event once, with the same converter and wire format the broker path uses
+     */
+    private OutboxMessage toOutboxMessage(MessageConverter converter, CustomerEvent event) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(messagingProperties.contentTypeFor(RabbitMQConfig.EXCHANGE_NAME));
+        Message message = converter.toMessage(event, properties);
+        Object typeId = properties.getHeaders().get(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME);
+        return OutboxMessage.builder()
+                .eventId(event.getEventId())
+                .aggregateId(event.getCustomerId())
+                .eventType(event.getEventType().name())
+                .exchange(RabbitMQConfig.EXCHANGE_NAME)
+                .routingKey(partitioner.routingKeyFor(event.getCustomerId()))
+                .contentType(properties.getContentType())
+                .typeId(typeId == null ? null : typeId.toString())
+                .payload(message.getBody())
+                .build();
+    }
+}
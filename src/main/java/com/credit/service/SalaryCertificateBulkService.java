@@ -0,0 +1,352 @@
+package com.credit.service;
+
+import com.credit.config.SalaryCertificateUpstreamProperties;
+import com.credit.dto.BulkSalaryCertificateEnquiry;
+import com.credit.dto.BulkSalaryCertificateResult;
+import com.credit.entity.CustomerEntity;
+import com.credit.exception.InvalidRequestException;
+import com.credit.exception.UpstreamUnavailableException;
+import com.credit.mapper.SalaryCertificateMapper;
+import com.credit.model.SalaryCertificate;
+import com.credit.model.SalaryCertificateRequest;
+import com.credit.model.SalaryCertificateResponse;
+import com.credit.repository.CustomerRepository;
+import com.credit.repository.SalaryCertificateBatchRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Service for salary certificate enquiries for many applicants at once
+ * Applicants are enquired in parallel on a shared pool that leaves part of the upstream
+ * bulkhead free, so single enquiries are not refused while a bulk request runs, and that
+ * never exceeds the HTTP connections allowed to the upstream host. Each applicant goes
+ * through the same cache, stored-certificate, single-flight and fault-tolerance path as
+ * a single enquiry. Fetched certificates that the shared call did not already store,
+ * and local hits for a customer, are stored linked to the customer with batched JDBC
+ * inserts, and one NDJSON result line is written per applicant as soon as it is known
+ * (for stored certificates, once stored).
+ */
+@Service
+@Slf4j
+public class SalaryCertificateBulkService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final SalaryCertificateService salaryCertificateService;
+    private final SalaryCertificateCache salaryCertificateCache;
+    private final SalaryCertificateMapper salaryCertificateMapper;
+    private final SalaryCertificateBatchRepository batchRepository;
+    private final CustomerRepository customerRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Counter stored;
+    private final Counter storeFailed;
+    private final int maxItems;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final int concurrency;
+    private final ExecutorService executor;
+
+    public SalaryCertificateBulkService(SalaryCertificateService salaryCertificateService,
+                                        SalaryCertificateCache salaryCertificateCache,
+                                        SalaryCertificateMapper salaryCertificateMapper,
+                                        SalaryCertificateBatchRepository batchRepository,
+                                        CustomerRepository customerRepository,
+                                        TransactionTemplate transactionTemplate,
+                                        ObjectMapper objectMapper,
+                                        SalaryCertificateUpstreamProperties upstreamProperties,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${salary-certificate.bulk.max-items:5000}") int maxItems,
+                                        @Value("${salary-certificate.bulk.batch-size:200}") int batchSize,
+                                        @Value("${salary-certificate.bulk.flush-interval:1s}") Duration flushInterval,
+                                        @Value("${salary-certificate.bulk.concurrency:0}") int concurrency,
+                                        @Value("${salary-certificate.bulk.reserved-calls:5}") int reservedCalls) {
+        this.salaryCertificateService = salaryCertificateService;
+        this.salaryCertificateCache = salaryCertificateCache;
+        this.salaryCertificateMapper = salaryCertificateMapper;
+        this.batchRepository = batchRepository;
+        this.customerRepository = customerRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.stored = meterRegistry.counter("salary.certificate.bulk.stored");
+        this.storeFailed = meterRegistry.counter("salary.certificate.bulk.store.failed");
+        this.maxItems = maxItems;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+
+        // The bulkhead size is also the connections per route; keep reservedCalls of it for single enquiries
+        int available = Math.max(1, upstreamProperties.getMaxConcurrentCalls() - reservedCalls);
+        if (concurrency > available) {
+            log.warn("salary-certificate.bulk.concurrency={} exceeds the {} upstream calls left after reserving {}, "
+                    + "using {}", concurrency, available, reservedCalls, available);
+        }
+        this.concurrency = concurrency <= 0 ? available : Math.min(concurrency, available);
+        AtomicInteger threadIds = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(this.concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "salary-certificate-bulk-" + threadIds.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return the number of applicants enquired in parallel, across all bulk requests
+     */
+    int concurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Reject a request that cannot be processed, before the response starts streaming
+     *
+     * @throws InvalidRequestException if there are no applicants or too many
+     */
+    public void validate(List<BulkSalaryCertificateEnquiry> enquiries) {
+        if (enquiries == null || enquiries.isEmpty()) {
+            throw new InvalidRequestException("At least one applicant is required");
+        }
+        if (enquiries.size() > maxItems) {
+            throw new InvalidRequestException("A bulk enquiry may contain at most " + maxItems + " applicants");
+        }
+    }
+
+    /**
+     * Enquire for every applicant and write one NDJSON result per applicant as it completes
+     * Results are written in completion order; the index field gives the request position.
+     *
+     * @param outputStream The raw response stream
+     * @return The number of certificates stored
+     */
+    public int enquireAll(List<BulkSalaryCertificateEnquiry> enquiries, OutputStream outputStream) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory()
+                .createGenerator(new BufferedOutputStream(outputStream, BUFFER_SIZE));
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+
+        // One query for all customer links instead of one per applicant
+        Set<Long> customers = findExistingCustomers(enquiries);
+
+        ExecutorCompletionService<Outcome> completion = new ExecutorCompletionService<>(executor);
+        List<Future<Outcome>> submitted = new ArrayList<>(enquiries.size());
+        for (int i = 0; i < enquiries.size(); i++) {
+            BulkSalaryCertificateEnquiry enquiry = enquiries.get(i);
+            String error = validate(enquiry, customers);
+            if (error != null) {
+                write(generator, result(i, enquiry, BulkSalaryCertificateResult.Status.INVALID, error));
+                continue;
+            }
+            int index = i;
+            submitted.add(completion.submit(() -> enquire(index, enquiry)));
+        }
+        generator.flush();
+
+        int storedCount = 0;
+        List<Outcome> pending = new ArrayList<>(batchSize);
+        long oldestPending = 0;
+        try {
+            for (int remaining = submitted.size(); remaining > 0; ) {
+                Future<Outcome> done = pending.isEmpty()
+                        ? completion.take()
+                        : completion.poll(oldestPending + flushIntervalNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (done != null) {
+                    remaining--;
+                    Outcome outcome = done.get();
+                    if (outcome.certificate == null) {
+                        write(generator, outcome.result);
+                    } else {
+                        if (pending.isEmpty()) {
+                            oldestPending = System.nanoTime();
+                        }
+                        pending.add(outcome);
+                    }
+                }
+                // Store a full batch, or a partial one that has waited for the flush interval
+                if (pending.size() >= batchSize || done == null) {
+                    storedCount += store(generator, pending);
+                }
+                generator.flush();
+            }
+            storedCount += store(generator, pending);
+            generator.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted during bulk salary certificate enquiry");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Bulk salary certificate enquiry failed", e.getCause());
+        } finally {
+            // Stops the remaining enquiries if the client went away or the request failed
+            submitted.forEach(future -> future.cancel(true));
+        }
+        log.info("Bulk salary certificate enquiry finished: {} applicants, {} certificates stored",
+                enquiries.size(), storedCount);
+        return storedCount;
+    }
+
+    private Set<Long> findExistingCustomers(List<BulkSalaryCertificateEnquiry> enquiries) {
+        List<Long> ids = enquiries.stream()
+                .filter(Objects::nonNull)
+                .map(BulkSalaryCertificateEnquiry::getCustomerId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        return ids.isEmpty() ? Collections.emptySet() : customerRepository.findExistingIds(ids);
+    }
+
+    private static String validate(BulkSalaryCertificateEnquiry enquiry, Set<Long> customers) {
+        if (enquiry == null) {
+            return "Applicant is required";
+        }
+        if (enquiry.getNationalId() == null || enquiry.getNationalId().isBlank()) {
+            return "nationalId is required";
+        }
+        if (enquiry.getDateOfBirth() == null || enquiry.getDateOfBirth().isBlank()) {
+            return "dateOfBirth is required";
+        }
+        if (enquiry.getCustomerId() != null && !customers.contains(enquiry.getCustomerId())) {
+            return "Customer not found with id: " + enquiry.getCustomerId();
+        }
+        return null;
+    }
+
+    /**
+     * Resolve one applicant; runs on the bulk pool
+     */
+    private Outcome enquire(int index, BulkSalaryCertificateEnquiry enquiry) {
+        SalaryCertificateRequest request = new SalaryCertificateRequest();
+        request.setNationalId(enquiry.getNationalId());
+        request.setDateOfBirth(enquiry.getDateOfBirth());
+        try {
+            // Shares the upstream call with identical single or bulk enquiries in flight
+            SalaryCertificateService.EnquiryResult enquiryResult = salaryCertificateService.findLocally(request)
+                    .map(SalaryCertificateService.EnquiryResult::stored)
+                    .orElseGet(() -> salaryCertificateService.fetchUpstream(request));
+            SalaryCertificateResponse response = enquiryResult.getResponse();
+            SalaryCertificateResponse.EmploymentStatusInfo employmentInfo =
+                    salaryCertificateMapper.firstEmployment(response);
+            // A local hit, or a single enquiry we joined, is already stored, but not linked to this customer
+            if (employmentInfo == null || (enquiryResult.isStored() && enquiry.getCustomerId() == null)) {
+                return new Outcome(found(index, enquiry, response), request, null, null);
+            }
+            SalaryCertificate certificate = salaryCertificateMapper.toEntity(request, employmentInfo);
+            if (enquiry.getCustomerId() != null) {
+                certificate.setCustomer(CustomerEntity.builder().id(enquiry.getCustomerId()).build());
+            }
+            return new Outcome(found(index, enquiry, response), request, response, certificate);
+        } catch (UpstreamUnavailableException e) {
+            return new Outcome(result(index, enquiry, BulkSalaryCertificateResult.Status.UNAVAILABLE,
+                    e.getMessage()), request, null, null);
+        } catch (RuntimeException e) {
+            log.warn("Salary certificate enquiry {} of a bulk request failed: {}", index, e.getMessage());
+            return new Outcome(result(index, enquiry, BulkSalaryCertificateResult.Status.FAILED,
+                    e.getMessage()), request, null, null);
+        }
+    }
+
+    /**
+     * Insert the pending certificates as one batch in a short transaction, then write their results
+     *
+     * @return the number of certificates stored
+     */
+    private int store(JsonGenerator generator, List<Outcome> pending) throws IOException {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        List<SalaryCertificate> certificates = pending.stream()
+                .map(outcome -> outcome.certificate)
+                .collect(Collectors.toList());
+        int count = certificates.size();
+        try {
+            transactionTemplate.executeWithoutResult(status -> batchRepository.insertAll(certificates));
+            stored.increment(count);
+            for (Outcome outcome : pending) {
+                // Fetched certificates are only cached once stored, so a cache hit always has a row
+                salaryCertificateCache.put(outcome.request, outcome.response);
+                write(generator, outcome.result);
+            }
+        } catch (RuntimeException e) {
+            log.error("Storing {} salary certificates of a bulk enquiry failed", count, e);
+            storeFailed.increment(count);
+            count = 0;
+            for (Outcome outcome : pending) {
+                outcome.result.setStatus(BulkSalaryCertificateResult.Status.FAILED);
+                outcome.result.setError("Could not store certificate: " + e.getMessage());
+                write(generator, outcome.result);
+            }
+        }
+        pending.clear();
+        return count;
+    }
+
+    private void write(JsonGenerator generator, BulkSalaryCertificateResult result) throws IOException {
+        generator.writeObject(result);
+        generator.writeRaw('\n');
+    }
+
+    private BulkSalaryCertificateResult found(int index, BulkSalaryCertificateEnquiry enquiry,
+                                              SalaryCertificateResponse response) {
+        SalaryCertificateResponse.EmploymentStatusInfo employmentInfo = salaryCertificateMapper.firstEmployment(response);
+        BulkSalaryCertificateResult result = result(index, enquiry, employmentInfo != null
+                ? BulkSalaryCertificateResult.Status.FOUND : BulkSalaryCertificateResult.Status.NOT_FOUND, null);
+        result.setCertificate(employmentInfo);
+        return result;
+    }
+
+    private static BulkSalaryCertificateResult result(int index, BulkSalaryCertificateEnquiry enquiry,
+                                                      BulkSalaryCertificateResult.Status status, String error) {
+        return BulkSalaryCertificateResult.builder()
+                .index(index)
+                .status(status)
+                .nationalId(enquiry != null ? enquiry.getNationalId() : null)
+                .customerId(enquiry != null ? enquiry.getCustomerId() : null)
+                .error(error)
+                .build();
+    }
+
+    private static final class Outcome {
+        private final BulkSalaryCertificateResult result;
+        private final SalaryCertificateRequest request;
+        // Response to cache once the certificate is stored, null otherwise
+        private final SalaryCertificateResponse response;
+        // Certificate that still has to be stored, null otherwise
+        private final SalaryCertificate certificate;
+
+        private Outcome(BulkSalaryCertificateResult result, SalaryCertificateRequest request,
+                        SalaryCertificateResponse response, SalaryCertificate certificate) {
+            this.result = result;
+            this.request = request;
+            this.response = response;
+            this.certificate = certificate;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.credit.service;
+
+import com.credit.mapper.SalaryCertificateMapper;
+import com.credit.model.SalaryCertificateRequest;
+import com.credit.model.SalaryCertificateResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Bounded in-process cache of upstream salary certificate responses keyed by
+ * (nationalId, dateOfBirth)
+ * Certificates are kept for the TTL; responses without a certificate (not found) are
+ * kept only for the much shorter negative TTL so a person who just got registered
+ * upstream is picked up soon. Hit/miss statistics are published to Micrometer as
+ * cache.* metrics tagged cache=salaryCertificates
+ */
+@Component
+public class SalaryCertificateCache {
+
+    private final Cache<Key, SalaryCertificateResponse> cache;
+
+    public SalaryCertificateCache(@Value("${salary-certificate.cache.max-size:10000}") long maximumSize,
+                                  @Value("${salary-certificate.cache.ttl:24h}") Duration ttl,
+                                  @Value("${salary-certificate.cache.negative-ttl:5m}") Duration negativeTtl,
+                                  SalaryCertificateMapper mapper,
+                                  MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<Key, SalaryCertificateResponse>() {
+                    @Override
+                    public long expireAfterCreate(Key key, SalaryCertificateResponse response, long currentTime) {
+                        return (mapper.firstEmployment(response) != null ? ttl : negativeTtl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Key key, SalaryCertificateResponse response,
+                                                  long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, response, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Key key, SalaryCertificateResponse response,
+                                                long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "salaryCertificates");
+    }
+
+    /**
+     * @return the cached response or null on a miss
+     */
+    public SalaryCertificateResponse get(SalaryCertificateRequest request) {
+        return cache.getIfPresent(Key.of(request));
+    }
+
+    public void put(SalaryCertificateRequest request, SalaryCertificateResponse response) {
+        if (response != null) {
+            cache.put(Key.of(request), response);
+        }
+    }
+
+    public void evict(SalaryCertificateRequest request) {
+        cache.invalidate(Key.of(request));
+    }
+
+    /**
+     * Enquiry key; also used to coalesce concurrent upstream calls
+     */
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    static final class Key {
+        private final String nationalId;
+        private final String dateOfBirth;
+
+        static Key of(SalaryCertificateRequest request) {
+            return new Key(request.getNationalId(), request.getDateOfBirth());
+        }
+    }
+}
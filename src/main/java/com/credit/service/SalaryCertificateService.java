@@ -1,62 +1,338 @@
 package com.credit.service;
 
 import com.credit.client.SalaryCertificateClient;
+import com.credit.config.SalaryCertificateUpstreamProperties;
+import com.credit.exception.UpstreamUnavailableException;
+import com.credit.mapper.SalaryCertificateMapper;
 import com.credit.model.SalaryCertificate;
 import com.credit.model.SalaryCertificateRequest;
 import com.credit.model.SalaryCertificateResponse;
 import com.credit.repository.SalaryCertificateRepository;
-import lombok.RequiredArgsConstructor;
+import com.credit.support.Bulkhead;
+import com.credit.support.CircuitBreaker;
+import com.credit.support.SingleFlight;
+import feign.FeignException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fetches salary certificates from the upstream enquiry API and stores them
+ * The upstream call is slow and billed per call, so responses are served from the
+ * certificate cache first, then from a stored certificate that is still fresh enough,
+ * and only then fetched. Concurrent enquiries for the same applicant share one upstream
+ * call. Saved calls are counted as salary.certificate.upstream.saved tagged by source.
+ * A shared call reports whether it stored the certificate: bulk fetches store theirs
+ * later in a batch, so a single enquiry that joined one stores its own, and a bulk
+ * enquiry that joined a single one does not store it again. Certificates are only
+ * cached once stored, so a cache hit never stands for a row that was not written.
+ *
+ * Deliberately not @Transactional: the upstream call can take many seconds and must not
+ * hold a pooled database connection. Reads and the insert each run in their own short
+ * repository transaction.
+ *
+ * Upstream calls go through a bulkhead and a circuit breaker, so a brownout upstream is
+ * refused quickly with UpstreamUnavailableException (503) instead of piling up threads.
+ * The asynchronous variant runs on a dedicated bounded executor and frees the servlet
+ * thread for the whole enquiry; identical asynchronous enquiries share one future, so
+ * they do not hold executor threads while the first one waits for upstream.
+ */
 @Service
-@RequiredArgsConstructor
+@Slf4j
 public class SalaryCertificateService {
     
     private final SalaryCertificateClient salaryCertificateClient;
     private final SalaryCertificateRepository salaryCertificateRepository;
+    private final SalaryCertificateMapper salaryCertificateMapper;
+    private final SalaryCertificateCache salaryCertificateCache;
+    private final Duration storedMaxAge;
+    private final Counter upstreamCalls;
+    private final Counter servedFromCache;
+    private final Counter servedFromStore;
+    private final Timer upstreamLatency;
+    private final Timer persistLatency;
+    private final Counter rejectedByBreaker;
+    private final Counter rejectedByBulkhead;
+    private final Counter rejectedByExecutor;
+    private final Counter timedOut;
+    private final SingleFlight<SalaryCertificateCache.Key, EnquiryResult> upstreamFlights;
+    private final Bulkhead bulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final ThreadPoolExecutor executor;
+    private final Duration requestTimeout;
+
+    public SalaryCertificateService(SalaryCertificateClient salaryCertificateClient,
+                                    SalaryCertificateRepository salaryCertificateRepository,
+                                    SalaryCertificateMapper salaryCertificateMapper,
+                                    SalaryCertificateCache salaryCertificateCache,
+                                    SalaryCertificateUpstreamProperties upstreamProperties,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${salary-certificate.stored-max-age:7d}") Duration storedMaxAge) {
+        this.salaryCertificateClient = salaryCertificateClient;
+        this.salaryCertificateRepository = salaryCertificateRepository;
+        this.salaryCertificateMapper = salaryCertificateMapper;
+        this.salaryCertificateCache = salaryCertificateCache;
+        this.storedMaxAge = storedMaxAge;
+        this.upstreamCalls = meterRegistry.counter("salary.certificate.upstream.calls");
+        this.servedFromCache = meterRegistry.counter("salary.certificate.upstream.saved", "source", "cache");
+        this.servedFromStore = meterRegistry.counter("salary.certificate.upstream.saved", "source", "stored");
+        this.upstreamLatency = Timer.builder("salary.certificate.upstream.latency")
+                .description("Upstream enquiry round trip, made outside any database transaction")
+                .register(meterRegistry);
+        this.persistLatency = Timer.builder("salary.certificate.persist")
+                .description("Transaction that stores a fetched certificate")
+                .register(meterRegistry);
+        this.upstreamFlights = new SingleFlight<>(
+                meterRegistry.counter("salary.certificate.upstream.saved", "source", "coalesced"));
+        Gauge.builder("salary.certificate.upstream.in.flight", upstreamFlights, SingleFlight::inFlight)
+                .description("Distinct upstream enquiries currently in flight")
+                .register(meterRegistry);
+        
+        this.bulkhead = new Bulkhead(upstreamProperties.getMaxConcurrentCalls(), upstreamProperties.getMaxWait());
+        this.circuitBreaker = new CircuitBreaker(upstreamProperties.getSlidingWindowSize(),
+                upstreamProperties.getMinimumCalls(), upstreamProperties.getFailureRateThreshold(),
+                upstreamProperties.getOpenDuration());
+        this.rejectedByBreaker = meterRegistry.counter("salary.certificate.upstream.rejected", "reason", "circuit-open");
+        this.rejectedByBulkhead = meterRegistry.counter("salary.certificate.upstream.rejected", "reason", "bulkhead-full");
+        this.rejectedByExecutor = meterRegistry.counter("salary.certificate.upstream.rejected", "reason", "executor-full");
+        this.timedOut = meterRegistry.counter("salary.certificate.upstream.rejected", "reason", "timeout");
+        Gauge.builder("salary.certificate.upstream.bulkhead.in.use", bulkhead, Bulkhead::inUse)
+                .register(meterRegistry);
+        Gauge.builder("salary.certificate.upstream.circuit.state", circuitBreaker, breaker -> breaker.state().ordinal())
+                .description("0 closed, 1 open, 2 half-open")
+                .register(meterRegistry);
+        
+        AtomicInteger threadIds = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(upstreamProperties.getExecutorThreads(),
+                upstreamProperties.getExecutorThreads(), 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(upstreamProperties.getExecutorQueueCapacity()), runnable -> {
+                    Thread thread = new Thread(runnable, "salary-certificate-" + threadIds.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+        this.requestTimeout = upstreamProperties.getRequestTimeout();
+        Gauge.builder("salary.certificate.executor.queued", executor, pool -> pool.getQueue().size())
+                .register(meterRegistry);
+    }
     
-    @Transactional
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+    
+    /**
+     * Enquire for the built-in sample applicant
+     */
     public SalaryCertificateResponse getAndSaveSalaryCertificate() {
-        // Create a sample request
+        return getAndSaveSalaryCertificate(sampleRequest());
+    }
+    
+    public CompletableFuture<SalaryCertificateResponse> getAndSaveSalaryCertificateAsync() {
+        return getAndSaveSalaryCertificateAsync(sampleRequest());
+    }
+    
+    /**
+     * Run the enquiry on the salary certificate executor
+     * A caller whose enquiry is already in flight, synchronously or not, gets that call's
+     * future without taking an executor thread; it only takes one to store the certificate
+     * when it joined a bulk fetch. The future fails with
+     * UpstreamUnavailableException when the executor queue is full or the enquiry takes
+     * longer than the request timeout.
+     */
+    public CompletableFuture<SalaryCertificateResponse> getAndSaveSalaryCertificateAsync(SalaryCertificateRequest request) {
+        CompletableFuture<EnquiryResult> enquiry = upstreamFlights.submit(
+                SalaryCertificateCache.Key.of(request), () -> CompletableFuture.supplyAsync(
+                        () -> findLocally(request).map(EnquiryResult::stored).orElseGet(() -> fetchAndSave(request)),
+                        executor));
+        // Time out a dependent future, so one caller's timeout does not fail the shared call for the others
+        return enquiry
+                .thenCompose(result -> result.isStored()
+                        ? CompletableFuture.completedFuture(result.getResponse())
+                        : CompletableFuture.supplyAsync(() -> persist(request, result.getResponse()), executor))
+                .orTimeout(requestTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .exceptionally(failure -> {
+                    Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                            ? failure.getCause() : failure;
+                    if (cause instanceof RejectedExecutionException) {
+                        rejectedByExecutor.increment();
+                        throw new UpstreamUnavailableException("Too many salary certificate enquiries queued");
+                    }
+                    if (cause instanceof TimeoutException) {
+                        timedOut.increment();
+                        throw new UpstreamUnavailableException("Salary certificate enquiry timed out after " + requestTimeout);
+                    }
+                    throw cause instanceof RuntimeException ? (RuntimeException) cause : new CompletionException(cause);
+                });
+    }
+    
+    public SalaryCertificateResponse getAndSaveSalaryCertificate(SalaryCertificateRequest request) {
+        Optional<SalaryCertificateResponse> local = findLocally(request);
+        if (local.isPresent()) {
+            return local.get();
+        }
+        
+        // Identical enquiries arriving meanwhile wait for this call instead of making their own
+        EnquiryResult result = upstreamFlights.call(
+                SalaryCertificateCache.Key.of(request), () -> fetchAndSave(request));
+        // A bulk fetch we joined stores later and may still fail, so store our own before answering
+        return result.isStored() ? result.getResponse() : persist(request, result.getResponse());
+    }
+    
+    /**
+     * Serve an enquiry from the cache or from a fresh stored certificate, without calling upstream
+     */
+    public Optional<SalaryCertificateResponse> findLocally(SalaryCertificateRequest request) {
+        SalaryCertificateResponse cached = salaryCertificateCache.get(request);
+        if (cached != null) {
+            servedFromCache.increment();
+            return Optional.of(cached);
+        }
+        
+        Optional<SalaryCertificate> stored = findFreshStoredCertificate(request);
+        if (stored.isPresent()) {
+            SalaryCertificateResponse response = salaryCertificateMapper.toResponse(stored.get());
+            salaryCertificateCache.put(request, response);
+            servedFromStore.increment();
+            return Optional.of(response);
+        }
+        return Optional.empty();
+    }
+    
+    /**
+     * Call upstream through the bulkhead and circuit breaker, or join the call already in
+     * flight for the same enquiry
+     * A call started here stores nothing and leaves a found certificate uncached; the caller
+     * caches it once stored. The result says whether the joined call, or the cache, already
+     * stands for a stored certificate.
+     *
+     * @throws UpstreamUnavailableException if the call was refused or failed upstream
+     */
+    public EnquiryResult fetchUpstream(SalaryCertificateRequest request) {
+        return upstreamFlights.call(SalaryCertificateCache.Key.of(request), () -> {
+            SalaryCertificateResponse cached = salaryCertificateCache.get(request);
+            if (cached != null) {
+                servedFromCache.increment();
+                return EnquiryResult.stored(cached);
+            }
+            SalaryCertificateResponse response = callUpstream(request);
+            if (salaryCertificateMapper.firstEmployment(response) == null) {
+                // Nothing to store, so the negative response can be cached straight away
+                salaryCertificateCache.put(request, response);
+            }
+            return EnquiryResult.unstored(response);
+        });
+    }
+    
+    private EnquiryResult fetchAndSave(SalaryCertificateRequest request) {
+        // A call for the same key may have completed between the cache check and joining the flight
+        SalaryCertificateResponse cached = salaryCertificateCache.get(request);
+        if (cached != null) {
+            servedFromCache.increment();
+            return EnquiryResult.stored(cached);
+        }
+        
+        // Fetch phase - no transaction and no connection held while waiting for upstream
+        SalaryCertificateResponse response = callUpstream(request);
+        return EnquiryResult.stored(persist(request, response));
+    }
+    
+    /**
+     * Persist phase - one short transaction for the insert, then cache the response
+     */
+    private SalaryCertificateResponse persist(SalaryCertificateRequest request, SalaryCertificateResponse response) {
+        SalaryCertificateResponse.EmploymentStatusInfo employmentInfo = salaryCertificateMapper.firstEmployment(response);
+        if (employmentInfo != null) {
+            SalaryCertificate certificate = salaryCertificateMapper.toEntity(request, employmentInfo);
+            persistLatency.record(() -> salaryCertificateRepository.save(certificate));
+        } else {
+            log.debug("No salary certificate found upstream for the enquiry");
+        }
+        salaryCertificateCache.put(request, response);
+        return response;
+    }
+    
+    private SalaryCertificateResponse callUpstream(SalaryCertificateRequest request) {
+        if (!bulkhead.tryAcquire()) {
+            rejectedByBulkhead.increment();
+            throw new UpstreamUnavailableException("Too many concurrent salary certificate upstream calls");
+        }
+        try {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                rejectedByBreaker.increment();
+                throw new UpstreamUnavailableException("Salary certificate upstream is unavailable, circuit is open");
+            }
+            upstreamCalls.increment();
+            try {
+                SalaryCertificateResponse response = upstreamLatency.record(
+                        () -> salaryCertificateClient.getSalaryCertificate(request));
+                circuitBreaker.onSuccess();
+                return response;
+            } catch (FeignException.FeignClientException e) {
+                // A 4xx means upstream is healthy and rejected this enquiry
+                circuitBreaker.onSuccess();
+                throw e;
+            } catch (RuntimeException e) {
+                circuitBreaker.onFailure();
+                throw new UpstreamUnavailableException("Salary certificate upstream call failed: " + e.getMessage(), e);
+            }
+        } finally {
+            bulkhead.release();
+        }
+    }
+    
+    private static SalaryCertificateRequest sampleRequest() {
         SalaryCertificateRequest request = new SalaryCertificateRequest();
         request.setNationalId("1234567890");
         request.setDateOfBirth("1990-01-01");
+        return request;
+    }
+    
+    /**
+     * Response of an enquiry, possibly shared with other callers, and whether it is already stored
+     */
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static final class EnquiryResult {
+        private final SalaryCertificateResponse response;
+        // False for a bulk fetch, whose caller stores the certificate later
+        private final boolean stored;
         
-        // Get data from external API
-        SalaryCertificateResponse response = salaryCertificateClient.getSalaryCertificate(request);
-        
-        // Save data to database if available
-        if (response.isSuccess() && response.getData() != null && 
-            response.getData().getPrivateSector() != null && 
-            response.getData().getPrivateSector().getEmploymentStatusInfo() != null &&
-            response.getData().getPrivateSector().getEmploymentStatusInfo().length > 0) {
-            
-            // Get the first employment status info
-            var employmentInfo = response.getData().getPrivateSector().getEmploymentStatusInfo()[0];
-            
-            // Create and save salary certificate entity
-            SalaryCertificate certificate = new SalaryCertificate();
-            certificate.setFullName(employmentInfo.getFullName());
-            certificate.setBasicWage(employmentInfo.getBasicWage());
-            certificate.setHousingAllowance(employmentInfo.getHousingAllowance());
-            certificate.setOtherAllowance(employmentInfo.getOtherAllowance());
-            certificate.setFullWage(employmentInfo.getFullWage());
-            certificate.setEmployerName(employmentInfo.getEmployerName());
-            certificate.setDateOfJoining(employmentInfo.getDateOfJoining());
-            certificate.setWorkingMonths(employmentInfo.getWorkingMonths());
-            certificate.setEmploymentStatus(employmentInfo.getEmploymentStatus());
-            certificate.setSalaryStartingDate(employmentInfo.getSalaryStartingDate());
-            certificate.setEstablishmentActivity(employmentInfo.getEstablishmentActivity());
-            certificate.setCommercialRegistrationNumber(employmentInfo.getCommercialRegistrationNumber());
-            certificate.setLegalEntity(employmentInfo.getLegalEntity());
-            certificate.setDateOfBirth(employmentInfo.getDateOfBirth());
-            certificate.setNationality(employmentInfo.getNationality());
-            certificate.setGosinumber(employmentInfo.getGosinumber());
-            
-            salaryCertificateRepository.save(certificate);
+        static EnquiryResult stored(SalaryCertificateResponse response) {
+            return new EnquiryResult(response, true);
         }
         
-        return response;
+        static EnquiryResult unstored(SalaryCertificateResponse response) {
+            return new EnquiryResult(response, false);
+        }
+    }
+    
+    private Optional<SalaryCertificate> findFreshStoredCertificate(SalaryCertificateRequest request) {
+        if (storedMaxAge.isZero() || request.getNationalId() == null) {
+            return Optional.empty();
+        }
+        return salaryCertificateRepository
+                .findFirstByNationalIdAndEnquiryDateOfBirthAndCreatedAtAfterOrderByCreatedAtDesc(
+                        request.getNationalId(), request.getDateOfBirth(), LocalDateTime.now().minus(storedMaxAge));
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,51 @@
+package com.credit.support;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps the number of concurrent calls to one dependency
+ * A slow dependency can then only tie up its own share of threads and connections.
+ * Callers wait at most maxWait for a free slot and are refused after that.
+ */
+public class Bulkhead {
+
+    private final int maxConcurrentCalls;
+    private final long maxWaitNanos;
+    private final Semaphore slots;
+
+    public Bulkhead(int maxConcurrentCalls, Duration maxWait) {
+        if (maxConcurrentCalls <= 0) {
+            throw new IllegalArgumentException("maxConcurrentCalls must be positive");
+        }
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.slots = new Semaphore(maxConcurrentCalls);
+    }
+
+    /**
+     * Take a slot, waiting at most maxWait; a caller that got one must {@link #release()} it
+     *
+     * @return false if no slot became free in time
+     */
+    public boolean tryAcquire() {
+        try {
+            return slots.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public void release() {
+        slots.release();
+    }
+
+    /**
+     * @return the number of calls currently holding a slot
+     */
+    public int inUse() {
+        return maxConcurrentCalls - slots.availablePermits();
+    }
+}
@@ -0,0 +1,63 @@
+package com.credit.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor that runs tasks for the same key one after another, in submission order,
+ * while tasks for different keys run in parallel
+ * Keys are hashed onto a fixed set of single-threaded lanes.
+ */
+public class KeyOrderedExecutor implements AutoCloseable {
+
+    private final List<ExecutorService> lanes;
+
+    public KeyOrderedExecutor(String name, int lanes) {
+        if (lanes < 1) {
+            throw new IllegalArgumentException("At least one lane is required");
+        }
+        AtomicInteger counter = new AtomicInteger();
+        this.lanes = new ArrayList<>(lanes);
+        for (int i = 0; i < lanes; i++) {
+            this.lanes.add(Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name + "-" + counter.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }));
+        }
+    }
+
+    /**
+     * Run the task on the lane owning the key
+     *
+     * @return A future completed when the task has run
+     */
+    public CompletableFuture<Void> submit(Object key, Runnable task) {
+        return CompletableFuture.runAsync(task, laneFor(key));
+    }
+
+    private ExecutorService laneFor(Object key) {
+        int hash = key == null ? 0 : key.hashCode();
+        // Spread the bits so sequential ids do not all share low bits
+        hash ^= hash >>> 16;
+        return lanes.get(Math.floorMod(hash, lanes.size()));
+    }
+
+    @Override
+    public void close() {
+        lanes.forEach(ExecutorService::shutdown);
+        for (ExecutorService lane : lanes) {
+            try {
+                lane.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.credit.support;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Paces callers to a fixed number of permits per second, shared across threads
+ * Each permit gets the next free time slot; a caller sleeps until its slot comes up.
+ * Unused time is not saved up, so a limiter that was idle does not allow a burst.
+ */
+public class RateLimiter {
+
+    private final long intervalNanos;
+    private final AtomicLong nextSlot = new AtomicLong(Long.MIN_VALUE);
+
+    public RateLimiter(double permitsPerSecond) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("Permits per second must be positive");
+        }
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+    }
+
+    public void acquire() throws InterruptedException {
+        acquire(1);
+    }
+
+    /**
+     * Take several permits at once, e.g. one per row of a batch
+     */
+    public void acquire(int permits) throws InterruptedException {
+        long now = System.nanoTime();
+        long cost = intervalNanos * permits;
+        long slot = nextSlot.getAndUpdate(previous -> Math.max(previous, now) + cost);
+        long waitNanos = Math.max(slot, now) - now;
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+-- Checkpoints of background credit risk rescoring jobs
+-- last_id is the highest customer id below which every row has been rescored,
+-- so an interrupted job resumes from there
+CREATE TABLE rescoring_jobs (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    model_version VARCHAR(20) NOT NULL,
+    state VARCHAR(20) NOT NULL,
+    from_id BIGINT NOT NULL,
+    to_id BIGINT NOT NULL,
+    last_id BIGINT NOT NULL,
+    rows_rescored BIGINT NOT NULL DEFAULT 0,
+    error VARCHAR(1000),
+    started_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    updated_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    INDEX idx_rescoring_jobs_state (state)
+);
@@ -0,0 +1,8 @@
+-- Enquiry key of each stored certificate, so a fresh enough row can be served
+-- instead of calling the upstream enquiry API again
+ALTER TABLE salary_certificates
+    ADD COLUMN national_id VARCHAR(20),
+    ADD COLUMN enquiry_date_of_birth VARCHAR(20);
+
+CREATE INDEX idx_salary_certificates_enquiry
+    ON salary_certificates (national_id, enquiry_date_of_birth, created_at);
@@ -0,0 +1,7 @@
+-- Single row locked by the outbox relay for the length of each batch transaction,
+-- so only one replica relays at a time and rows leave the outbox in id order
+CREATE TABLE outbox_relay_lock (
+    id TINYINT PRIMARY KEY
+);
+
+INSERT INTO outbox_relay_lock (id) VALUES (1);
@@ -0,0 +1,11 @@
+-- Fixed replay partition of each logged event (aggregate id modulo 64), so a replay
+-- worker reads its share of the log with an index range scan per partition instead
+-- of filtering every row of the id range
+ALTER TABLE customer_event_log
+    ADD COLUMN log_partition SMALLINT NOT NULL DEFAULT 0;
+
+UPDATE customer_event_log
+SET log_partition = MOD(COALESCE(aggregate_id, 0), 64);
+
+CREATE INDEX idx_customer_event_log_partition
+    ON customer_event_log (log_partition, id);
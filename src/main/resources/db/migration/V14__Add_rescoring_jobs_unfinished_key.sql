@@ -0,0 +1,18 @@
+-- At most one unfinished job per model version, so two replicas starting rescoring at
+-- the same time cannot both insert a new job; the second insert fails on the key
+-- Only the latest unfinished job of a version is ever resumed, so older ones left by
+-- such a race are closed first
+UPDATE rescoring_jobs j
+JOIN (SELECT model_version, MAX(id) AS latest_id
+      FROM rescoring_jobs
+      WHERE state <> 'COMPLETED'
+      GROUP BY model_version) l ON l.model_version = j.model_version
+SET j.state = 'COMPLETED', j.error = 'Superseded by a later job for the same model version'
+WHERE j.state <> 'COMPLETED' AND j.id < l.latest_id;
+
+ALTER TABLE rescoring_jobs
+    ADD COLUMN unfinished_model_version VARCHAR(20)
+        GENERATED ALWAYS AS (IF(state = 'COMPLETED', NULL, model_version)) STORED;
+
+CREATE UNIQUE INDEX uk_rescoring_jobs_unfinished
+    ON rescoring_jobs (unfinished_model_version);
@@ -0,0 +1,10 @@
+-- Prefix search on names
+-- The default utf8mb4_0900_ai_ci collation is case-insensitive, so
+-- "first_name LIKE 'jo%'" can range-scan these indexes without LOWER()
+CREATE INDEX idx_customers_first_name ON customers(first_name);
+CREATE INDEX idx_customers_last_name ON customers(last_name);
+
+-- Token and fuzzy search on names
+-- The ngram parser indexes every 2-character gram (ngram_token_size default),
+-- so any substring of 2+ characters can be matched without a table scan
+CREATE FULLTEXT INDEX ft_customers_name ON customers(first_name, last_name) WITH PARSER ngram;
@@ -0,0 +1,6 @@
+-- Composite indexes for the customer filter ranges
+-- Trailing id keeps rows inside each range ordered for keyset pagination
+CREATE INDEX idx_customers_credit_salary_id ON customers(credit_score, annual_salary, id);
+
+-- Salary-only filters cannot use the credit_score-leading index above
+CREATE INDEX idx_customers_salary_id ON customers(annual_salary, id);
@@ -0,0 +1,9 @@
+-- Table-backed sequence for customer ids (MySQL has no native sequences)
+-- IDENTITY generation disables Hibernate insert batching; a pooled sequence lets
+-- Hibernate hand out ids in blocks and send inserts as JDBC batches
+CREATE TABLE customer_id_seq (
+    next_val BIGINT
+);
+
+-- Start after any existing ids
+INSERT INTO customer_id_seq (next_val) SELECT COALESCE(MAX(id), 0) + 1 FROM customers;
@@ -0,0 +1,14 @@
+-- Transactional outbox for customer events
+-- Rows are written in the same transaction as the customer change and deleted
+-- by the relay once the broker has confirmed them
+CREATE TABLE outbox_events (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    aggregate_id BIGINT,
+    event_type VARCHAR(40) NOT NULL,
+    exchange_name VARCHAR(255) NOT NULL,
+    routing_key VARCHAR(255) NOT NULL,
+    content_type VARCHAR(100) NOT NULL,
+    type_id VARCHAR(255),
+    payload MEDIUMBLOB NOT NULL,
+    created_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6)
+);
@@ -0,0 +1,7 @@
+-- Ids of customer events already processed by this service's consumers
+-- Only used when messaging.dedup.persistent=true; rows older than the retention are purged
+CREATE TABLE processed_events (
+    event_id VARCHAR(36) NOT NULL PRIMARY KEY,
+    processed_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    INDEX idx_processed_events_processed_at (processed_at)
+);
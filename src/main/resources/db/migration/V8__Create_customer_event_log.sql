@@ -0,0 +1,14 @@
+-- Append-only log of every customer event, kept for replays
+-- Rows are written in the same transaction as the outbox row and never updated;
+-- the payload is the encoded message body, exactly as it was published
+CREATE TABLE customer_event_log (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    event_id VARCHAR(36),
+    aggregate_id BIGINT,
+    event_type VARCHAR(40) NOT NULL,
+    content_type VARCHAR(100) NOT NULL,
+    type_id VARCHAR(255),
+    payload MEDIUMBLOB NOT NULL,
+    created_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    INDEX idx_customer_event_log_created_at (created_at)
+);
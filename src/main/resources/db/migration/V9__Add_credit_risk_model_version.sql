@@ -0,0 +1,3 @@
+-- Version of the credit risk model that produced credit_risk_score
+-- NULL marks rows scored before models were versioned, i.e. with the v1 formula
+ALTER TABLE customers ADD COLUMN credit_risk_model_version VARCHAR(20);
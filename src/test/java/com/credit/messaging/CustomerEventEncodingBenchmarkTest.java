@@ -0,0 +1,118 @@
+package com.credit.messaging;
+
+import com.credit.entity.CustomerEntity;
+import com.credit.factory.CustomerEventFactory;
+import com.credit.model.CustomerEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares message size and encode/decode cost of customer events as JSON and Smile
+ * Only sizes are asserted; timings depend on the machine and are reported in failure messages
+ */
+class CustomerEventEncodingBenchmarkTest {
+
+    private static final int EVENTS = 20_000;
+    private static final int ROUNDS = 5;
+    private static final double MIN_SIZE_REDUCTION = 0.10;
+
+    private final CustomerEventFactory eventFactory = new CustomerEventFactory();
+
+    @Test
+    void smileEncoding_ShouldBeSmallerThanJsonAndRoundTrip() {
+        // Arrange
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        MessageConverter json = new Jackson2JsonMessageConverter(objectMapper);
+        MessageConverter smile = new SmileMessageConverter("com.credit.model");
+        List<CustomerEvent> events = sampleEvents();
+
+        // Act
+        Result jsonResult = measure("json", json, events);
+        Result smileResult = measure("smile", smile, events);
+
+        // Assert
+        double reduction = 1 - smileResult.bytesPerMessage / jsonResult.bytesPerMessage;
+        assertTrue(reduction >= MIN_SIZE_REDUCTION, String.format(
+                "Smile should be at least %.0f%% smaller than JSON, was %.1f%%: %s vs %s",
+                100 * MIN_SIZE_REDUCTION, 100 * reduction, smileResult, jsonResult));
+        Message message = smile.toMessage(events.get(7), new MessageProperties());
+        assertEquals(SmileMessageConverter.CONTENT_TYPE, message.getMessageProperties().getContentType());
+        assertEquals(events.get(7), smile.fromMessage(message));
+    }
+
+    private Result measure(String name, MessageConverter converter, List<CustomerEvent> events) {
+        long bytes = 0;
+        long encodeNanos = Long.MAX_VALUE;
+        long decodeNanos = Long.MAX_VALUE;
+        // Best of several rounds; the first ones double as warm-up
+        for (int round = 0; round < ROUNDS; round++) {
+            List<Message> messages = new ArrayList<>(events.size());
+            long start = System.nanoTime();
+            for (CustomerEvent event : events) {
+                messages.add(converter.toMessage(event, new MessageProperties()));
+            }
+            encodeNanos = Math.min(encodeNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (Message message : messages) {
+                assertNotNull(converter.fromMessage(message));
+            }
+            decodeNanos = Math.min(decodeNanos, System.nanoTime() - start);
+
+            bytes = messages.stream().mapToLong(message -> message.getBody().length).sum();
+        }
+        return new Result(name, (double) bytes / events.size(),
+                (double) encodeNanos / events.size(), (double) decodeNanos / events.size());
+    }
+
+    private List<CustomerEvent> sampleEvents() {
+        List<CustomerEvent> events = new ArrayList<>(EVENTS);
+        for (int i = 0; i < EVENTS; i++) {
+            CustomerEntity entity = new CustomerEntity();
+            entity.setId((long) i + 1);
+            entity.setFirstName("First" + i);
+            entity.setLastName("Last" + i);
+            entity.setEmail("customer" + i + "@example.com");
+            entity.setCreditScore(300 + i % 551);
+            entity.setAnnualSalary(20000.0 + (i * 37) % 180000);
+            entity.setCreditRiskScore(0.25 + (i % 100) / 200.0);
+            events.add(i % 2 == 0
+                    ? eventFactory.createCustomerCreatedEvent(entity)
+                    : eventFactory.createHighValueCustomerEvent(entity));
+        }
+        return events;
+    }
+
+    private static final class Result {
+        private final String name;
+        private final double bytesPerMessage;
+        private final double encodeNanosPerMessage;
+        private final double decodeNanosPerMessage;
+
+        private Result(String name, double bytesPerMessage, double encodeNanosPerMessage, double decodeNanosPerMessage) {
+            this.name = name;
+            this.bytesPerMessage = bytesPerMessage;
+            this.encodeNanosPerMessage = encodeNanosPerMessage;
+            this.decodeNanosPerMessage = decodeNanosPerMessage;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %.0f B/msg, encode %.0f ns/msg, decode %.0f ns/msg",
+                    name, bytesPerMessage, encodeNanosPerMessage, decodeNanosPerMessage);
+        }
+    }
+}
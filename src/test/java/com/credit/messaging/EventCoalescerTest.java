@@ -0,0 +1,206 @@
+package com.credit.messaging;
+
+import com.credit.model.CustomerEvent;
+import com.credit.model.FieldChange;
+import com.credit.model.OutboxMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventCoalescerTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private final MessageConverter converter = new Jackson2JsonMessageConverter(new ObjectMapper());
+
+    @Test
+    void coalesce_ShouldMergeUpdatesOfACustomerInPlaceOfTheFirstAndKeepDeletesAfterThem() {
+        // Arrange
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        EventCoalescer coalescer = coalescer(registry);
+        List<OutboxMessage> batch = Arrays.asList(
+                row(1, update("e1", 1L, CustomerEvent.EventType.CREDIT_SCORE_UPDATED,
+                        "creditScore", new FieldChange(700, 720))),
+                row(2, update("e5", 2L, CustomerEvent.EventType.UPDATED, "lastName", new FieldChange("Roe", "Doe"))),
+                row(3, update("e2", 1L, CustomerEvent.EventType.UPDATED,
+                        "phoneNumber", new FieldChange(null, "+15551234567"))),
+                row(4, update("e3", 1L, CustomerEvent.EventType.CREDIT_SCORE_UPDATED,
+                        "creditScore", new FieldChange(720, 750))),
+                row(5, CustomerEvent.builder().eventId("e4").eventType(CustomerEvent.EventType.DELETED)
+                        .customerId(1L).build()));
+
+        // Act
+        List<OutboxMessage> messages = coalescer.coalesce(batch);
+
+        // Assert
+        assertEquals(3, messages.size());
+        CustomerEvent merged = decode(messages.get(0));
+        assertEquals(4L, messages.get(0).getId());
+        assertEquals("e3", merged.getEventId());
+        assertEquals(CustomerEvent.EventType.CREDIT_SCORE_UPDATED, merged.getEventType());
+        assertEquals(new FieldChange(700, 750), merged.getChanges().get("creditScore"));
+        assertEquals(new FieldChange(null, "+15551234567"), merged.getChanges().get("phoneNumber"));
+        assertSame(batch.get(1), messages.get(1));
+        assertSame(batch.get(4), messages.get(2));
+        assertEquals(5.0 / 3, registry.get("messaging.coalescer.ratio").gauge().value(), 1e-9);
+    }
+
+    @Test
+    void coalesce_ShouldNotMergeUpdatesAcrossACreateOrDelete() {
+        // Arrange
+        EventCoalescer coalescer = coalescer(new SimpleMeterRegistry());
+        List<OutboxMessage> batch = Arrays.asList(
+                row(1, update("e1", 1L, CustomerEvent.EventType.UPDATED, "lastName", new FieldChange("A", "B"))),
+                row(2, CustomerEvent.builder().eventId("e2").eventType(CustomerEvent.EventType.DELETED)
+                        .customerId(1L).build()),
+                row(3, CustomerEvent.builder().eventId("e3").eventType(CustomerEvent.EventType.CREATED)
+                        .customerId(1L).build()),
+                row(4, update("e4", 1L, CustomerEvent.EventType.UPDATED, "lastName", new FieldChange("C", "D"))),
+                row(5, update("e5", 1L, CustomerEvent.EventType.UPDATED, "lastName", new FieldChange("D", "E"))));
+
+        // Act
+        List<OutboxMessage> messages = coalescer.coalesce(batch);
+
+        // Assert
+        assertEquals(4, messages.size());
+        assertSame(batch.get(0), messages.get(0));
+        assertSame(batch.get(1), messages.get(1));
+        assertSame(batch.get(2), messages.get(2));
+        assertEquals(new FieldChange("C", "E"), decode(messages.get(3)).getChanges().get("lastName"));
+    }
+
+    @Test
+    void coalesce_WhenAnUpdateCannotBeDecoded_ShouldSendTheRowsUnmerged() {
+        // Arrange
+        EventCoalescer coalescer = coalescer(new SimpleMeterRegistry());
+        OutboxMessage broken = row(2, update("e2", 1L, CustomerEvent.EventType.UPDATED,
+                "lastName", new FieldChange("B", "C")));
+        broken.setPayload("not json".getBytes());
+        List<OutboxMessage> batch = Arrays.asList(
+                row(1, update("e1", 1L, CustomerEvent.EventType.UPDATED, "lastName", new FieldChange("A", "B"))),
+                broken);
+
+        // Act
+        List<OutboxMessage> messages = coalescer.coalesce(batch);
+
+        // Assert
+        assertEquals(batch, messages);
+    }
+
+    @Test
+    void due_ShouldHoldACustomersTrailingUpdatesWhileTheNewestIsInsideTheWindow() {
+        // Arrange - window 500ms, max delay 2s
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        EventCoalescer coalescer = coalescer(registry);
+        List<OutboxMessage> batch = Arrays.asList(
+                row(1, update("e1", 1L, CustomerEvent.EventType.UPDATED, "lastName", new FieldChange("A", "B")),
+                        NOW.minus(Duration.ofMillis(900))),
+                row(2, update("e2", 2L, CustomerEvent.EventType.UPDATED, "lastName", new FieldChange("A", "B")),
+                        NOW.minus(Duration.ofMillis(800))),
+                row(3, update("e3", 3L, CustomerEvent.EventType.UPDATED, "lastName", new FieldChange("A", "B")),
+                        NOW.minus(Duration.ofMillis(700))),
+                row(4, update("e4", 1L, CustomerEvent.EventType.UPDATED, "lastName", new FieldChange("B", "C")),
+                        NOW.minus(Duration.ofMillis(100))),
+                row(5, CustomerEvent.builder().eventId("e5").eventType(CustomerEvent.EventType.DELETED)
+                        .customerId(2L).build(), NOW.minus(Duration.ofMillis(50))),
+                row(6, CustomerEvent.builder().eventId("e6").eventType(CustomerEvent.EventType.CREATED)
+                        .customerId(4L).build(), NOW.minus(Duration.ofMillis(10))));
+
+        // Act
+        List<OutboxMessage> due = coalescer.due(batch, NOW);
+
+        // Assert - customer 1 is still receiving updates; customer 2's delete releases its update
+        assertEquals(Arrays.asList(2L, 3L, 5L, 6L),
+                due.stream().map(OutboxMessage::getId).collect(Collectors.toList()));
+        assertEquals(2.0, registry.get("messaging.coalescer.held").counter().count());
+
+        // Once the window passed without another update, the held rows are merged into one
+        List<OutboxMessage> later = coalescer.coalesce(coalescer.due(
+                Arrays.asList(batch.get(0), batch.get(3)), NOW.plus(Duration.ofMillis(500))));
+        assertEquals(1, later.size());
+        assertEquals(new FieldChange("A", "C"), decode(later.get(0)).getChanges().get("lastName"));
+    }
+
+    @Test
+    void due_WhenTheOldestHeldUpdateReachesTheMaxDelay_ShouldReleaseTheRun() {
+        // Arrange - a customer updated every 300ms never goes quiet for the 500ms window
+        EventCoalescer coalescer = coalescer(new SimpleMeterRegistry());
+        List<OutboxMessage> batch = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            CustomerEvent event = update("e" + i, 1L, CustomerEvent.EventType.UPDATED,
+                    "lastName", new FieldChange("N" + i, "N" + (i + 1)));
+            batch.add(row(i + 1, event, NOW.minus(Duration.ofMillis(1900 - 300L * i))));
+        }
+
+        // Act
+        List<OutboxMessage> beforeMaxDelay = coalescer.due(batch, NOW);
+        List<OutboxMessage> atMaxDelay = coalescer.due(batch, NOW.plus(Duration.ofMillis(100)));
+
+        // Assert
+        assertTrue(beforeMaxDelay.isEmpty());
+        assertEquals(batch, atMaxDelay);
+        List<OutboxMessage> messages = coalescer.coalesce(atMaxDelay);
+        assertEquals(1, messages.size());
+        assertEquals(new FieldChange("N0", "N7"), decode(messages.get(0)).getChanges().get("lastName"));
+    }
+
+    private EventCoalescer coalescer(SimpleMeterRegistry registry) {
+        return new EventCoalescer(converter, registry, Duration.ofMillis(500), Duration.ofSeconds(2));
+    }
+
+    private OutboxMessage row(long id, CustomerEvent event, LocalDateTime createdAt) {
+        OutboxMessage row = row(id, event);
+        row.setCreatedAt(createdAt);
+        return row;
+    }
+
+    private OutboxMessage row(long id, CustomerEvent event) {
+        MessageProperties properties = new MessageProperties();
+        Message message = converter.toMessage(event, properties);
+        return OutboxMessage.builder()
+                .id(id)
+                .eventId(event.getEventId())
+                .aggregateId(event.getCustomerId())
+                .eventType(event.getEventType().name())
+                .exchange("credit-service-exchange")
+                .routingKey("credit.customer.event.0")
+                .contentType(properties.getContentType())
+                .typeId(properties.getHeaders().get(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME).toString())
+                .payload(message.getBody())
+                .build();
+    }
+
+    private CustomerEvent decode(OutboxMessage message) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(message.getContentType());
+        properties.setHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME, message.getTypeId());
+        return (CustomerEvent) converter.fromMessage(new Message(message.getPayload(), properties));
+    }
+
+    private static CustomerEvent update(String eventId, Long customerId, CustomerEvent.EventType type,
+                                        String field, FieldChange change) {
+        Map<String, FieldChange> changes = Collections.singletonMap(field, change);
+        return CustomerEvent.builder()
+                .eventId(eventId)
+                .eventType(type)
+                .customerId(customerId)
+                .changes(changes)
+                .build();
+    }
+}
@@ -0,0 +1,88 @@
+package com.credit.messaging;
+
+import com.credit.model.CustomerEvent;
+import com.credit.repository.ProcessedEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EventDeduplicatorTest {
+
+    @Mock
+    private ProcessedEventRepository processedEventRepository;
+
+    @Test
+    void filterUnprocessed_ShouldDropEventsAlreadyMarkedAndRepeatsInBatch() {
+        // Arrange
+        EventDeduplicator deduplicator = new EventDeduplicator(
+                processedEventRepository, new SimpleMeterRegistry(), 1000, Duration.ofMinutes(5), false);
+        CustomerEvent first = event("a");
+        deduplicator.markProcessed(Collections.singletonList(first));
+
+        // Act
+        List<CustomerEvent> fresh = deduplicator.filterUnprocessed(
+                Arrays.asList(event("a"), event("b"), event("b"), event(null)));
+
+        // Assert
+        assertEquals(2, fresh.size());
+        assertEquals("b", fresh.get(0).getEventId());
+        assertNull(fresh.get(1).getEventId());
+        verifyNoInteractions(processedEventRepository);
+    }
+
+    @Test
+    void filterUnprocessed_WhenPersistent_ShouldCheckStoreOncePerBatch() {
+        // Arrange
+        EventDeduplicator deduplicator = new EventDeduplicator(
+                processedEventRepository, new SimpleMeterRegistry(), 1000, Duration.ofMinutes(5), true);
+        when(processedEventRepository.findProcessed(anyCollection())).thenReturn(Collections.singleton("a"));
+
+        // Act
+        List<CustomerEvent> fresh = deduplicator.filterUnprocessed(Arrays.asList(event("a"), event("b")));
+        deduplicator.markProcessed(fresh);
+
+        // Assert
+        assertEquals(1, fresh.size());
+        assertEquals("b", fresh.get(0).getEventId());
+        verify(processedEventRepository, times(1)).findProcessed(anyCollection());
+        verify(processedEventRepository).insertAll(Collections.singletonList("b"));
+    }
+
+    @Test
+    void filterUnprocessed_ShouldKeepEventsMarkedAlwaysProcessEvenIfSeenBefore() {
+        // Arrange
+        EventDeduplicator deduplicator = new EventDeduplicator(
+                processedEventRepository, new SimpleMeterRegistry(), 1000, Duration.ofMinutes(5), false);
+        CustomerEvent original = event("a");
+        deduplicator.markProcessed(Collections.singletonList(original));
+        CustomerEvent replayed = event("a");
+
+        // Act
+        List<CustomerEvent> fresh = deduplicator.filterUnprocessed(
+                Arrays.asList(event("a"), replayed), event -> event == replayed);
+
+        // Assert
+        assertEquals(1, fresh.size());
+        assertSame(replayed, fresh.get(0));
+    }
+
+    private static CustomerEvent event(String eventId) {
+        return CustomerEvent.builder()
+                .eventId(eventId)
+                .eventType(CustomerEvent.EventType.UPDATED)
+                .customerId(1L)
+                .build();
+    }
+}
@@ -0,0 +1,48 @@
+package com.credit.messaging;
+
+import com.credit.model.CustomerEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalEventBusTest {
+
+    @Test
+    void publish_ShouldDeliverEveryEventInOrderAcrossRingWraps() throws InterruptedException {
+        // Arrange
+        int count = 1000;
+        LocalEventBus bus = new LocalEventBus(new SimpleMeterRegistry(), true, 16);
+        List<Long> received = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(count);
+        bus.subscribe(event -> {
+            received.add(event.getSequence());
+            done.countDown();
+        });
+        bus.start();
+
+        // Act
+        for (long i = 0; i < count; i++) {
+            bus.publish(CustomerEvent.builder()
+                    .eventId("e" + i).sequence(i).eventType(CustomerEvent.EventType.UPDATED).customerId(1L).build());
+        }
+
+        // Assert
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, received.get(i));
+        }
+        bus.stop();
+    }
+
+    @Test
+    void constructor_ShouldRejectRingSizeThatIsNotAPowerOfTwo() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new LocalEventBus(new SimpleMeterRegistry(), true, 1000));
+    }
+}
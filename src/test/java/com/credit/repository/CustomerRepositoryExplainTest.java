@@ -0,0 +1,176 @@
+package com.credit.repository;
+
+import com.credit.entity.CustomerEntity;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs EXPLAIN on the SQL generated for common customer filter combinations
+ * against a real MySQL, proving they are served by an index range scan.
+ * Skipped when Docker is not available.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class CustomerRepositoryExplainTest {
+
+    private static final int ROWS = 20_000;
+    private static final int PAGE_LIMIT = 51;
+
+    @Container
+    private static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0");
+
+    @DynamicPropertySource
+    static void configureDatasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", MYSQL::getJdbcUrl);
+        registry.add("spring.datasource.username", MYSQL::getUsername);
+        registry.add("spring.datasource.password", MYSQL::getPassword);
+        registry.add("spring.jpa.properties.hibernate.session_factory.statement_inspector",
+                CapturingStatementInspector.class::getName);
+    }
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void seedCustomers() {
+        Integer existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM customers", Integer.class);
+        if (existing != null && existing >= ROWS) {
+            return;
+        }
+
+        // Uniform scores (300-850) and salaries (0-200k) so the filters below are selective
+        Random random = new Random(42);
+        List<Object[]> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(new Object[]{
+                    "First" + i, "Last" + i, "customer" + i + "@example.com",
+                    300 + random.nextInt(551), random.nextDouble() * 200000.0
+            });
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO customers (first_name, last_name, email, credit_score, annual_salary) VALUES (?, ?, ?, ?, ?)",
+                rows);
+        jdbcTemplate.execute("ANALYZE TABLE customers");
+    }
+
+    @Test
+    void creditScoreRange_ShouldUseCompositeIndexRangeScan() {
+        Map<String, Object> plan = explain(
+                CustomerSpecifications.withFilters(null, null, 845, 850, null, null)
+                        .and(CustomerSpecifications.idGreaterThan(0L)),
+                845, 850, 0L, PAGE_LIMIT);
+
+        assertRangeScanOn("idx_customers_credit_salary_id", plan);
+    }
+
+    @Test
+    void creditScoreAndSalaryRange_ShouldUseCompositeIndexRangeScan() {
+        Map<String, Object> plan = explain(
+                CustomerSpecifications.withFilters(null, null, 845, null, 150000.0, null)
+                        .and(CustomerSpecifications.idGreaterThan(0L)),
+                845, 150000.0, 0L, PAGE_LIMIT);
+
+        assertRangeScanOn("idx_customers_credit_salary_id", plan);
+    }
+
+    @Test
+    void salaryRange_ShouldUseSalaryIndexRangeScan() {
+        Map<String, Object> plan = explain(
+                CustomerSpecifications.withFilters(null, null, null, null, 199000.0, null)
+                        .and(CustomerSpecifications.idGreaterThan(0L)),
+                199000.0, 0L, PAGE_LIMIT);
+
+        assertRangeScanOn("idx_customers_salary_id", plan);
+    }
+
+    @Test
+    void namePrefixSearch_ShouldRangeScanBothNameIndexes() {
+        CapturingStatementInspector.reset();
+        customerRepository.searchByNamePrefix("First1999%", 0L, PAGE_LIMIT);
+        String sql = CapturingStatementInspector.lastSql();
+        assertNotNull(sql, "No SQL was captured for the name search");
+
+        // Bind values in SQL order: each branch (pattern, cursor, limit), then the outer limit
+        List<Map<String, Object>> plan = jdbcTemplate.queryForList("EXPLAIN " + sql,
+                "First1999%", 0L, PAGE_LIMIT, "First1999%", 0L, PAGE_LIMIT, PAGE_LIMIT);
+
+        assertRangeScanOn("idx_customers_first_name", planRowUsing("idx_customers_first_name", plan));
+        assertRangeScanOn("idx_customers_last_name", planRowUsing("idx_customers_last_name", plan));
+    }
+
+    /**
+     * Run the Specification through the repository, capture the SQL Hibernate generated
+     * and EXPLAIN it with the same bind values (filters, then cursor, then limit)
+     */
+    private Map<String, Object> explain(Specification<CustomerEntity> specification, Object... parameters) {
+        CapturingStatementInspector.reset();
+        customerRepository.findPage(specification, PAGE_LIMIT);
+        String sql = CapturingStatementInspector.lastSql();
+        assertNotNull(sql, "No SQL was captured for the customer query");
+
+        List<Map<String, Object>> plan = jdbcTemplate.queryForList("EXPLAIN " + sql, parameters);
+        assertEquals(1, plan.size(), "Expected a single-table plan: " + plan);
+        return plan.get(0);
+    }
+
+    private Map<String, Object> planRowUsing(String index, List<Map<String, Object>> plan) {
+        return plan.stream()
+                .filter(row -> index.equals(row.get("key")))
+                .findFirst()
+                .orElseGet(() -> fail("No plan step uses " + index + ": " + plan));
+    }
+
+    private void assertRangeScanOn(String expectedIndex, Map<String, Object> plan) {
+        assertEquals("range", plan.get("type"), "Unexpected access type: " + plan);
+        assertEquals(expectedIndex, plan.get("key"), "Unexpected index: " + plan);
+    }
+
+    /**
+     * Records the last SQL statement Hibernate prepared against the customers table
+     */
+    public static class CapturingStatementInspector implements StatementInspector {
+
+        private static volatile String lastSql;
+
+        static void reset() {
+            lastSql = null;
+        }
+
+        static String lastSql() {
+            return lastSql;
+        }
+
+        @Override
+        public String inspect(String sql) {
+            if (sql.contains("customers")) {
+                lastSql = sql;
+            }
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.credit.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the rescoring reads and guarded batch UPDATE against a real MySQL
+ * Skipped when Docker is not available.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+@Import(CustomerScoringRepository.class)
+class CustomerScoringRepositoryTest {
+
+    @Container
+    private static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0");
+
+    @DynamicPropertySource
+    static void configureDatasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", MYSQL::getJdbcUrl);
+        registry.add("spring.datasource.username", MYSQL::getUsername);
+        registry.add("spring.datasource.password", MYSQL::getPassword);
+    }
+
+    @Autowired
+    private CustomerScoringRepository scoringRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void updateScores_ShouldSkipRowsWhoseInputsChangedSinceTheyWereRead() {
+        // Arrange
+        jdbcTemplate.update("INSERT INTO customers (first_name, last_name, email, credit_score, annual_salary, " +
+                "credit_risk_score, credit_risk_model_version) VALUES ('Ann', 'Lee', 'ann@example.com', 700, " +
+                "60000, 0.4, 'v1'), ('Bob', 'Ray', 'bob@example.com', 650, 45000, NULL, NULL)");
+        long[] bounds = scoringRepository.findIdBounds();
+        long[] ids = new long[10];
+        int[] creditScores = new int[10];
+        double[] annualSalaries = new double[10];
+        double[] previousRiskScores = new double[10];
+        String[] previousVersions = new String[10];
+        int count = scoringRepository.findScoringInputs(bounds[0], bounds[1], "v2", ids, creditScores,
+                annualSalaries, previousRiskScores, previousVersions);
+        // An API update of the second customer lands between the read and the write
+        jdbcTemplate.update("UPDATE customers SET credit_score = 720, credit_risk_score = 0.3, " +
+                "credit_risk_model_version = 'v2' WHERE id = ?", ids[1]);
+
+        // Act
+        int[] updateCounts = scoringRepository.updateScores(ids, creditScores, annualSalaries,
+                new double[]{0.25, 0.5}, "v2", count);
+
+        // Assert
+        assertEquals(2, count);
+        assertEquals(0.4, previousRiskScores[0]);
+        assertEquals("v1", previousVersions[0]);
+        assertTrue(Double.isNaN(previousRiskScores[1]));
+        assertNull(previousVersions[1]);
+        assertArrayEquals(new int[]{1, 0}, updateCounts);
+        assertEquals(0.25, jdbcTemplate.queryForObject(
+                "SELECT credit_risk_score FROM customers WHERE id = ?", Double.class, ids[0]));
+        assertEquals(0.3, jdbcTemplate.queryForObject(
+                "SELECT credit_risk_score FROM customers WHERE id = ?", Double.class, ids[1]));
+        assertEquals(0, scoringRepository.findScoringInputs(bounds[0], bounds[1], "v2", ids, creditScores,
+                annualSalaries, previousRiskScores, previousVersions));
+    }
+}
@@ -0,0 +1,93 @@
+package com.credit.repository;
+
+import com.credit.model.RescoringJob;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks against a real MySQL that only one replica can claim or create a rescoring job
+ * Skipped when Docker is not available.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+@Import(RescoringJobRepository.class)
+class RescoringJobRepositoryTest {
+
+    @Container
+    private static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0");
+
+    @DynamicPropertySource
+    static void configureDatasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", MYSQL::getJdbcUrl);
+        registry.add("spring.datasource.username", MYSQL::getUsername);
+        registry.add("spring.datasource.password", MYSQL::getPassword);
+    }
+
+    @Autowired
+    private RescoringJobRepository jobRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void clearJobs() {
+        jdbcTemplate.update("DELETE FROM rescoring_jobs");
+    }
+
+    @Test
+    void claim_ShouldSucceedOnlyOnceAndOnlyForJobsWithoutARecentHeartbeat() {
+        // Arrange
+        long cancelled = jobRepository.insert(job("v1", RescoringJob.State.CANCELLED));
+        long running = jobRepository.insert(job("v2", RescoringJob.State.RUNNING));
+        long stale = jobRepository.insert(job("v3", RescoringJob.State.RUNNING));
+        jdbcTemplate.update("UPDATE rescoring_jobs SET updated_at = CURRENT_TIMESTAMP(6) - INTERVAL 2 MINUTE " +
+                "WHERE id = ?", stale);
+
+        // Act & Assert
+        assertTrue(jobRepository.claim(cancelled, Duration.ofSeconds(60)));
+        assertFalse(jobRepository.claim(cancelled, Duration.ofSeconds(60)), "A second claimer must lose");
+        assertFalse(jobRepository.claim(running, Duration.ofSeconds(60)));
+        assertTrue(jobRepository.claim(stale, Duration.ofSeconds(60)));
+        assertEquals(RescoringJob.State.RUNNING, jobRepository.findById(cancelled).orElseThrow().getState());
+    }
+
+    @Test
+    void insert_WhenTheModelVersionHasAnUnfinishedJob_ShouldFail() {
+        // Arrange
+        long first = jobRepository.insert(job("v2", RescoringJob.State.RUNNING));
+
+        // Act & Assert
+        assertThrows(DuplicateKeyException.class, () -> jobRepository.insert(job("v2", RescoringJob.State.RUNNING)));
+        jobRepository.updateState(first, RescoringJob.State.COMPLETED, null);
+        assertNotEquals(first, jobRepository.insert(job("v2", RescoringJob.State.RUNNING)));
+    }
+
+    private static RescoringJob job(String modelVersion, RescoringJob.State state) {
+        return RescoringJob.builder()
+                .modelVersion(modelVersion)
+                .state(state)
+                .fromId(1)
+                .toId(100)
+                .lastId(0)
+                .build();
+    }
+}
@@ -0,0 +1,53 @@
+package com.credit.scoring;
+
+import com.credit.entity.CustomerEntity;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LinearCreditRiskScoringEngineTest {
+
+    @Test
+    void score_WithDefaultModel_ShouldMatchOriginalFormula() {
+        // Arrange
+        LinearCreditRiskScoringEngine engine = new LinearCreditRiskScoringEngine(new CreditRiskModel());
+        CustomerEntity entity = new CustomerEntity();
+        entity.setCreditScore(750);
+        entity.setAnnualSalary(85000.0);
+        double expected = 1.0 - ((((750 - 300.0) / (850.0 - 300.0)) * 0.7) + (Math.min(85000.0 / 200000.0, 1.0) * 0.3));
+
+        // Act
+        engine.score(entity);
+
+        // Assert
+        assertEquals(expected, entity.getCreditRiskScore());
+        assertEquals("v1", entity.getCreditRiskModelVersion());
+    }
+
+    @Test
+    void scoreBatch_ShouldMatchSingleScores() {
+        // Arrange
+        LinearCreditRiskScoringEngine engine = new LinearCreditRiskScoringEngine(
+                new CreditRiskModel("v2", 0.6, 0.4, 300.0, 850.0, 250000.0));
+        int[] creditScores = {300, 550, 680, 850, 720};
+        double[] salaries = {0.0, 45000.0, 65000.0, 400000.0, 120000.0};
+        double[] riskScores = new double[8];
+
+        // Act
+        engine.scoreBatch(creditScores, salaries, riskScores, creditScores.length);
+
+        // Assert
+        for (int i = 0; i < creditScores.length; i++) {
+            assertEquals(engine.score(creditScores[i], salaries[i]), riskScores[i]);
+        }
+        assertEquals(0.0, riskScores[creditScores.length]);
+        assertEquals("v2", engine.modelVersion());
+    }
+
+    @Test
+    void constructor_ShouldRejectEmptyCreditScoreRange() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new LinearCreditRiskScoringEngine(
+                new CreditRiskModel("bad", 0.7, 0.3, 850.0, 850.0, 200000.0)));
+    }
+}
@@ -0,0 +1,274 @@
+package com.credit.service;
+
+import com.credit.exception.InvalidRequestException;
+import com.credit.factory.CustomerEventFactory;
+import com.credit.model.CustomerEvent;
+import com.credit.model.FieldChange;
+import com.credit.model.RescoringJob;
+import com.credit.repository.CustomerScoringRepository;
+import com.credit.repository.RescoringJobRepository;
+import com.credit.scoring.CreditRiskModel;
+import com.credit.scoring.LinearCreditRiskScoringEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerRescoringServiceTest {
+
+    private static final long JOB_ID = 7L;
+
+    @Mock
+    private CustomerScoringRepository scoringRepository;
+
+    @Mock
+    private RescoringJobRepository jobRepository;
+
+    @Mock
+    private CustomerCache customerCache;
+
+    @Mock
+    private OutboxService outboxService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final LinearCreditRiskScoringEngine scoringEngine = new LinearCreditRiskScoringEngine(
+            new CreditRiskModel("v2", 0.6, 0.4, 300.0, 850.0, 250000.0));
+    // Ranges of the chunks read, and ids whose inputs change before their UPDATE
+    private final Queue<long[]> chunks = new ConcurrentLinkedQueue<>();
+    private final Set<Long> changedMeanwhile = Collections.synchronizedSet(new HashSet<>());
+    private long lastCustomerId;
+    private long readDelayMs;
+    private CustomerRescoringService service;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(scoringRepository.findScoringInputs(anyLong(), anyLong(), anyString(), any(long[].class),
+                any(int[].class), any(double[].class), any(double[].class), any(String[].class)))
+                .thenAnswer(invocation -> {
+                    long fromId = invocation.getArgument(0);
+                    long toId = invocation.getArgument(1);
+                    chunks.add(new long[]{fromId, toId});
+                    Thread.sleep(readDelayMs);
+                    long[] ids = invocation.getArgument(3);
+                    int[] creditScores = invocation.getArgument(4);
+                    double[] annualSalaries = invocation.getArgument(5);
+                    double[] previousRiskScores = invocation.getArgument(6);
+                    String[] previousVersions = invocation.getArgument(7);
+                    int count = 0;
+                    for (long id = fromId; id <= Math.min(toId, lastCustomerId); id++, count++) {
+                        ids[count] = id;
+                        creditScores[count] = 600 + (int) id;
+                        annualSalaries[count] = 50000.0;
+                        // Even ids predate versioning and were never scored
+                        previousRiskScores[count] = id % 2 == 0 ? Double.NaN : 0.5;
+                        previousVersions[count] = id % 2 == 0 ? null : "v1";
+                    }
+                    return count;
+                });
+        lenient().when(scoringRepository.updateScores(any(long[].class), any(int[].class), any(double[].class),
+                any(double[].class), anyString(), anyInt())).thenAnswer(invocation -> {
+                    long[] ids = invocation.getArgument(0);
+                    int length = invocation.getArgument(5);
+                    int[] counts = new int[length];
+                    for (int i = 0; i < length; i++) {
+                        counts[i] = changedMeanwhile.contains(ids[i]) ? 0 : 1;
+                    }
+                    return counts;
+                });
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void start_ShouldRescoreEveryIdInChunksAndCheckpointAfterEachWave() {
+        // Arrange - waves of chunkSize * parallelism * 4 = 40 ids
+        lastCustomerId = 100;
+        givenNewJob(1, 100);
+        service = service(5, 2, Duration.ofSeconds(60));
+
+        // Act
+        service.start(null);
+
+        // Assert
+        verify(jobRepository, timeout(2000)).updateState(JOB_ID, RescoringJob.State.COMPLETED, null);
+        assertCoveredOnceInChunksOfAtMost(5, 1, 100);
+        InOrder checkpoints = inOrder(jobRepository);
+        checkpoints.verify(jobRepository).checkpoint(JOB_ID, 40, 40);
+        checkpoints.verify(jobRepository).checkpoint(JOB_ID, 80, 80);
+        checkpoints.verify(jobRepository).checkpoint(JOB_ID, 100, 100);
+    }
+
+    @Test
+    void start_WithAnUnfinishedJob_ShouldResumeAfterItsCheckpoint() {
+        // Arrange
+        lastCustomerId = 100;
+        RescoringJob cancelled = job(3L, RescoringJob.State.CANCELLED, 40, LocalDateTime.now());
+        when(jobRepository.findLatestUnfinished("v2")).thenReturn(Optional.of(cancelled));
+        when(jobRepository.claim(3L, Duration.ofSeconds(60))).thenReturn(true);
+        service = service(5, 2, Duration.ofSeconds(60));
+
+        // Act
+        service.start(null);
+
+        // Assert
+        verify(jobRepository, timeout(2000)).updateState(3L, RescoringJob.State.COMPLETED, null);
+        verify(scoringRepository, never()).findIdBounds();
+        assertCoveredOnceInChunksOfAtMost(5, 41, 100);
+        // Rows rescored before the interruption are carried over
+        verify(jobRepository).checkpoint(3L, 80, 80);
+        verify(jobRepository).checkpoint(3L, 100, 100);
+    }
+
+    @Test
+    void start_WhenAnotherReplicaRunsTheJob_ShouldRefuse() {
+        // Arrange
+        RescoringJob running = job(3L, RescoringJob.State.RUNNING, 40, LocalDateTime.now().minusSeconds(30));
+        when(jobRepository.findLatestUnfinished("v2")).thenReturn(Optional.of(running));
+        when(jobRepository.claim(3L, Duration.ofSeconds(60))).thenReturn(false);
+        service = service(5, 2, Duration.ofSeconds(60));
+
+        // Act & Assert
+        assertThrows(InvalidRequestException.class, () -> service.start(null));
+        verify(jobRepository, never()).updateState(anyLong(), any(), any());
+        verifyNoInteractions(scoringRepository);
+    }
+
+    @Test
+    void start_WhenAnotherReplicaInsertedTheJobMeanwhile_ShouldRefuse() {
+        // Arrange
+        when(jobRepository.findLatestUnfinished("v2")).thenReturn(Optional.empty());
+        when(scoringRepository.findIdBounds()).thenReturn(new long[]{1, 100});
+        when(jobRepository.insert(any(RescoringJob.class))).thenThrow(new DuplicateKeyException("duplicate"));
+        service = service(5, 2, Duration.ofSeconds(60));
+
+        // Act & Assert
+        assertThrows(InvalidRequestException.class, () -> service.start(null));
+        verify(scoringRepository, never()).findScoringInputs(anyLong(), anyLong(), anyString(), any(long[].class),
+                any(int[].class), any(double[].class), any(double[].class), any(String[].class));
+    }
+
+    @Test
+    void start_ShouldEmitEventsInTheChunkTransactionOnlyForRowsTheGuardedUpdateChanged() {
+        // Arrange
+        lastCustomerId = 10;
+        changedMeanwhile.add(4L);
+        givenNewJob(1, 10);
+        service = service(10, 1, Duration.ofSeconds(60));
+
+        // Act
+        service.start(null);
+
+        // Assert
+        verify(jobRepository, timeout(2000)).updateState(JOB_ID, RescoringJob.State.COMPLETED, null);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<CustomerEvent>> events = ArgumentCaptor.forClass(List.class);
+        InOrder transaction = inOrder(transactionManager, scoringRepository, outboxService);
+        transaction.verify(transactionManager).getTransaction(any());
+        transaction.verify(scoringRepository).updateScores(any(long[].class), any(int[].class), any(double[].class),
+                any(double[].class), eq("v2"), eq(10));
+        transaction.verify(outboxService).enqueueAll(events.capture());
+        transaction.verify(transactionManager).commit(any());
+
+        List<Long> emitted = events.getValue().stream().map(CustomerEvent::getCustomerId).collect(Collectors.toList());
+        assertEquals(Arrays.asList(1L, 2L, 3L, 5L, 6L, 7L, 8L, 9L, 10L), emitted);
+        CustomerEvent first = events.getValue().get(0);
+        assertEquals(CustomerEvent.EventType.UPDATED, first.getEventType());
+        assertEquals(new FieldChange(0.5, scoringEngine.score(601, 50000.0)), first.getChanges().get("creditRiskScore"));
+        assertEquals(new FieldChange("v1", "v2"), first.getChanges().get("creditRiskModelVersion"));
+        assertNull(events.getValue().get(1).getChanges().get("creditRiskScore").getOldValue());
+        verify(customerCache).evictAll(emitted);
+        verify(jobRepository).checkpoint(JOB_ID, 10, 9);
+    }
+
+    @Test
+    void start_WhileAWaveIsSlowerThanStaleAfter_ShouldHeartbeatTheJob() {
+        // Arrange
+        lastCustomerId = 10;
+        readDelayMs = 200;
+        givenNewJob(1, 10);
+        service = service(10, 1, Duration.ofMillis(100));
+
+        // Act
+        service.start(null);
+
+        // Assert
+        verify(jobRepository, timeout(2000)).updateState(JOB_ID, RescoringJob.State.COMPLETED, null);
+        verify(jobRepository, atLeast(2)).heartbeat(JOB_ID);
+    }
+
+    private CustomerRescoringService service(int chunkSize, int parallelism, Duration staleAfter) {
+        return new CustomerRescoringService(scoringRepository, jobRepository, scoringEngine, customerCache,
+                outboxService, new CustomerEventFactory(), new TransactionTemplate(transactionManager),
+                new SimpleMeterRegistry(), chunkSize, parallelism, 0, staleAfter);
+    }
+
+    private void givenNewJob(long fromId, long toId) {
+        when(jobRepository.findLatestUnfinished("v2")).thenReturn(Optional.empty());
+        when(scoringRepository.findIdBounds()).thenReturn(new long[]{fromId, toId});
+        when(jobRepository.insert(any(RescoringJob.class))).thenReturn(JOB_ID);
+    }
+
+    private void assertCoveredOnceInChunksOfAtMost(int chunkSize, long fromId, long toId) {
+        List<long[]> read = new ArrayList<>(chunks);
+        read.sort(Comparator.comparingLong(chunk -> chunk[0]));
+        long next = fromId;
+        for (long[] chunk : read) {
+            assertEquals(next, chunk[0], "Chunks must not overlap or leave gaps");
+            assertTrue(chunk[1] - chunk[0] + 1 <= chunkSize);
+            next = chunk[1] + 1;
+        }
+        assertEquals(toId + 1, next);
+    }
+
+    private static RescoringJob job(Long id, RescoringJob.State state, long lastId, LocalDateTime updatedAt) {
+        return RescoringJob.builder()
+                .id(id)
+                .modelVersion("v2")
+                .state(state)
+                .fromId(1)
+                .toId(100)
+                .lastId(lastId)
+                .rowsRescored(lastId)
+                .startedAt(updatedAt)
+                .updatedAt(updatedAt)
+                .build();
+    }
+}
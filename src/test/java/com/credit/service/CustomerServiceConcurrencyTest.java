@@ -0,0 +1,170 @@
+package com.credit.service;
+
+import com.credit.config.MessagingProperties;
+import com.credit.dto.UpdateCustomerRequest;
+import com.credit.entity.CustomerEntity;
+import com.credit.factory.CustomerEventFactory;
+import com.credit.mapper.CustomerMapper;
+import com.credit.messaging.CustomerEventPartitioner;
+import com.credit.messaging.LocalEventBus;
+import com.credit.repository.CustomerEventLogRepository;
+import com.credit.repository.OutboxRepository;
+import com.credit.scoring.CreditRiskModel;
+import com.credit.scoring.CreditRiskScoringEngine;
+import com.credit.scoring.LinearCreditRiskScoringEngine;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs two concurrent updates of one customer against a real MySQL and checks that
+ * the outbox records them in commit order. Skipped when Docker is not available.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+@Import({CustomerService.class, OutboxService.class, OutboxRepository.class, CustomerEventLogRepository.class,
+        CustomerMapper.class, CustomerEventFactory.class, CustomerCache.class, CustomerEventPartitioner.class,
+        CustomerServiceConcurrencyTest.Config.class})
+class CustomerServiceConcurrencyTest {
+
+    @Container
+    private static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0");
+
+    // The first update to be scored parks inside its transaction until released
+    private static final CountDownLatch FIRST_SCORING = new CountDownLatch(1);
+    private static final CountDownLatch RELEASE_FIRST = new CountDownLatch(1);
+    private static final AtomicInteger SCORED = new AtomicInteger();
+
+    @DynamicPropertySource
+    static void configureDatasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", MYSQL::getJdbcUrl);
+        registry.add("spring.datasource.username", MYSQL::getUsername);
+        registry.add("spring.datasource.password", MYSQL::getPassword);
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        MessagingProperties messagingProperties() {
+            return new MessagingProperties();
+        }
+
+        @Bean
+        CreditRiskScoringEngine scoringEngine() {
+            return new LinearCreditRiskScoringEngine(new CreditRiskModel("v1", 0.6, 0.4, 300.0, 850.0, 250000.0)) {
+                @Override
+                public void score(CustomerEntity entity) {
+                    if (SCORED.getAndIncrement() == 0) {
+                        FIRST_SCORING.countDown();
+                        awaitRelease();
+                    }
+                    super.score(entity);
+                }
+            };
+        }
+
+        private static void awaitRelease() {
+            try {
+                RELEASE_FIRST.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @MockBean
+    private RabbitTemplate rabbitTemplate;
+
+    @MockBean
+    private LocalEventBus localEventBus;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void setUp() {
+        when(rabbitTemplate.getMessageConverter()).thenReturn(new Jackson2JsonMessageConverter(objectMapper));
+    }
+
+    @Test
+    void updateCustomer_WhenTwoUpdatesRace_ShouldRecordOutboxEventsInCommitOrder() throws Exception {
+        // Arrange
+        jdbcTemplate.update("INSERT INTO customers (first_name, last_name, email, credit_score, annual_salary) " +
+                "VALUES ('Ann', 'Lee', 'race@example.com', 700, 60000)");
+        Long id = jdbcTemplate.queryForObject(
+                "SELECT id FROM customers WHERE email = 'race@example.com'", Long.class);
+
+        // Act - the second update starts while the first one holds the row inside its transaction
+        CompletableFuture<?> first = CompletableFuture.runAsync(
+                () -> customerService.updateCustomer(id, phoneNumber("+15550000001")));
+        assertTrue(FIRST_SCORING.await(10, TimeUnit.SECONDS));
+        CompletableFuture<?> second = CompletableFuture.runAsync(
+                () -> customerService.updateCustomer(id, phoneNumber("+15550000002")));
+        Thread.sleep(300);
+        int scoredWhileLocked = SCORED.get();
+        RELEASE_FIRST.countDown();
+        first.get(10, TimeUnit.SECONDS);
+        second.get(10, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(1, scoredWhileLocked, "The second update must wait for the row lock");
+        List<byte[]> payloads = jdbcTemplate.queryForList(
+                "SELECT payload FROM outbox_events WHERE aggregate_id = ? ORDER BY id", byte[].class, id);
+        assertEquals(2, payloads.size());
+        JsonNode earlier = objectMapper.readTree(payloads.get(0)).path("changes").path("phoneNumber");
+        JsonNode later = objectMapper.readTree(payloads.get(1)).path("changes").path("phoneNumber");
+        assertEquals("+15550000001", earlier.path("newValue").asText());
+        assertEquals("+15550000001", later.path("oldValue").asText());
+        // The last event in id order describes the state that is in the table
+        assertEquals(jdbcTemplate.queryForObject("SELECT phone_number FROM customers WHERE id = ?", String.class, id),
+                later.path("newValue").asText());
+    }
+
+    private static UpdateCustomerRequest phoneNumber(String phoneNumber) {
+        UpdateCustomerRequest request = new UpdateCustomerRequest();
+        request.setPhoneNumber(phoneNumber);
+        return request;
+    }
+}
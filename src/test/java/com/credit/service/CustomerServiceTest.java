@@ -3,26 +3,43 @@ package com.credit.service;
 import com.credit.dto.CreateCustomerRequest;
 import com.credit.dto.UpdateCustomerRequest;
 import com.credit.dto.CustomerDTO;
+import com.credit.dto.CursorPage;
+import com.credit.dto.NameSearchMode;
 import com.credit.entity.CustomerEntity;
 import com.credit.model.CustomerEvent;
+import com.credit.model.FieldChange;
 import com.credit.repository.CustomerRepository;
 import com.credit.mapper.CustomerMapper;
 import com.credit.factory.CustomerEventFactory;
 import com.credit.exception.CustomerNotFoundException;
 import com.credit.exception.DuplicateEmailException;
+import com.credit.exception.InvalidRequestException;
+import com.credit.scoring.CreditRiskModel;
+import com.credit.scoring.LinearCreditRiskScoringEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -35,7 +52,7 @@ class CustomerServiceTest {
     private CustomerRepository customerRepository;
 
     @Mock
-    private MessagePublisherService messagePublisherService;
+    private OutboxService outboxService;
 
     @Mock
     private CustomerMapper customerMapper;
@@ -43,6 +60,12 @@ class CustomerServiceTest {
     @Mock
     private CustomerEventFactory eventFactory;
 
+    @Mock
+    private CustomerCache customerCache;
+
+    @Spy
+    private LinearCreditRiskScoringEngine scoringEngine = new LinearCreditRiskScoringEngine(new CreditRiskModel());
+
     @InjectMocks
     private CustomerService customerService;
 
@@ -87,46 +110,130 @@ class CustomerServiceTest {
     }
 
     @Test
-    void getAllCustomers_ShouldReturnListOfCustomerDTOs() {
+    void getAllCustomers_ShouldReturnFirstPageOfCustomerDTOs() {
         // Arrange
-        List<CustomerEntity> entities = Arrays.asList(testEntity);
-        when(customerRepository.findAll()).thenReturn(entities);
-        when(customerMapper.toDTO(testEntity)).thenReturn(testDTO);
+        when(customerRepository.findPageAfter(0L, PageRequest.of(0, 51))).thenReturn(Arrays.asList(testDTO));
 
         // Act
-        List<CustomerDTO> actualCustomers = customerService.getAllCustomers();
+        CursorPage<CustomerDTO> page = customerService.getAllCustomers(null, null);
 
         // Assert
-        assertEquals(1, actualCustomers.size());
-        assertEquals(testDTO, actualCustomers.get(0));
-        verify(customerRepository).findAll();
-        verify(customerMapper).toDTO(testEntity);
+        assertEquals(1, page.getContent().size());
+        assertEquals(testDTO, page.getContent().get(0));
+        assertFalse(page.isHasMore());
+        assertNull(page.getNextCursor());
+        verify(customerRepository).findPageAfter(0L, PageRequest.of(0, 51));
+        verify(customerMapper, never()).toDTO(any());
+    }
+
+    @Test
+    void getAllCustomers_WhenMoreRowsExist_ShouldReturnCursorForNextPage() {
+        // Arrange
+        CustomerDTO secondDTO = CustomerDTO.builder().id(2L).build();
+        when(customerRepository.findPageAfter(0L, PageRequest.of(0, 2)))
+                .thenReturn(Arrays.asList(testDTO, secondDTO));
+
+        // Act
+        CursorPage<CustomerDTO> page = customerService.getAllCustomers(null, 1);
+
+        // Assert
+        assertEquals(1, page.getContent().size());
+        assertTrue(page.isHasMore());
+        assertEquals(1L, CursorPage.decodeCursor(page.getNextCursor()));
+    }
+
+    @Test
+    void getAllCustomers_WhenCursorIsMalformed_ShouldThrowException() {
+        assertThrows(InvalidRequestException.class, () -> customerService.getAllCustomers("not-a-cursor!", 10));
+        verify(customerRepository, never()).findPageAfter(any(), any());
     }
 
     @Test
     void getCustomerById_WhenCustomerExists_ShouldReturnCustomerDTO() {
         // Arrange
-        when(customerRepository.findById(1L)).thenReturn(Optional.of(testEntity));
-        when(customerMapper.toDTO(testEntity)).thenReturn(testDTO);
+        when(customerCache.generation(1L)).thenReturn(3L);
+        when(customerRepository.findDtoById(1L)).thenReturn(Optional.of(testDTO));
 
         // Act
         CustomerDTO foundCustomer = customerService.getCustomerById(1L);
 
         // Assert
         assertEquals(testDTO, foundCustomer);
-        verify(customerRepository).findById(1L);
-        verify(customerMapper).toDTO(testEntity);
+        verify(customerRepository).findDtoById(1L);
+        verify(customerCache).putIfUnchanged(testDTO, 3L);
+    }
+
+    @Test
+    void getCustomerById_WhenAWriteLandsDuringTheLoad_ShouldNotCacheTheOlderRow() {
+        // Arrange - a real cache; the update commits and refreshes it while the miss is loading
+        CustomerCache cache = new CustomerCache(100, Duration.ofMinutes(10), new SimpleMeterRegistry());
+        CustomerService service = new CustomerService(customerRepository, outboxService, customerMapper,
+                eventFactory, cache, scoringEngine);
+        CustomerDTO updated = CustomerDTO.builder()
+                .id(1L)
+                .firstName("Jane")
+                .lastName("Doe")
+                .email("john.doe@example.com")
+                .creditScore(750)
+                .annualSalary(80000.0)
+                .build();
+        when(customerRepository.findDtoById(1L)).thenAnswer(invocation -> {
+            cache.put(updated);
+            return Optional.of(testDTO);
+        });
+
+        // Act
+        CustomerDTO loaded = service.getCustomerById(1L);
+
+        // Assert
+        assertEquals(testDTO, loaded);
+        assertEquals(updated, cache.get(1L));
+    }
+
+    @Test
+    void getCustomerById_WhenAnEvictionLandsDuringTheLoad_ShouldNotCacheTheOlderRow() {
+        // Arrange - another replica's event evicts the customer while the miss is loading
+        CustomerCache cache = new CustomerCache(100, Duration.ofMinutes(10), new SimpleMeterRegistry());
+        CustomerService service = new CustomerService(customerRepository, outboxService, customerMapper,
+                eventFactory, cache, scoringEngine);
+        when(customerRepository.findDtoById(1L)).thenAnswer(invocation -> {
+            cache.evict(1L);
+            return Optional.of(testDTO);
+        });
+
+        // Act
+        service.getCustomerById(1L);
+
+        // Assert
+        assertNull(cache.get(1L));
+        // The next miss caches normally
+        when(customerRepository.findDtoById(1L)).thenReturn(Optional.of(testDTO));
+        service.getCustomerById(1L);
+        assertEquals(testDTO, cache.get(1L));
+    }
+
+    @Test
+    void getCustomerById_WhenCustomerIsCached_ShouldNotHitRepository() {
+        // Arrange
+        when(customerCache.get(1L)).thenReturn(testDTO);
+
+        // Act
+        CustomerDTO foundCustomer = customerService.getCustomerById(1L);
+
+        // Assert
+        assertEquals(testDTO, foundCustomer);
+        verify(customerRepository, never()).findDtoById(any());
     }
 
     @Test
     void getCustomerById_WhenCustomerDoesNotExist_ShouldThrowException() {
         // Arrange
-        when(customerRepository.findById(1L)).thenReturn(Optional.empty());
+        when(customerRepository.findDtoById(1L)).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(CustomerNotFoundException.class, () -> customerService.getCustomerById(1L));
-        verify(customerRepository).findById(1L);
-        verify(customerMapper, never()).toDTO(any());
+        verify(customerRepository).findDtoById(1L);
+        verify(customerCache, never()).putIfUnchanged(any(), anyLong());
     }
 
     @Test
@@ -149,7 +256,7 @@ class CustomerServiceTest {
         verify(customerRepository).save(any(CustomerEntity.class));
         verify(customerMapper).toDTO(testEntity);
         verify(eventFactory).createCustomerCreatedEvent(testEntity);
-        verify(messagePublisherService).publishCustomerEvent(any(CustomerEvent.class));
+        verify(outboxService).enqueue(any(CustomerEvent.class));
     }
 
     @Test
@@ -161,16 +268,17 @@ class CustomerServiceTest {
         assertThrows(DuplicateEmailException.class, () -> customerService.createCustomer(createRequest));
         verify(customerRepository).existsByEmail(createRequest.getEmail());
         verify(customerRepository, never()).save(any(CustomerEntity.class));
-        verify(messagePublisherService, never()).publishCustomerEvent(any());
+        verify(outboxService, never()).enqueue(any());
     }
 
     @Test
     void updateCustomer_WhenCustomerExists_ShouldUpdateCustomer() {
         // Arrange
-        when(customerRepository.findById(1L)).thenReturn(Optional.of(testEntity));
+        when(customerRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testEntity));
+        doCallRealMethod().when(customerMapper).updateEntity(testEntity, updateRequest);
         when(customerRepository.save(any(CustomerEntity.class))).thenReturn(testEntity);
         when(customerMapper.toDTO(testEntity)).thenReturn(testDTO);
-        when(eventFactory.createHighValueCustomerEvent(testEntity)).thenReturn(mock(CustomerEvent.class));
+        when(eventFactory.createCustomerChangedEvent(eq(testEntity), anyMap())).thenReturn(mock(CustomerEvent.class));
 
         // Act
         CustomerDTO updatedCustomer = customerService.updateCustomer(1L, updateRequest);
@@ -178,59 +286,183 @@ class CustomerServiceTest {
         // Assert
         assertNotNull(updatedCustomer);
         assertEquals(testDTO, updatedCustomer);
-        verify(customerRepository).findById(1L);
+        verify(customerRepository).findByIdForUpdate(1L);
         verify(customerMapper).updateEntity(testEntity, updateRequest);
         verify(customerRepository).save(testEntity);
         verify(customerMapper).toDTO(testEntity);
-        verify(eventFactory).createHighValueCustomerEvent(testEntity);
-        verify(messagePublisherService).publishCustomerEvent(any(CustomerEvent.class));
+        verify(outboxService).enqueue(any(CustomerEvent.class));
+    }
+
+    @Test
+    void updateCustomer_ShouldEmitOnlyChangedFields() {
+        // Arrange
+        scoringEngine.score(testEntity);
+        UpdateCustomerRequest phoneOnly = new UpdateCustomerRequest();
+        phoneOnly.setPhoneNumber("+15551234567");
+        when(customerRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testEntity));
+        doCallRealMethod().when(customerMapper).updateEntity(testEntity, phoneOnly);
+        when(customerRepository.save(testEntity)).thenReturn(testEntity);
+        when(customerMapper.toDTO(testEntity)).thenReturn(testDTO);
+
+        // Act
+        customerService.updateCustomer(1L, phoneOnly);
+
+        // Assert
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, FieldChange>> changes = ArgumentCaptor.forClass(Map.class);
+        verify(eventFactory).createCustomerChangedEvent(eq(testEntity), changes.capture());
+        assertEquals(1, changes.getValue().size());
+        assertEquals(new FieldChange(null, "+15551234567"), changes.getValue().get("phoneNumber"));
+    }
+
+    @Test
+    void updateCustomer_WhenCreditScoreChanges_ShouldEmitCreditScoreUpdatedEvent() {
+        // Arrange
+        CustomerEventFactory realFactory = new CustomerEventFactory();
+        scoringEngine.score(testEntity);
+        when(customerRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testEntity));
+        doCallRealMethod().when(customerMapper).updateEntity(testEntity, updateRequest);
+        when(customerRepository.save(testEntity)).thenReturn(testEntity);
+        when(customerMapper.toDTO(testEntity)).thenReturn(testDTO);
+        when(eventFactory.createCustomerChangedEvent(eq(testEntity), anyMap()))
+                .thenAnswer(invocation -> realFactory.createCustomerChangedEvent(
+                        invocation.getArgument(0), invocation.getArgument(1)));
+
+        // Act
+        customerService.updateCustomer(1L, updateRequest);
+
+        // Assert
+        ArgumentCaptor<CustomerEvent> event = ArgumentCaptor.forClass(CustomerEvent.class);
+        verify(outboxService).enqueue(event.capture());
+        assertEquals(CustomerEvent.EventType.CREDIT_SCORE_UPDATED, event.getValue().getEventType());
+        assertNull(event.getValue().getCustomer());
+        assertEquals(new FieldChange(750, 800), event.getValue().getChanges().get("creditScore"));
+        assertEquals(new FieldChange("John", "Jane"), event.getValue().getChanges().get("firstName"));
+        assertTrue(event.getValue().getChanges().containsKey("creditRiskScore"));
+        assertFalse(event.getValue().getChanges().containsKey("lastName"));
+    }
+
+    @Test
+    void updateCustomer_WhenNothingChanges_ShouldSkipWriteAndEvent() {
+        // Arrange
+        scoringEngine.score(testEntity);
+        UpdateCustomerRequest sameValues = new UpdateCustomerRequest();
+        sameValues.setFirstName("John");
+        sameValues.setCreditScore(750);
+        when(customerRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testEntity));
+        doCallRealMethod().when(customerMapper).updateEntity(testEntity, sameValues);
+        when(customerMapper.toDTO(testEntity)).thenReturn(testDTO);
+
+        // Act
+        CustomerDTO result = customerService.updateCustomer(1L, sameValues);
+
+        // Assert
+        assertEquals(testDTO, result);
+        verify(customerRepository, never()).save(any(CustomerEntity.class));
+        verify(customerCache, never()).put(any());
+        verifyNoInteractions(eventFactory, outboxService);
     }
 
     @Test
     void deleteCustomer_WhenCustomerExists_ShouldDeleteCustomer() {
         // Arrange
-        when(customerRepository.existsById(1L)).thenReturn(true);
+        when(customerRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testEntity));
         when(eventFactory.createCustomerDeletedEvent(1L)).thenReturn(mock(CustomerEvent.class));
 
         // Act
         customerService.deleteCustomer(1L);
 
         // Assert
-        verify(customerRepository).existsById(1L);
-        verify(customerRepository).deleteById(1L);
+        verify(customerRepository).findByIdForUpdate(1L);
+        verify(customerRepository).delete(testEntity);
+        verify(customerCache).evict(1L);
         verify(eventFactory).createCustomerDeletedEvent(1L);
-        verify(messagePublisherService).publishCustomerEvent(any(CustomerEvent.class));
+        verify(outboxService).enqueue(any(CustomerEvent.class));
+    }
+
+    @Test
+    void deleteCustomer_InsideTransaction_ShouldEvictOnlyAfterCommit() {
+        // Arrange
+        when(customerRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testEntity));
+        when(eventFactory.createCustomerDeletedEvent(1L)).thenReturn(mock(CustomerEvent.class));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Act
+            customerService.deleteCustomer(1L);
+
+            // Assert
+            verify(customerCache, never()).evict(any());
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            verify(customerCache).evict(1L);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
     }
 
     @Test
     void deleteCustomer_WhenCustomerDoesNotExist_ShouldThrowException() {
         // Arrange
-        when(customerRepository.existsById(1L)).thenReturn(false);
+        when(customerRepository.findByIdForUpdate(1L)).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(CustomerNotFoundException.class, () -> customerService.deleteCustomer(1L));
-        verify(customerRepository).existsById(1L);
-        verify(customerRepository, never()).deleteById(1L);
-        verify(messagePublisherService, never()).publishCustomerEvent(any());
+        verify(customerRepository).findByIdForUpdate(1L);
+        verify(customerRepository, never()).delete(any(CustomerEntity.class));
+        verify(outboxService, never()).enqueue(any());
     }
 
     @Test
     void getAllCustomersWithFilters_ShouldReturnFilteredResults() {
         // Arrange
-        List<CustomerEntity> entities = Arrays.asList(testEntity);
-        when(customerRepository.findCustomersWithFilters(
-                "John", null, 700, null, null, null)).thenReturn(entities);
+        when(customerRepository.findPage(any(), eq(51))).thenReturn(Arrays.asList(testDTO));
+
+        // Act
+        CursorPage<CustomerDTO> results = customerService.getAllCustomers(
+                "John", null, 700, null, null, null, null, null);
+
+        // Assert
+        assertEquals(1, results.getContent().size());
+        assertEquals(testDTO, results.getContent().get(0));
+        verify(customerRepository).findPage(any(), eq(51));
+        verify(customerRepository, never()).findPageAfter(any(), any());
+    }
+
+    @Test
+    void searchCustomersByName_InTokenMode_ShouldRequireEveryTerm() {
+        // Arrange
+        when(customerRepository.searchByNameTokens("+\"jo\" +\"doe\"", 0L, 51))
+                .thenReturn(Arrays.asList(testEntity));
         when(customerMapper.toDTO(testEntity)).thenReturn(testDTO);
 
         // Act
-        List<CustomerDTO> results = customerService.getAllCustomers(
-                "John", null, 700, null, null, null);
+        CursorPage<CustomerDTO> results = customerService.searchCustomersByName(
+                "jo doe* x", NameSearchMode.TOKEN, null, null);
 
         // Assert
-        assertEquals(1, results.size());
-        assertEquals(testDTO, results.get(0));
-        verify(customerRepository).findCustomersWithFilters(
-                "John", null, 700, null, null, null);
-        verify(customerMapper).toDTO(testEntity);
+        assertEquals(1, results.getContent().size());
+        verify(customerRepository).searchByNameTokens("+\"jo\" +\"doe\"", 0L, 51);
+    }
+
+    @Test
+    void searchCustomersByName_InTokenMode_ShouldRejectExcludedTerms() {
+        // Act & Assert
+        assertThrows(InvalidRequestException.class, () -> customerService.searchCustomersByName(
+                "jo -smith", NameSearchMode.TOKEN, null, null));
+        verify(customerRepository, never()).searchByNameTokens(any(), any(), anyInt());
+    }
+
+    @Test
+    void searchCustomersByName_InPrefixMode_ShouldEscapeWildcards() {
+        // Arrange
+        when(customerRepository.searchByNamePrefix("J!%o%", 0L, 51)).thenReturn(Arrays.asList(testEntity));
+        when(customerMapper.toDTO(testEntity)).thenReturn(testDTO);
+
+        // Act
+        CursorPage<CustomerDTO> results = customerService.searchCustomersByName(
+                "J%o", NameSearchMode.PREFIX, null, null);
+
+        // Assert
+        assertEquals(testDTO, results.getContent().get(0));
+        verify(customerRepository).searchByNamePrefix("J!%o%", 0L, 51);
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,227 @@
+package com.credit.service;
+
+import com.credit.config.RabbitMQConfig;
+import com.credit.model.CustomerEvent;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.GetResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.ChannelCallback;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DeadLetterServiceTest {
+
+    private static final String PARTITION_QUEUE = "customer-events.2";
+
+    @Mock
+    private MessagePublisherService messagePublisherService;
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private AmqpAdmin amqpAdmin;
+
+    @Mock
+    private Channel channel;
+
+    private SimpleMeterRegistry meterRegistry;
+    private DeadLetterService deadLetterService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        deadLetterService = new DeadLetterService(messagePublisherService, rabbitTemplate, amqpAdmin, meterRegistry,
+                new long[]{1000, 10000, 60000}, 4, 100);
+        lenient().when(messagePublisherService.publishRaw(anyString(), anyString(), any(Message.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @Test
+    void retryOrDeadLetter_ShouldPickTheTierOfTheNextAttempt() {
+        // Arrange
+        Message first = message(null);
+        Message third = message(2);
+
+        // Act
+        deadLetterService.retryOrDeadLetter(first, new IllegalStateException("boom"));
+        deadLetterService.retryOrDeadLetter(third, new IllegalStateException("boom"));
+
+        // Assert
+        verify(messagePublisherService).publishRaw("", RabbitMQConfig.retryQueueName(1000), first);
+        verify(messagePublisherService).publishRaw("", RabbitMQConfig.retryQueueName(60000), third);
+        assertEquals(1, first.getMessageProperties().getHeaders().get(DeadLetterService.ATTEMPT_HEADER));
+        assertEquals(3, third.getMessageProperties().getHeaders().get(DeadLetterService.ATTEMPT_HEADER));
+        assertEquals(PARTITION_QUEUE, first.getMessageProperties().getHeaders().get(RabbitMQConfig.TARGET_QUEUE_HEADER));
+        assertEquals(2.0, meterRegistry.get("messaging.consumer.retried").counter().count());
+    }
+
+    @Test
+    void retryOrDeadLetter_AfterMaxAttempts_ShouldDeadLetterWithFailureHeaders() {
+        // Arrange
+        Message message = message(3);
+        String longMessage = String.join("", Collections.nCopies(1200, "x"));
+
+        // Act
+        deadLetterService.retryOrDeadLetter(message, new IllegalArgumentException(longMessage));
+
+        // Assert
+        verify(messagePublisherService).publishRaw("", RabbitMQConfig.DEAD_LETTER_QUEUE_NAME, message);
+        Map<String, Object> headers = message.getMessageProperties().getHeaders();
+        assertEquals(IllegalArgumentException.class.getName(), headers.get(DeadLetterService.EXCEPTION_CLASS_HEADER));
+        assertEquals(1000, headers.get(DeadLetterService.EXCEPTION_MESSAGE_HEADER).toString().length());
+        assertNotNull(headers.get(DeadLetterService.FAILED_AT_HEADER));
+        assertEquals(PARTITION_QUEUE, headers.get(RabbitMQConfig.TARGET_QUEUE_HEADER));
+        assertEquals(1.0, meterRegistry.get("messaging.consumer.dead.lettered").counter().count());
+    }
+
+    @Test
+    void holdBackIfBlocked_ShouldParkLaterEventsBehindTheFailedOneUntilItIsProcessed() {
+        // Arrange
+        CustomerEvent failed = event("e-1", 7L);
+        CustomerEvent later = event("e-2", 7L);
+        CustomerEvent otherCustomer = event("e-3", 8L);
+        Message laterMessage = message(null);
+        deadLetterService.retryOrDeadLetter(failed, message(null), new IllegalStateException("boom"));
+
+        // Act
+        CompletableFuture<Void> heldBack = deadLetterService.holdBackIfBlocked(later, laterMessage);
+
+        // Assert
+        assertNotNull(heldBack);
+        verify(messagePublisherService).publishRaw("", RabbitMQConfig.retryQueueName(1000), laterMessage);
+        assertNull(laterMessage.getMessageProperties().getHeaders().get(DeadLetterService.ATTEMPT_HEADER));
+        assertNull(deadLetterService.holdBackIfBlocked(otherCustomer, message(null)));
+        assertNull(deadLetterService.holdBackIfBlocked(failed, message(1)));
+        assertTrue(deadLetterService.isHeldBack(7L));
+
+        deadLetterService.release(failed);
+        assertFalse(deadLetterService.isHeldBack(7L));
+        assertNull(deadLetterService.holdBackIfBlocked(later, message(null)));
+        assertEquals(1.0, meterRegistry.get("messaging.consumer.held.back").counter().count());
+    }
+
+    @Test
+    void holdBackIfBlocked_ShouldFollowTheFailedEventToItsNextTier() {
+        // Arrange
+        CustomerEvent failed = event("e-1", 7L);
+        deadLetterService.retryOrDeadLetter(failed, message(null), new IllegalStateException("boom"));
+        deadLetterService.retryOrDeadLetter(failed, message(1), new IllegalStateException("boom again"));
+        Message laterMessage = message(null);
+
+        // Act
+        deadLetterService.holdBackIfBlocked(event("e-2", 7L), laterMessage);
+
+        // Assert
+        verify(messagePublisherService).publishRaw("", RabbitMQConfig.retryQueueName(10000), laterMessage);
+    }
+
+    @Test
+    void holdBackIfBlocked_WhenTheFailedEventIsDeadLettered_ShouldReleaseTheCustomer() {
+        // Arrange
+        CustomerEvent failed = event("e-1", 7L);
+        deadLetterService.retryOrDeadLetter(failed, message(null), new IllegalStateException("boom"));
+
+        // Act
+        deadLetterService.retryOrDeadLetter(failed, message(3), new IllegalStateException("boom"));
+
+        // Assert
+        assertNull(deadLetterService.holdBackIfBlocked(event("e-2", 7L), message(null)));
+    }
+
+    @Test
+    void redrive_ShouldRepublishToTheTargetQueueAndAckOnceConfirmed() throws Exception {
+        // Arrange
+        givenChannel();
+        when(channel.basicGet(RabbitMQConfig.DEAD_LETTER_QUEUE_NAME, false))
+                .thenReturn(deadLetter(1), deadLetter(2), null);
+
+        // Act
+        int count = deadLetterService.redrive(10);
+
+        // Assert
+        assertEquals(2, count);
+        ArgumentCaptor<Message> redriven = ArgumentCaptor.forClass(Message.class);
+        verify(messagePublisherService, times(2)).publishRaw(eq(""), eq(PARTITION_QUEUE), redriven.capture());
+        Map<String, Object> headers = redriven.getValue().getMessageProperties().getHeaders();
+        assertFalse(headers.containsKey(DeadLetterService.ATTEMPT_HEADER));
+        assertFalse(headers.containsKey(DeadLetterService.EXCEPTION_CLASS_HEADER));
+        assertFalse(headers.containsKey(DeadLetterService.FAILED_AT_HEADER));
+        verify(channel).basicAck(2, true);
+        verify(channel, never()).basicNack(anyLong(), anyBoolean(), anyBoolean());
+    }
+
+    @Test
+    void redrive_WhenConfirmsTimeOut_ShouldNackTheChunkBackToTheDlq() throws Exception {
+        // Arrange
+        givenChannel();
+        when(channel.basicGet(RabbitMQConfig.DEAD_LETTER_QUEUE_NAME, false)).thenReturn(deadLetter(1), (GetResponse) null);
+        when(messagePublisherService.publishRaw(anyString(), anyString(), any(Message.class)))
+                .thenReturn(new CompletableFuture<>());
+
+        // Act & Assert
+        assertThrows(AmqpException.class, () -> deadLetterService.redrive(10));
+        verify(channel).basicNack(1, true, true);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    private void givenChannel() {
+        when(rabbitTemplate.execute(any())).thenAnswer(invocation -> {
+            ChannelCallback<?> callback = invocation.getArgument(0);
+            return callback.doInRabbit(channel);
+        });
+    }
+
+    private static Message message(Integer attempt) {
+        MessageProperties properties = new MessageProperties();
+        properties.setConsumerQueue(PARTITION_QUEUE);
+        if (attempt != null) {
+            properties.setHeader(DeadLetterService.ATTEMPT_HEADER, attempt);
+        }
+        return new Message("{}".getBytes(), properties);
+    }
+
+    private static CustomerEvent event(String eventId, Long customerId) {
+        return CustomerEvent.builder()
+                .eventId(eventId)
+                .customerId(customerId)
+                .eventType(CustomerEvent.EventType.UPDATED)
+                .build();
+    }
+
+    private static GetResponse deadLetter(long deliveryTag) {
+        Map<String, Object> headers = new HashMap<>();
+        headers.put(RabbitMQConfig.TARGET_QUEUE_HEADER, PARTITION_QUEUE);
+        headers.put(DeadLetterService.ATTEMPT_HEADER, 4);
+        headers.put(DeadLetterService.EXCEPTION_CLASS_HEADER, IllegalStateException.class.getName());
+        headers.put(DeadLetterService.FAILED_AT_HEADER, "2026-01-01T00:00:00Z");
+        AMQP.BasicProperties properties = new AMQP.BasicProperties.Builder().headers(headers).build();
+        Envelope envelope = new Envelope(deliveryTag, false, "", RabbitMQConfig.DEAD_LETTER_QUEUE_NAME);
+        return new GetResponse(envelope, properties, "{}".getBytes(), 0);
+    }
+}
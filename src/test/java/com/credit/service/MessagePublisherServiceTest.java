@@ -0,0 +1,244 @@
+package com.credit.service;
+
+import com.credit.config.MessagingProperties;
+import com.credit.exception.PublisherBackpressureException;
+import com.credit.messaging.CustomerEventPartitioner;
+import com.credit.model.OutboxMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+
+import java.net.ConnectException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MessagePublisherServiceTest {
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private RabbitOperations operations;
+
+    private final BlockingQueue<Sent> sent = new LinkedBlockingQueue<>();
+    private SimpleMeterRegistry meterRegistry;
+    private MessagePublisherService publisher;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        lenient().when(rabbitTemplate.getMessageConverter()).thenReturn(new SimpleMessageConverter());
+        lenient().doAnswer(invocation -> {
+            RabbitOperations.OperationsCallback<?> callback = invocation.getArgument(0);
+            return callback.doInRabbit(operations);
+        }).when(rabbitTemplate).invoke(any());
+        lenient().doAnswer(invocation -> {
+            sent.add(new Sent(invocation.getArgument(1), invocation.getArgument(2), invocation.getArgument(3)));
+            return null;
+        }).when(operations).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (publisher != null) {
+            publisher.stop();
+        }
+    }
+
+    @Test
+    void publishMessage_WhenBrokerAcks_ShouldCompleteFuture() throws Exception {
+        // Arrange
+        publisher = start(10, 10, 10);
+
+        // Act
+        CompletableFuture<Void> future = publisher.publishMessage("customer.events.0", "payload");
+        Sent message = nextSent();
+        message.correlation.getFuture().set(new CorrelationData.Confirm(true, null));
+
+        // Assert
+        assertNull(future.get(1, TimeUnit.SECONDS));
+        assertEquals("customer.events.0", message.routingKey);
+        assertEquals(1.0, meterRegistry.get("messaging.publisher.confirmed").counter().count());
+        assertEquals(0.0, meterRegistry.get("messaging.publisher.in.flight").gauge().value());
+    }
+
+    @Test
+    void publishMessage_ShouldSendOnTheSenderThreadInCallOrder() throws Exception {
+        // Arrange
+        publisher = start(10, 10, 10);
+        Thread caller = Thread.currentThread();
+        doAnswer(invocation -> {
+            assertNotSame(caller, Thread.currentThread());
+            RabbitOperations.OperationsCallback<?> callback = invocation.getArgument(0);
+            return callback.doInRabbit(operations);
+        }).when(rabbitTemplate).invoke(any());
+
+        // Act
+        publisher.publishMessage("key.1", "first");
+        publisher.publishMessage("key.2", "second");
+        publisher.publishMessage("key.3", "third");
+
+        // Assert
+        assertEquals("key.1", nextSent().routingKey);
+        assertEquals("key.2", nextSent().routingKey);
+        assertEquals("key.3", nextSent().routingKey);
+    }
+
+    @Test
+    void publishMessage_WhenBrokerNacks_ShouldFailWithoutResending() throws Exception {
+        // Arrange
+        publisher = start(10, 10, 10);
+
+        // Act
+        CompletableFuture<Void> future = publisher.publishMessage("customer.events.0", "payload");
+        nextSent().correlation.getFuture().set(new CorrelationData.Confirm(false, "queue full"));
+
+        // Assert
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+        assertTrue(failure.getCause().getMessage().contains("queue full"));
+        // A resend would land behind newer messages; the caller retries in order instead
+        assertNull(sent.poll(300, TimeUnit.MILLISECONDS));
+        assertEquals(1.0, meterRegistry.get("messaging.publisher.nacked").counter().count());
+        assertEquals(0.0, meterRegistry.get("messaging.publisher.in.flight").gauge().value());
+    }
+
+    @Test
+    void publishMessage_WhenReturnedAsUnroutable_ShouldFail() throws Exception {
+        // Arrange
+        publisher = start(10, 10, 10);
+
+        // Act
+        CompletableFuture<Void> future = publisher.publishMessage("no.such.queue", "payload");
+        Sent message = nextSent();
+        message.correlation.setReturned(new ReturnedMessage(message.message, 312, "NO_ROUTE",
+                "credit-service-exchange", "no.such.queue"));
+        message.correlation.getFuture().set(new CorrelationData.Confirm(true, null));
+
+        // Assert
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+        assertTrue(failure.getCause().getMessage().contains("NO_ROUTE"));
+        assertEquals(1.0, meterRegistry.get("messaging.publisher.returned").counter().count());
+        assertEquals(0.0, meterRegistry.get("messaging.publisher.confirmed").counter().count());
+    }
+
+    @Test
+    void publishMessage_WhenChannelFails_ShouldFailUnsentMessagesWithoutRetrying() throws Exception {
+        // Arrange
+        publisher = start(10, 10, 10);
+        doThrow(new AmqpConnectException(new ConnectException("connection refused")))
+                .when(rabbitTemplate).invoke(any());
+
+        // Act
+        CompletableFuture<Void> future = publisher.publishMessage("customer.events.0", "payload");
+
+        // Assert
+        assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+        verify(rabbitTemplate, times(1)).invoke(any());
+        assertEquals(1.0, meterRegistry.get("messaging.publisher.send.failed").counter().count());
+        assertEquals(0.0, meterRegistry.get("messaging.publisher.in.flight").gauge().value());
+    }
+
+    @Test
+    void publishMessage_WhenQueueStaysFull_ShouldRejectWithBackpressure() throws Exception {
+        // Arrange - one unconfirmed message fills the in-flight window, one more fills the queue
+        publisher = start(1, 1, 1);
+        CompletableFuture<Void> first = publisher.publishMessage("key", "first");
+        Sent firstSent = nextSent();
+        publisher.publishMessage("key", "second");
+        awaitQueued(0);
+        publisher.publishMessage("key", "third");
+
+        // Act & Assert
+        assertThrows(PublisherBackpressureException.class, () -> publisher.publishMessage("key", "fourth"));
+        assertEquals(1.0, meterRegistry.get("messaging.publisher.rejected").counter().count());
+        assertFalse(first.isDone());
+
+        // Confirm what was accepted so the sender can drain
+        firstSent.correlation.getFuture().set(new CorrelationData.Confirm(true, null));
+        confirmPendingSends(2);
+    }
+
+    @Test
+    void publishOutboxMessage_ShouldSendStoredPayloadAsIs() throws Exception {
+        // Arrange
+        publisher = start(10, 10, 10);
+        OutboxMessage row = OutboxMessage.builder()
+                .id(42L)
+                .exchange("credit-service-exchange")
+                .routingKey("customer.events.1")
+                .contentType(MessageProperties.CONTENT_TYPE_JSON)
+                .typeId("com.credit.model.CustomerEvent")
+                .payload("{}".getBytes())
+                .build();
+
+        // Act
+        publisher.publishOutboxMessage(row);
+        Sent message = nextSent();
+
+        // Assert
+        assertEquals("customer.events.1", message.routingKey);
+        assertEquals("outbox-42", message.message.getMessageProperties().getMessageId());
+        assertEquals(MessageProperties.CONTENT_TYPE_JSON, message.message.getMessageProperties().getContentType());
+        assertArrayEquals("{}".getBytes(), message.message.getBody());
+    }
+
+    private MessagePublisherService start(int queueCapacity, int maxInFlight, int batchSize) {
+        MessagePublisherService service = new MessagePublisherService(rabbitTemplate, new MessagingProperties(),
+                new CustomerEventPartitioner(4), meterRegistry, queueCapacity, maxInFlight, batchSize, 10);
+        service.start();
+        return service;
+    }
+
+    private void confirmPendingSends(int count) throws InterruptedException {
+        for (int i = 0; i < count; i++) {
+            nextSent().correlation.getFuture().set(new CorrelationData.Confirm(true, null));
+        }
+    }
+
+    private Sent nextSent() throws InterruptedException {
+        Sent message = sent.poll(1, TimeUnit.SECONDS);
+        assertNotNull(message, "Expected a message to be sent");
+        return message;
+    }
+
+    private void awaitQueued(double expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (meterRegistry.get("messaging.publisher.queued").gauge().value() != expected) {
+            assertTrue(System.nanoTime() < deadline, "Queue never reached " + expected);
+            Thread.sleep(5);
+        }
+    }
+
+    private static final class Sent {
+        private final String routingKey;
+        private final Message message;
+        private final CorrelationData correlation;
+
+        private Sent(String routingKey, Message message, CorrelationData correlation) {
+            this.routingKey = routingKey;
+            this.message = message;
+            this.correlation = correlation;
+        }
+    }
+}
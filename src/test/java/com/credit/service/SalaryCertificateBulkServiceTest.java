@@ -0,0 +1,165 @@
+package com.credit.service;
+
+import com.credit.config.SalaryCertificateUpstreamProperties;
+import com.credit.dto.BulkSalaryCertificateEnquiry;
+import com.credit.dto.BulkSalaryCertificateResult;
+import com.credit.mapper.SalaryCertificateMapper;
+import com.credit.model.SalaryCertificate;
+import com.credit.model.SalaryCertificateRequest;
+import com.credit.model.SalaryCertificateResponse;
+import com.credit.repository.CustomerRepository;
+import com.credit.repository.SalaryCertificateBatchRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SalaryCertificateBulkServiceTest {
+
+    @Mock
+    private SalaryCertificateService salaryCertificateService;
+
+    @Mock
+    private SalaryCertificateBatchRepository batchRepository;
+
+    @Mock
+    private CustomerRepository customerRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final SalaryCertificateMapper mapper = new SalaryCertificateMapper();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<SalaryCertificateBulkService> services = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        services.forEach(SalaryCertificateBulkService::shutdown);
+    }
+
+    @Test
+    void enquireAll_ShouldStoreLinkedRowsForFetchedCertificatesAndForLocalHitsOfACustomer() throws Exception {
+        // Arrange
+        SalaryCertificateBulkService bulkService = service(0, 5);
+        SalaryCertificateResponse certificate = certificate();
+        when(customerRepository.findExistingIds(anyList())).thenReturn(Collections.singleton(1L));
+        when(salaryCertificateService.findLocally(any(SalaryCertificateRequest.class))).thenAnswer(invocation -> {
+            SalaryCertificateRequest request = invocation.getArgument(0);
+            return "333".equals(request.getNationalId()) ? Optional.empty() : Optional.of(certificate);
+        });
+        when(salaryCertificateService.fetchUpstream(any(SalaryCertificateRequest.class)))
+                .thenReturn(SalaryCertificateService.EnquiryResult.unstored(certificate));
+        List<BulkSalaryCertificateEnquiry> enquiries = Arrays.asList(
+                enquiry("111", 1L),
+                enquiry("222", null),
+                enquiry("333", 1L));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // Act
+        int storedCount = bulkService.enquireAll(enquiries, output);
+
+        // Assert
+        assertEquals(2, storedCount);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<SalaryCertificate>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(batchRepository).insertAll(inserted.capture());
+        assertEquals(Arrays.asList("111", "333"), inserted.getValue().stream()
+                .map(SalaryCertificate::getNationalId).sorted().collect(Collectors.toList()));
+        inserted.getValue().forEach(row -> assertEquals(1L, row.getCustomer().getId()));
+        verify(salaryCertificateService, times(1)).fetchUpstream(any(SalaryCertificateRequest.class));
+
+        List<BulkSalaryCertificateResult> results = parse(output);
+        assertEquals(3, results.size());
+        results.forEach(result -> assertEquals(BulkSalaryCertificateResult.Status.FOUND, result.getStatus()));
+    }
+
+    @Test
+    void enquireAll_WhenTheSharedCallAlreadyStoredTheCertificate_ShouldOnlyStoreTheLinkedRow() throws Exception {
+        // Arrange - both applicants joined single enquiries that stored their certificates
+        SalaryCertificateBulkService bulkService = service(0, 5);
+        when(customerRepository.findExistingIds(anyList())).thenReturn(Collections.singleton(1L));
+        when(salaryCertificateService.findLocally(any(SalaryCertificateRequest.class))).thenReturn(Optional.empty());
+        when(salaryCertificateService.fetchUpstream(any(SalaryCertificateRequest.class)))
+                .thenReturn(SalaryCertificateService.EnquiryResult.stored(certificate()));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // Act
+        int storedCount = bulkService.enquireAll(Arrays.asList(enquiry("111", null), enquiry("222", 1L)), output);
+
+        // Assert
+        assertEquals(1, storedCount);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<SalaryCertificate>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(batchRepository).insertAll(inserted.capture());
+        assertEquals(1, inserted.getValue().size());
+        assertEquals("222", inserted.getValue().get(0).getNationalId());
+        assertEquals(1L, inserted.getValue().get(0).getCustomer().getId());
+        parse(output).forEach(result -> assertEquals(BulkSalaryCertificateResult.Status.FOUND, result.getStatus()));
+    }
+
+    @Test
+    void concurrency_ShouldLeaveTheReservedUpstreamCallsForSingleEnquiries() {
+        // Act & Assert - the default bulkhead allows 20 concurrent upstream calls
+        assertEquals(15, service(0, 5).concurrency());
+        assertEquals(15, service(50, 5).concurrency());
+        assertEquals(4, service(4, 5).concurrency());
+        assertEquals(1, service(0, 25).concurrency());
+    }
+
+    private SalaryCertificateBulkService service(int concurrency, int reservedCalls) {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SalaryCertificateCache cache = new SalaryCertificateCache(100, Duration.ofHours(1), Duration.ofMinutes(1),
+                mapper, registry);
+        SalaryCertificateBulkService service = new SalaryCertificateBulkService(salaryCertificateService, cache,
+                mapper, batchRepository, customerRepository, new TransactionTemplate(transactionManager),
+                objectMapper, new SalaryCertificateUpstreamProperties(), registry, 5000, 200, Duration.ofSeconds(1),
+                concurrency, reservedCalls);
+        services.add(service);
+        return service;
+    }
+
+    private List<BulkSalaryCertificateResult> parse(ByteArrayOutputStream output) throws Exception {
+        List<BulkSalaryCertificateResult> results = new ArrayList<>();
+        for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+            results.add(objectMapper.readValue(line, BulkSalaryCertificateResult.class));
+        }
+        return results;
+    }
+
+    private SalaryCertificateResponse certificate() {
+        SalaryCertificate stored = new SalaryCertificate();
+        stored.setFullName("John Doe");
+        stored.setEmployerName("Acme");
+        return mapper.toResponse(stored);
+    }
+
+    private static BulkSalaryCertificateEnquiry enquiry(String nationalId, Long customerId) {
+        return BulkSalaryCertificateEnquiry.builder()
+                .nationalId(nationalId)
+                .dateOfBirth("1990-01-01")
+                .customerId(customerId)
+                .build();
+    }
+}
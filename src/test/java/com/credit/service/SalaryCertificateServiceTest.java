@@ -0,0 +1,266 @@
+package com.credit.service;
+
+import com.credit.client.SalaryCertificateClient;
+import com.credit.config.SalaryCertificateUpstreamProperties;
+import com.credit.exception.UpstreamUnavailableException;
+import com.credit.mapper.SalaryCertificateMapper;
+import com.credit.model.SalaryCertificate;
+import com.credit.model.SalaryCertificateRequest;
+import com.credit.model.SalaryCertificateResponse;
+import com.credit.repository.SalaryCertificateRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SalaryCertificateServiceTest {
+
+    @Mock
+    private SalaryCertificateClient salaryCertificateClient;
+
+    @Mock
+    private SalaryCertificateRepository salaryCertificateRepository;
+
+    private final SalaryCertificateMapper mapper = new SalaryCertificateMapper();
+    private SimpleMeterRegistry meterRegistry;
+    private SalaryCertificateService salaryCertificateService;
+    private SalaryCertificateRequest request;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        SalaryCertificateCache cache = new SalaryCertificateCache(100, Duration.ofHours(1), Duration.ofMinutes(1),
+                mapper, meterRegistry);
+        salaryCertificateService = new SalaryCertificateService(salaryCertificateClient, salaryCertificateRepository,
+                mapper, cache, new SalaryCertificateUpstreamProperties(), meterRegistry, Duration.ofDays(7));
+
+        request = new SalaryCertificateRequest();
+        request.setNationalId("1234567890");
+        request.setDateOfBirth("1990-01-01");
+    }
+
+    @Test
+    void getAndSaveSalaryCertificate_ShouldCallUpstreamOnceAndServeRepeatsFromCache() {
+        // Arrange
+        SalaryCertificate stored = new SalaryCertificate();
+        stored.setFullName("John Doe");
+        when(salaryCertificateRepository.findFirstByNationalIdAndEnquiryDateOfBirthAndCreatedAtAfterOrderByCreatedAtDesc(
+                eq("1234567890"), eq("1990-01-01"), any())).thenReturn(Optional.empty());
+        when(salaryCertificateClient.getSalaryCertificate(request)).thenReturn(mapper.toResponse(stored));
+
+        // Act
+        SalaryCertificateResponse first = salaryCertificateService.getAndSaveSalaryCertificate(request);
+        SalaryCertificateResponse second = salaryCertificateService.getAndSaveSalaryCertificate(request);
+
+        // Assert
+        assertSame(first, second);
+        verify(salaryCertificateClient, times(1)).getSalaryCertificate(request);
+        verify(salaryCertificateRepository).save(any(SalaryCertificate.class));
+        assertEquals(1.0, meterRegistry.get("salary.certificate.upstream.saved").tag("source", "cache").counter().count());
+    }
+
+    @Test
+    void getAndSaveSalaryCertificate_WhenFreshCertificateIsStored_ShouldNotCallUpstream() {
+        // Arrange
+        SalaryCertificate stored = new SalaryCertificate();
+        stored.setFullName("John Doe");
+        stored.setEmployerName("Acme");
+        when(salaryCertificateRepository.findFirstByNationalIdAndEnquiryDateOfBirthAndCreatedAtAfterOrderByCreatedAtDesc(
+                eq("1234567890"), eq("1990-01-01"), any())).thenReturn(Optional.of(stored));
+
+        // Act
+        SalaryCertificateResponse response = salaryCertificateService.getAndSaveSalaryCertificate(request);
+
+        // Assert
+        assertTrue(response.isSuccess());
+        assertEquals("Acme", mapper.firstEmployment(response).getEmployerName());
+        verifyNoInteractions(salaryCertificateClient);
+        verify(salaryCertificateRepository, never()).save(any());
+    }
+
+    @Test
+    void getAndSaveSalaryCertificate_WhenNotFound_ShouldCacheNegativeResponseWithoutSaving() {
+        // Arrange
+        SalaryCertificateResponse notFound = new SalaryCertificateResponse();
+        notFound.setSuccess(false);
+        notFound.setMessage("Not found");
+        when(salaryCertificateRepository.findFirstByNationalIdAndEnquiryDateOfBirthAndCreatedAtAfterOrderByCreatedAtDesc(
+                eq("1234567890"), eq("1990-01-01"), any())).thenReturn(Optional.empty());
+        when(salaryCertificateClient.getSalaryCertificate(request)).thenReturn(notFound);
+
+        // Act
+        salaryCertificateService.getAndSaveSalaryCertificate(request);
+        SalaryCertificateResponse repeated = salaryCertificateService.getAndSaveSalaryCertificate(request);
+
+        // Assert
+        assertFalse(repeated.isSuccess());
+        verify(salaryCertificateClient, times(1)).getSalaryCertificate(request);
+        verify(salaryCertificateRepository, never()).save(any());
+    }
+
+    @Test
+    void getAndSaveSalaryCertificate_WhenUpstreamKeepsFailing_ShouldOpenCircuitAndFailFast() {
+        // Arrange
+        when(salaryCertificateRepository.findFirstByNationalIdAndEnquiryDateOfBirthAndCreatedAtAfterOrderByCreatedAtDesc(
+                eq("1234567890"), eq("1990-01-01"), any())).thenReturn(Optional.empty());
+        when(salaryCertificateClient.getSalaryCertificate(request)).thenThrow(new RuntimeException("Read timed out"));
+        int minimumCalls = new SalaryCertificateUpstreamProperties().getMinimumCalls();
+        for (int i = 0; i < minimumCalls; i++) {
+            assertThrows(UpstreamUnavailableException.class,
+                    () -> salaryCertificateService.getAndSaveSalaryCertificate(request));
+        }
+
+        // Act
+        UpstreamUnavailableException rejected = assertThrows(UpstreamUnavailableException.class,
+                () -> salaryCertificateService.getAndSaveSalaryCertificate(request));
+
+        // Assert
+        assertTrue(rejected.getMessage().contains("circuit is open"));
+        verify(salaryCertificateClient, times(minimumCalls)).getSalaryCertificate(request);
+        assertEquals(1.0, meterRegistry.get("salary.certificate.upstream.rejected")
+                .tag("reason", "circuit-open").counter().count());
+    }
+
+    @Test
+    void getAndSaveSalaryCertificateAsync_ShouldShareTheCallInFlightWithoutQueueingForAThread() throws Exception {
+        // Arrange - one executor thread, held by the first enquiry until released
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SalaryCertificateUpstreamProperties properties = new SalaryCertificateUpstreamProperties();
+        properties.setExecutorThreads(1);
+        SalaryCertificateService service = new SalaryCertificateService(salaryCertificateClient,
+                salaryCertificateRepository, mapper, new SalaryCertificateCache(100, Duration.ofHours(1),
+                Duration.ofMinutes(1), mapper, registry), properties, registry, Duration.ofDays(7));
+        SalaryCertificate stored = new SalaryCertificate();
+        stored.setFullName("John Doe");
+        CountDownLatch calling = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(salaryCertificateRepository.findFirstByNationalIdAndEnquiryDateOfBirthAndCreatedAtAfterOrderByCreatedAtDesc(
+                eq("1234567890"), eq("1990-01-01"), any())).thenReturn(Optional.empty());
+        when(salaryCertificateClient.getSalaryCertificate(request)).thenAnswer(invocation -> {
+            calling.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return mapper.toResponse(stored);
+        });
+        CompletableFuture<SalaryCertificateResponse> first = service.getAndSaveSalaryCertificateAsync(request);
+        assertTrue(calling.await(5, TimeUnit.SECONDS));
+
+        // Act
+        CompletableFuture<SalaryCertificateResponse> second = service.getAndSaveSalaryCertificateAsync(request);
+        double queued = registry.get("salary.certificate.executor.queued").gauge().value();
+        release.countDown();
+
+        // Assert
+        assertEquals(0.0, queued);
+        assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+        verify(salaryCertificateClient, times(1)).getSalaryCertificate(request);
+        assertEquals(1.0, registry.get("salary.certificate.upstream.saved").tag("source", "coalesced").counter().count());
+        service.shutdown();
+    }
+
+    @Test
+    void fetchUpstream_WhenItJoinsASingleEnquiry_ShouldReportTheCertificateAsStored() throws Exception {
+        // Arrange
+        SalaryCertificate stored = new SalaryCertificate();
+        stored.setFullName("John Doe");
+        CountDownLatch calling = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(salaryCertificateRepository.findFirstByNationalIdAndEnquiryDateOfBirthAndCreatedAtAfterOrderByCreatedAtDesc(
+                eq("1234567890"), eq("1990-01-01"), any())).thenReturn(Optional.empty());
+        when(salaryCertificateClient.getSalaryCertificate(request)).thenAnswer(invocation -> {
+            calling.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return mapper.toResponse(stored);
+        });
+        CompletableFuture<SalaryCertificateResponse> single = salaryCertificateService.getAndSaveSalaryCertificateAsync(request);
+        assertTrue(calling.await(5, TimeUnit.SECONDS));
+
+        // Act
+        CompletableFuture<SalaryCertificateService.EnquiryResult> bulk =
+                CompletableFuture.supplyAsync(() -> salaryCertificateService.fetchUpstream(request));
+        awaitJoined();
+        release.countDown();
+
+        // Assert
+        SalaryCertificateService.EnquiryResult joined = bulk.get(5, TimeUnit.SECONDS);
+        assertSame(single.get(5, TimeUnit.SECONDS), joined.getResponse());
+        // The bulk caller must not insert a second unlinked row
+        assertTrue(joined.isStored());
+        verify(salaryCertificateClient, times(1)).getSalaryCertificate(request);
+        verify(salaryCertificateRepository, times(1)).save(any(SalaryCertificate.class));
+    }
+
+    @Test
+    void getAndSaveSalaryCertificate_WhenItJoinsABulkFetch_ShouldStoreTheCertificateBeforeAnswering() throws Exception {
+        // Arrange
+        SalaryCertificate stored = new SalaryCertificate();
+        stored.setFullName("John Doe");
+        CountDownLatch calling = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(salaryCertificateRepository.findFirstByNationalIdAndEnquiryDateOfBirthAndCreatedAtAfterOrderByCreatedAtDesc(
+                eq("1234567890"), eq("1990-01-01"), any())).thenReturn(Optional.empty());
+        when(salaryCertificateClient.getSalaryCertificate(request)).thenAnswer(invocation -> {
+            calling.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return mapper.toResponse(stored);
+        });
+        CompletableFuture<SalaryCertificateService.EnquiryResult> bulk =
+                CompletableFuture.supplyAsync(() -> salaryCertificateService.fetchUpstream(request));
+        assertTrue(calling.await(5, TimeUnit.SECONDS));
+
+        // Act
+        CompletableFuture<SalaryCertificateResponse> single =
+                CompletableFuture.supplyAsync(() -> salaryCertificateService.getAndSaveSalaryCertificate(request));
+        awaitJoined();
+        release.countDown();
+
+        // Assert - the bulk batch insert may still fail, so the single enquiry does not rely on it
+        SalaryCertificateService.EnquiryResult fetched = bulk.get(5, TimeUnit.SECONDS);
+        assertFalse(fetched.isStored());
+        assertSame(fetched.getResponse(), single.get(5, TimeUnit.SECONDS));
+        verify(salaryCertificateClient, times(1)).getSalaryCertificate(request);
+        verify(salaryCertificateRepository, times(1)).save(any(SalaryCertificate.class));
+        // Stored now, so the next enquiry is served from the cache
+        assertSame(fetched.getResponse(), salaryCertificateService.getAndSaveSalaryCertificate(request));
+        verify(salaryCertificateRepository, times(1)).save(any(SalaryCertificate.class));
+    }
+
+    @Test
+    void fetchUpstream_ShouldNotCacheAFoundCertificateBeforeTheCallerStoresIt() {
+        // Arrange
+        SalaryCertificate stored = new SalaryCertificate();
+        stored.setFullName("John Doe");
+        when(salaryCertificateRepository.findFirstByNationalIdAndEnquiryDateOfBirthAndCreatedAtAfterOrderByCreatedAtDesc(
+                eq("1234567890"), eq("1990-01-01"), any())).thenReturn(Optional.empty());
+        when(salaryCertificateClient.getSalaryCertificate(request)).thenReturn(mapper.toResponse(stored));
+
+        // Act
+        SalaryCertificateService.EnquiryResult fetched = salaryCertificateService.fetchUpstream(request);
+
+        // Assert
+        assertFalse(fetched.isStored());
+        assertTrue(salaryCertificateService.findLocally(request).isEmpty());
+        verify(salaryCertificateRepository, never()).save(any());
+    }
+
+    private void awaitJoined() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (meterRegistry.get("salary.certificate.upstream.saved").tag("source", "coalesced").counter().count() < 1
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+}
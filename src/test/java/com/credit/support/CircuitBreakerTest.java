@@ -0,0 +1,67 @@
+package com.credit.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void onFailure_ShouldOpenOnceFailureRateReachesThresholdOverMinimumCalls() {
+        // Arrange
+        CircuitBreaker breaker = new CircuitBreaker(10, 4, 0.5, Duration.ofSeconds(30), now::get);
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onSuccess();
+
+        // Act
+        breaker.onFailure();
+
+        // Assert
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void tryAcquirePermission_AfterOpenDuration_ShouldAllowOneTrialAndCloseOnSuccess() {
+        // Arrange
+        CircuitBreaker breaker = new CircuitBreaker(4, 2, 0.5, Duration.ofSeconds(30), now::get);
+        breaker.onFailure();
+        breaker.onFailure();
+        now.addAndGet(TimeUnit.SECONDS.toNanos(31));
+
+        // Act
+        boolean trial = breaker.tryAcquirePermission();
+        boolean second = breaker.tryAcquirePermission();
+        breaker.onSuccess();
+
+        // Assert
+        assertTrue(trial);
+        assertFalse(second);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertTrue(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void onFailure_WhenTrialFails_ShouldReopen() {
+        // Arrange
+        CircuitBreaker breaker = new CircuitBreaker(4, 2, 0.5, Duration.ofSeconds(30), now::get);
+        breaker.onFailure();
+        breaker.onFailure();
+        now.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        breaker.tryAcquirePermission();
+
+        // Act
+        breaker.onFailure();
+
+        // Assert
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquirePermission());
+    }
+}
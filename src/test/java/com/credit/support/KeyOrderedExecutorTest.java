@@ -0,0 +1,43 @@
+package com.credit.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyOrderedExecutorTest {
+
+    @Test
+    void submit_ShouldRunTasksForTheSameKeyInSubmissionOrder() {
+        // Arrange
+        Map<Long, List<Integer>> seen = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        // Act
+        try (KeyOrderedExecutor executor = new KeyOrderedExecutor("test", 4)) {
+            for (int i = 0; i < 1000; i++) {
+                long key = i % 10;
+                int sequence = i;
+                futures.add(executor.submit(key, () -> seen
+                        .computeIfAbsent(key, k -> Collections.synchronizedList(new ArrayList<>()))
+                        .add(sequence)));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        }
+
+        // Assert
+        assertEquals(10, seen.size());
+        seen.forEach((key, sequences) -> {
+            assertEquals(100, sequences.size());
+            for (int i = 1; i < sequences.size(); i++) {
+                assertTrue(sequences.get(i - 1) < sequences.get(i), "Out of order for key " + key);
+            }
+        });
+    }
+}
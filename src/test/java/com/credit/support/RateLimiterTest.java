@@ -0,0 +1,33 @@
+package com.credit.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    @Test
+    void acquire_ShouldPacePermitsToTheConfiguredRate() throws InterruptedException {
+        // Arrange
+        RateLimiter limiter = new RateLimiter(100);
+
+        // Act
+        long start = System.nanoTime();
+        for (int i = 0; i < 21; i++) {
+            limiter.acquire();
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Assert - the first permit is immediate, the next 20 take 10 ms each
+        assertTrue(elapsedMs >= 190, "took " + elapsedMs + " ms");
+        assertTrue(elapsedMs < 1000, "took " + elapsedMs + " ms");
+    }
+
+    @Test
+    void constructor_ShouldRejectNonPositiveRate() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter(0));
+    }
+}
@@ -0,0 +1,123 @@
+package com.credit.support;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    void call_ShouldRunLoaderOnceForConcurrentCallersWithTheSameKey() throws Exception {
+        // Arrange
+        Counter shared = new SimpleMeterRegistry().counter("shared");
+        SingleFlight<String, String> singleFlight = new SingleFlight<>(shared);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+
+        // Act
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(CompletableFuture.supplyAsync(() -> singleFlight.call("key", () -> {
+                loads.incrementAndGet();
+                awaitQuietly(release);
+                return "value";
+            }), callers));
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((loads.get() == 0 || shared.count() < 3) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        // Assert
+        for (CompletableFuture<String> result : results) {
+            assertEquals("value", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(0, singleFlight.inFlight());
+        callers.shutdown();
+    }
+
+    @Test
+    void call_ShouldStartANewCallOnceThePreviousOneFailed() {
+        // Arrange
+        SingleFlight<String, String> singleFlight = new SingleFlight<>(new SimpleMeterRegistry().counter("shared"));
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> singleFlight.call("key", () -> {
+            throw new IllegalStateException("upstream down");
+        }));
+        assertEquals("value", singleFlight.call("key", () -> "value"));
+    }
+
+    @Test
+    void submit_ShouldShareTheFutureInFlightAndStartANewCallOnceItCompletes() {
+        // Arrange
+        Counter shared = new SimpleMeterRegistry().counter("shared");
+        SingleFlight<String, String> singleFlight = new SingleFlight<>(shared);
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        AtomicInteger loads = new AtomicInteger();
+
+        // Act
+        CompletableFuture<String> first = singleFlight.submit("key", () -> {
+            loads.incrementAndGet();
+            return upstream;
+        });
+        CompletableFuture<String> second = singleFlight.submit("key", () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+        upstream.complete("value");
+
+        // Assert
+        assertSame(first, second);
+        assertEquals("value", second.join());
+        assertEquals(1, loads.get());
+        assertEquals(1.0, shared.count());
+        assertEquals(0, singleFlight.inFlight());
+        assertEquals("next", singleFlight.submit("key", () -> CompletableFuture.completedFuture("next")).join());
+    }
+
+    @Test
+    void submit_WhenTheLoaderThrows_ShouldFailTheFutureAndForgetTheKey() {
+        // Arrange
+        SingleFlight<String, String> singleFlight = new SingleFlight<>(new SimpleMeterRegistry().counter("shared"));
+        CompletableFuture<String> failedAsync = new CompletableFuture<>();
+        failedAsync.completeExceptionally(new CompletionException(new IllegalStateException("upstream down")));
+
+        // Act
+        CompletableFuture<String> thrown = singleFlight.submit("key", () -> {
+            throw new IllegalStateException("executor full");
+        });
+        CompletableFuture<String> failed = singleFlight.submit("key", () -> failedAsync);
+
+        // Assert
+        ExecutionException thrownFailure = assertThrows(ExecutionException.class, thrown::get);
+        assertEquals("executor full", thrownFailure.getCause().getMessage());
+        ExecutionException asyncFailure = assertThrows(ExecutionException.class, failed::get);
+        assertTrue(asyncFailure.getCause() instanceof IllegalStateException);
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}